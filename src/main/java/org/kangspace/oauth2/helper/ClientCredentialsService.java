@@ -1,12 +1,15 @@
 package org.kangspace.oauth2.helper;
 
 import lombok.NonNull;
+import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.storage.local.TokenRegistry;
 import org.kangspace.oauth2.helper.token.Token;
 import org.kangspace.oauth2.helper.token.TokenResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 客户端模式OAuth2请求服务Service接口
@@ -28,40 +31,43 @@ public interface ClientCredentialsService<T extends Token> extends OAuth2Request
     TokenResponse<T> getToken(@NonNull String clientId, @NonNull String clientSecret);
 
 
+    /**
+     * 获取stale-while-revalidate宽限时间(秒) <br>
+     * token剩余有效时间不超过该时间时, 直接返回当前token, 同时由{@link #getTokenRefreshExecutor()}后台获取新token,
+     * 适用于新token签发后旧token仍在短时间内有效的服务(如微信), 避免token过期时请求耗时突增 <br>
+     * 宽限时间位于安全余量过期时间({@link #getTokenExpiryMarginSeconds()})之前, 不延长token的使用时间:
+     * 到达安全余量过期时间后token从存储中失效, 由请求线程同步获取 <br>
+     * 读取token剩余有效时间依赖{@link org.kangspace.oauth2.helper.storage.TokenStorage#getEnvelope(String)},
+     * Redis存储建议配合{@link org.kangspace.oauth2.helper.storage.CachingTokenStorage}使用
+     *
+     * @return 宽限时间(秒), 默认0: 不启用
+     */
+    default long getStaleWhileRevalidateSeconds() {
+        return 0L;
+    }
+
+    /**
+     * 获取token存储对象 <br>
+     * 默认使用{@link TokenRegistry#getDefault()}中按(clientId, grant_type)共享的本地存储, 同一clientId的Service实例共享同一token
+     *
+     * @return token存储对象
+     */
+    @Override
+    default TokenStorage<T> getTokenStorage() {
+        return TokenRegistry.getDefault().storage(TokenRegistry.GRANT_TYPE_CLIENT_CREDENTIALS, null);
+    }
+
     /**
      * 获取token <br>
-     * grant_type: client_credentials
+     * grant_type: client_credentials <br>
+     * 并发获取时同一clientId仅请求一次token服务器, 见{@link #getTokenSingleFlight()}
      *
      * @return Token
      */
     default T getToken(boolean isRefreshToken) {
-        String clientId = getClientId();
-        log.debug("getToken, refreshToken: {}, clientId: {}", isRefreshToken, clientId);
-        T token = getTokenStorage().get(clientId);
-        if (isRefreshToken || token == null) {
-            log.debug("cache token not exist or need refresh token, clientId: {}, isRefreshToken: {}", clientId, isRefreshToken);
-            TokenResponse<T> tokenResponse = null;
-
-            if (useRefreshToken() && token != null) {
-                log.debug("specific useRefreshToken, clientId: {}, refreshToken: {}", clientId, token.getRefreshToken());
-                try {
-                    tokenResponse = refreshToken(token.getRefreshToken(), Objects.requireNonNull(getClientId()), Objects.requireNonNull(getClientSecret()));
-                } catch (Exception e) {
-                    log.error("specific useRefreshToken exception, error: {}", e.getMessage(), e);
-                }
-            }
-
-            if (tokenResponse == null) {
-                log.debug("get token from server by clientId/clientSecret, clientId: {}", clientId);
-                tokenResponse = getToken(Objects.requireNonNull(getClientId()), Objects.requireNonNull(getClientSecret()));
-            }
-
-            if (tokenResponse != null) {
-                log.debug("get token from server success, cache token, clientId: {}", clientId);
-                token = tokenResponse.getToken();
-                getTokenStorage().set(getClientId(), token);
-            }
-        }
-        return token;
+        String identity = getTokenIdentity();
+        log.debug("getToken, refreshToken: {}, identity: {}", isRefreshToken, identity);
+        return TokenLoader.load(this, identity, isRefreshToken, TimeUnit.SECONDS.toMillis(getStaleWhileRevalidateSeconds()),
+                () -> getToken(Objects.requireNonNull(getClientId()), Objects.requireNonNull(getClientSecret())));
     }
 }
@@ -3,17 +3,39 @@ package org.kangspace.oauth2.helper;
 import lombok.NonNull;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.kangspace.oauth2.helper.concurrent.CircuitBreaker;
+import org.kangspace.oauth2.helper.concurrent.SingleFlight;
+import org.kangspace.oauth2.helper.exception.TokenEndpointUnavailableException;
+import org.kangspace.oauth2.helper.exception.UnOKResponseException;
+import org.kangspace.oauth2.helper.exception.UnSucceedResponseException;
+import org.kangspace.oauth2.helper.exception.UnauthorizedException;
+import org.kangspace.oauth2.helper.request.HedgePolicy;
 import org.kangspace.oauth2.helper.request.RequestFactory;
 import org.kangspace.oauth2.helper.request.Response;
+import org.kangspace.oauth2.helper.request.ResponseCache;
+import org.kangspace.oauth2.helper.request.RetryPolicy;
+import org.kangspace.oauth2.helper.storage.AsyncTokenStorage;
 import org.kangspace.oauth2.helper.storage.TokenStorage;
 import org.kangspace.oauth2.helper.storage.local.InMemoryTokenStorage;
 import org.kangspace.oauth2.helper.storage.redis.RedisTemplateTokenStorage;
 import org.kangspace.oauth2.helper.storage.redis.RedissonTokenStorage;
 import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
 import org.kangspace.oauth2.helper.token.TokenResponse;
+import org.kangspace.oauth2.helper.transport.ApacheHttpTransport;
+import org.kangspace.oauth2.helper.transport.ConnectionPoolConfig;
+import org.kangspace.oauth2.helper.transport.HttpConnectionPool;
+import org.kangspace.oauth2.helper.transport.HttpTransport;
+import org.kangspace.oauth2.helper.transport.HttpTransportRequest;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * OAuth2请求服务接口
@@ -24,10 +46,50 @@ import java.util.concurrent.atomic.AtomicReference;
 public interface OAuth2RequestService<T extends Token> {
 
     /**
-     * 默认HttpClient
+     * 默认HttpClient, 设置后所有Service默认使用该HttpClient, 否则使用{@link #getConnectionPool()}的HttpClient
      */
     AtomicReference<HttpClient> DEFAULT_HTTP_CLIENT = new AtomicReference<>(null);
 
+    /**
+     * 默认连接池
+     */
+    AtomicReference<HttpConnectionPool> DEFAULT_CONNECTION_POOL = new AtomicReference<>(null);
+
+    /**
+     * 默认异步HttpClient
+     */
+    AtomicReference<HttpAsyncClient> DEFAULT_HTTP_ASYNC_CLIENT = new AtomicReference<>(null);
+
+    /**
+     * 默认请求重试策略, 所有实例共享(含重试预算)
+     */
+    RetryPolicy DEFAULT_RETRY_POLICY = new RetryPolicy();
+
+    /**
+     * 默认token请求合并器
+     */
+    SingleFlight DEFAULT_TOKEN_SINGLE_FLIGHT = new SingleFlight();
+
+    /**
+     * 默认GET请求合并器
+     */
+    SingleFlight DEFAULT_REQUEST_SINGLE_FLIGHT = new SingleFlight();
+
+    /**
+     * 默认token后台刷新线程池
+     */
+    ExecutorService DEFAULT_TOKEN_REFRESH_EXECUTOR = TokenLoader.newTokenRefreshExecutor();
+
+    /**
+     * 默认异步获取token线程池
+     */
+    ExecutorService DEFAULT_TOKEN_LOAD_EXECUTOR = TokenLoader.newTokenLoadExecutor();
+
+    /**
+     * 默认token存储, 所有实例共享, 按token存储key区分
+     */
+    InMemoryTokenStorage<Token> DEFAULT_TOKEN_STORAGE = new InMemoryTokenStorage<>();
+
     /**
      * 获取客户端ID
      *
@@ -42,22 +104,115 @@ public interface OAuth2RequestService<T extends Token> {
      */
     String getClientSecret();
 
+    /**
+     * 获取token存储唯一标识 <br>
+     * 用于token存储、请求合并及提前刷新, 默认为clientId
+     *
+     * @return token存储唯一标识
+     */
+    default String getTokenIdentity() {
+        return getClientId();
+    }
+
     /**
      * 获取HttpClient
      * <p>
      * 实现类可重写,建议自定义HttpClient
      * <p>
-     * 默认使用{@link RequestFactory#getHttpClient()}
+     * 默认使用{@link #DEFAULT_HTTP_CLIENT}(已设置时)或{@link #getConnectionPool()}的HttpClient
      *
      * @return HttpClient
      */
     default HttpClient getHttpClient() {
-        synchronized (DEFAULT_HTTP_CLIENT) {
-            if (DEFAULT_HTTP_CLIENT.get() == null) {
-                DEFAULT_HTTP_CLIENT.set(RequestFactory.getHttpClient());
+        HttpClient httpClient = DEFAULT_HTTP_CLIENT.get();
+        return httpClient != null ? httpClient : getConnectionPool().getHttpClient();
+    }
+
+    /**
+     * 获取连接池, 可用于查看连接池统计
+     * <p>
+     * 实现类可重写, 如按{@link ConnectionPoolConfig}设置路由最大连接数、空闲连接回收时间等
+     * <p>
+     * 默认所有实例共享, 使用默认配置
+     *
+     * @return 连接池
+     */
+    default HttpConnectionPool getConnectionPool() {
+        synchronized (DEFAULT_CONNECTION_POOL) {
+            if (DEFAULT_CONNECTION_POOL.get() == null) {
+                DEFAULT_CONNECTION_POOL.set(RequestFactory.getConnectionPool(new ConnectionPoolConfig()));
+            }
+        }
+        return DEFAULT_CONNECTION_POOL.get();
+    }
+
+    /**
+     * 获取异步HttpClient, 用于*Async请求方法
+     * <p>
+     * 实现类可重写,建议自定义异步HttpClient(需已启动)
+     * <p>
+     * 默认使用{@link RequestFactory#getHttpAsyncClient()}
+     *
+     * @return 异步HttpClient
+     */
+    default HttpAsyncClient getHttpAsyncClient() {
+        synchronized (DEFAULT_HTTP_ASYNC_CLIENT) {
+            if (DEFAULT_HTTP_ASYNC_CLIENT.get() == null) {
+                DEFAULT_HTTP_ASYNC_CLIENT.set(RequestFactory.getHttpAsyncClient());
             }
         }
-        return DEFAULT_HTTP_CLIENT.get();
+        return DEFAULT_HTTP_ASYNC_CLIENT.get();
+    }
+
+    /**
+     * 获取请求重试策略
+     * <p>
+     * 实现类可重写, 如按上游调整最大请求次数、重试预算, 或返回{@link RetryPolicy#NONE}不重试
+     * <p>
+     * 默认使用{@link #DEFAULT_RETRY_POLICY}
+     *
+     * @return 请求重试策略
+     */
+    default RetryPolicy getRetryPolicy() {
+        return DEFAULT_RETRY_POLICY;
+    }
+
+    /**
+     * 获取请求对冲策略
+     * <p>
+     * 实现类可重写开启对冲, 如返回共享的{@code new HedgePolicy()}(按p95延迟对冲)或{@code new HedgePolicy().delayMillis(50)};
+     * 对冲策略记录响应延迟及对冲统计, 同一上游应返回同一实例
+     * <p>
+     * 默认不对冲({@link HedgePolicy#NONE})
+     *
+     * @return 请求对冲策略
+     */
+    default HedgePolicy getHedgePolicy() {
+        return HedgePolicy.NONE;
+    }
+
+    /**
+     * 获取HTTP传输层, 用于发送所有请求
+     * <p>
+     * 实现类可重写, 如使用{@link org.kangspace.oauth2.helper.transport.JdkHttpTransport}
+     * <p>
+     * 默认使用{@link ApacheHttpTransport}, 基于{@link #getHttpClient()}及{@link #getHttpAsyncClient()}
+     *
+     * @return HTTP传输层
+     */
+    default HttpTransport getHttpTransport() {
+        return new ApacheHttpTransport(getHttpClient(), this::getHttpAsyncClient);
+    }
+
+    /**
+     * POST/PUT请求体是否序列化一次并缓存 <br>
+     * 默认缓存: 首次发送前序列化为字节数组, Token失效重试等重复发送时复用, 请求头包含Content-Length;
+     * 返回false时发送时直接将JSON序列化至连接输出流(分块传输), 不生成中间字符串/字节数组, 适用于较大的请求体(需服务端支持分块传输)
+     *
+     * @return 是否缓存请求体
+     */
+    default boolean isBufferRequestBody() {
+        return true;
     }
 
     /**
@@ -69,8 +224,112 @@ public interface OAuth2RequestService<T extends Token> {
      * @see RedissonTokenStorage
      * @see InMemoryTokenStorage
      */
+    @SuppressWarnings("unchecked")
     default TokenStorage<T> getTokenStorage() {
-        return new InMemoryTokenStorage<T>();
+        return (TokenStorage<T>) (TokenStorage<?>) DEFAULT_TOKEN_STORAGE;
+    }
+
+    /**
+     * 获取token请求合并器 <br>
+     * 同一token存储key的并发token获取/刷新仅请求一次token服务器, 其余调用方共享该结果 <br>
+     * 默认所有实例共享{@link #DEFAULT_TOKEN_SINGLE_FLIGHT}, 可通过{@link SingleFlight#getCoalescedCount()}获取被合并的调用次数
+     *
+     * @return token请求合并器
+     */
+    default SingleFlight getTokenSingleFlight() {
+        return DEFAULT_TOKEN_SINGLE_FLIGHT;
+    }
+
+    /**
+     * 是否合并相同的并发GET请求 <br>
+     * 开启时, 请求方法、URL、响应类、请求头(及需要Token时的token存储唯一标识)相同的并发GET请求仅发送一次, 所有调用方共享同一响应对象(调用方不应修改)
+     *
+     * @return 是否合并, 默认不合并
+     */
+    default boolean isCoalesceRequests() {
+        return false;
+    }
+
+    /**
+     * 获取GET请求合并器 <br>
+     * 默认所有实例共享{@link #DEFAULT_REQUEST_SINGLE_FLIGHT}, 可通过{@link SingleFlight#getCoalescedCount()}获取被合并的请求数
+     *
+     * @return GET请求合并器
+     */
+    default SingleFlight getRequestSingleFlight() {
+        return DEFAULT_REQUEST_SINGLE_FLIGHT;
+    }
+
+    /**
+     * 获取GET响应缓存 <br>
+     * 开启时按Cache-Control max-age缓存GET响应, 过期后以ETag/Last-Modified条件请求重新验证; 缓存key包含token存储唯一标识, 不同客户端/用户不共享缓存
+     *
+     * @return GET响应缓存, 默认为null(不缓存)
+     * @see ResponseCache
+     */
+    default ResponseCache getResponseCache() {
+        return null;
+    }
+
+    /**
+     * 获取token后台刷新线程池 <br>
+     * 用于stale-while-revalidate等后台获取token的场景, 默认所有实例共享{@link #DEFAULT_TOKEN_REFRESH_EXECUTOR}
+     *
+     * @return token后台刷新线程池
+     */
+    default Executor getTokenRefreshExecutor() {
+        return DEFAULT_TOKEN_REFRESH_EXECUTOR;
+    }
+
+    /**
+     * 获取异步获取token线程池 <br>
+     * {@link #getTokenAsync(boolean)}需要请求token服务器时在该线程池中执行, 默认所有实例共享{@link #DEFAULT_TOKEN_LOAD_EXECUTOR}
+     *
+     * @return 异步获取token线程池
+     */
+    default Executor getTokenLoadExecutor() {
+        return DEFAULT_TOKEN_LOAD_EXECUTOR;
+    }
+
+    /**
+     * 获取token获取熔断器 <br>
+     * 连续获取token失败达到阈值后熔断, 熔断期间获取token直接抛出{@link TokenEndpointUnavailableException}, 避免请求线程等待超时 <br>
+     * 默认按clientId共享{@link CircuitBreaker#shared(String)}, 仅{@link #isTokenEndpointFailure(Throwable)}判定的服务不可用计为失败,
+     * 密码模式下单个用户凭证被拒绝不影响同一客户端的其他用户; 可通过{@link CircuitBreaker#addListener}监听状态变更
+     *
+     * @return 熔断器, 为null时不启用
+     */
+    default CircuitBreaker getTokenCircuitBreaker() {
+        return CircuitBreaker.shared("oauth2-token:" + getClientId());
+    }
+
+    /**
+     * 获取token失败是否为token服务不可用 <br>
+     * 默认IO异常、超时及5xx响应为不可用, 计入熔断失败; 401/4xx响应及非正常业务成功响应(如invalid_grant)为凭证被拒绝, 不计入熔断失败
+     *
+     * @param e 获取token异常
+     * @return 是否为token服务不可用
+     */
+    default boolean isTokenEndpointFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnauthorizedException || cause instanceof UnSucceedResponseException) {
+                return false;
+            }
+            if (cause instanceof UnOKResponseException) {
+                return ((UnOKResponseException) cause).getCode() >= 500;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取token过期安全余量(秒) <br>
+     * token在服务器过期时间之前该时间即视为过期, 存储过期时间相应提前, 避免使用即将过期的token
+     *
+     * @return 安全余量(秒), 默认{@link TokenEnvelope#DEFAULT_SAFETY_MARGIN_SECONDS}
+     */
+    default long getTokenExpiryMarginSeconds() {
+        return TokenEnvelope.DEFAULT_SAFETY_MARGIN_SECONDS;
     }
 
     /**
@@ -90,6 +349,37 @@ public interface OAuth2RequestService<T extends Token> {
      */
     T getToken(boolean isRefreshToken);
 
+    /**
+     * 异步获取token, 不阻塞调用线程(如I/O线程) <br>
+     * 存储中存在token时直接返回(实现{@link AsyncTokenStorage}的存储使用异步读取); 否则或刷新token时,
+     * 在{@link #getTokenLoadExecutor()}中执行{@link #getToken(boolean)}, 同一token存储key的并发调用仅提交一次
+     *
+     * @param isRefreshToken 是否使用刷新token
+     * @return token
+     */
+    @SuppressWarnings("unchecked")
+    default CompletableFuture<T> getTokenAsync(boolean isRefreshToken) {
+        TokenStorage<T> tokenStorage = getTokenStorage();
+        String identity = getTokenIdentity();
+        // 与getToken内部的合并key区分, 避免在合并请求内等待自身
+        String key = tokenStorage.getKey(identity) + (isRefreshToken ? "#async-refresh" : "#async");
+        Supplier<CompletableFuture<T>> loader = () -> getTokenSingleFlight()
+                .executeAsync(key, () -> getToken(isRefreshToken), getTokenLoadExecutor());
+        if (isRefreshToken) {
+            return loader.get();
+        }
+        CompletableFuture<T> cached;
+        try {
+            cached = tokenStorage instanceof AsyncTokenStorage
+                    ? ((AsyncTokenStorage<T>) tokenStorage).getAsync(identity)
+                    : CompletableFuture.completedFuture(tokenStorage.get(identity));
+        } catch (RuntimeException e) {
+            return loader.get();
+        }
+        return cached.handle((token, e) -> token != null ? CompletableFuture.completedFuture(token) : loader.get())
+                .thenCompose(Function.identity());
+    }
+
     /**
      * 刷新token <br>
      * grant_type: client_credentials
@@ -216,13 +506,161 @@ public interface OAuth2RequestService<T extends Token> {
         return RequestFactory.putWithToken(url, httpHeaders, requestBody, responseClass, getHttpClient(), this).execute();
     }
 
+    /**
+     * 异步执行GET请求
+     *
+     * @param url           请求URL
+     * @param httpHeaders   请求头
+     * @param responseClass 响应类
+     * @return 响应结果
+     */
+    default <Resp extends Response> CompletableFuture<Resp> getAsync(@NonNull String url,
+                                                                     Map<String, String> httpHeaders,
+                                                                     @NonNull Class<Resp> responseClass) {
+        return RequestFactory.get(url, httpHeaders, responseClass, getHttpClient(), this)
+                .executeAsync();
+    }
+
+    /**
+     * 异步执行GET请求(有Token)
+     *
+     * @param url           请求URL
+     * @param httpHeaders   请求头
+     * @param responseClass 响应类
+     * @return 响应结果
+     */
+    default <Resp extends Response> CompletableFuture<Resp> getWithTokenAsync(@NonNull String url,
+                                                                              Map<String, String> httpHeaders,
+                                                                              @NonNull Class<Resp> responseClass) {
+        return RequestFactory.getWithToken(url, httpHeaders, responseClass, getHttpClient(), this)
+                .executeAsync();
+    }
+
+    /**
+     * 异步执行DELETE请求
+     *
+     * @param url           请求URL
+     * @param httpHeaders   请求头
+     * @param responseClass 响应类
+     * @return 响应结果
+     */
+    default <Resp extends Response> CompletableFuture<Resp> deleteAsync(@NonNull String url,
+                                                                        Map<String, String> httpHeaders,
+                                                                        @NonNull Class<Resp> responseClass) {
+        return RequestFactory.delete(url, httpHeaders, responseClass, getHttpClient(), this)
+                .executeAsync();
+    }
+
+    /**
+     * 异步执行DELETE请求(有Token)
+     *
+     * @param url           请求URL
+     * @param httpHeaders   请求头
+     * @param responseClass 响应类
+     * @return 响应结果
+     */
+    default <Resp extends Response> CompletableFuture<Resp> deleteWithTokenAsync(@NonNull String url,
+                                                                                 Map<String, String> httpHeaders,
+                                                                                 @NonNull Class<Resp> responseClass) {
+        return RequestFactory.deleteWithToken(url, httpHeaders, responseClass, getHttpClient(), this)
+                .executeAsync();
+    }
+
+    /**
+     * 异步执行POST请求
+     *
+     * @param url           请求URL
+     * @param httpHeaders   请求头
+     * @param requestBody   请求体
+     * @param responseClass 响应类
+     * @return 响应结果
+     */
+    default <Req, Resp extends Response> CompletableFuture<Resp> postAsync(@NonNull String url,
+                                                                           Map<String, String> httpHeaders,
+                                                                           Req requestBody,
+                                                                           @NonNull Class<Resp> responseClass) {
+        return RequestFactory.post(url, httpHeaders, requestBody, responseClass, getHttpClient(), this)
+                .executeAsync();
+    }
+
+    /**
+     * 异步执行POST请求(有Token)
+     *
+     * @param url           请求URL
+     * @param httpHeaders   请求头
+     * @param requestBody   请求体
+     * @param responseClass 响应类
+     * @return 响应结果
+     */
+    default <Req, Resp extends Response> CompletableFuture<Resp> postWithTokenAsync(@NonNull String url,
+                                                                                    Map<String, String> httpHeaders,
+                                                                                    Req requestBody,
+                                                                                    @NonNull Class<Resp> responseClass) {
+        return RequestFactory.postWithToken(url, httpHeaders, requestBody, responseClass, getHttpClient(), this)
+                .executeAsync();
+    }
+
+    /**
+     * 异步执行PUT请求
+     *
+     * @param url           请求URL
+     * @param httpHeaders   请求头
+     * @param requestBody   请求体
+     * @param responseClass 响应类
+     * @return 响应结果
+     */
+    default <Req, Resp extends Response> CompletableFuture<Resp> putAsync(@NonNull String url,
+                                                                          Map<String, String> httpHeaders,
+                                                                          Req requestBody,
+                                                                          @NonNull Class<Resp> responseClass) {
+        return RequestFactory.put(url, httpHeaders, requestBody, responseClass, getHttpClient(), this)
+                .executeAsync();
+    }
+
+    /**
+     * 异步执行PUT请求(有Token)
+     *
+     * @param url           请求URL
+     * @param httpHeaders   请求头
+     * @param requestBody   请求体
+     * @param responseClass 响应类
+     * @return 响应结果
+     */
+    default <Req, Resp extends Response> CompletableFuture<Resp> putWithTokenAsync(@NonNull String url,
+                                                                                   Map<String, String> httpHeaders,
+                                                                                   Req requestBody,
+                                                                                   @NonNull Class<Resp> responseClass) {
+        return RequestFactory.putWithToken(url, httpHeaders, requestBody, responseClass, getHttpClient(), this)
+                .executeAsync();
+    }
+
+    /**
+     * 设置请求时的Token
+     * <p>
+     * 默认兼容{@link #tokenSet4Request(HttpRequestBase, String)}的重写实现
+     *
+     * @param request 请求
+     * @param token   令牌
+     * @return 是否已设置
+     */
+    default boolean tokenSet4Request(HttpTransportRequest request, String token) {
+        HttpRequestBase httpRequest = ApacheHttpTransport.toHttpRequest(request);
+        if (!tokenSet4Request(httpRequest, token)) {
+            return false;
+        }
+        ApacheHttpTransport.copyTo(httpRequest, request);
+        return true;
+    }
+
     /**
      * 设置请求时的Token
      *
      * @param request 请求
      * @param token   令牌
      * @return 是否已设置
+     * @deprecated 使用{@link #tokenSet4Request(HttpTransportRequest, String)}
      */
+    @Deprecated
     default boolean tokenSet4Request(HttpRequestBase request, String token) {
         return false;
     }
@@ -1,6 +1,8 @@
 package org.kangspace.oauth2.helper;
 
 import lombok.NonNull;
+import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.storage.local.TokenRegistry;
 import org.kangspace.oauth2.helper.token.Token;
 import org.kangspace.oauth2.helper.token.TokenResponse;
 
@@ -13,6 +15,11 @@ import java.util.Objects;
  * @since 0.0.1
  */
 public interface PasswordService<T extends Token> extends OAuth2RequestService<T> {
+    /**
+     * 默认用户token池: 按(clientId, username)保存token, 空闲30分钟淘汰
+     */
+    TokenRegistry DEFAULT_PASSWORD_TOKEN_REGISTRY = new TokenRegistry(TokenRegistry.DEFAULT_MAX_TENANTS,
+            TokenRegistry.DEFAULT_IDLE_TIMEOUT_MILLIS);
 
     /**
      * 获取用户名
@@ -41,23 +48,38 @@ public interface PasswordService<T extends Token> extends OAuth2RequestService<T
     TokenResponse<T> getToken(@NonNull String clientId, @NonNull String clientSecret,
                               @NonNull String username, @NonNull String password);
 
+    /**
+     * 获取token存储唯一标识 <br>
+     * 同一客户端下不同用户的token分别保存, 默认为clientId:username
+     *
+     * @return token存储唯一标识
+     */
+    @Override
+    default String getTokenIdentity() {
+        return getClientId() + ":" + getUsername();
+    }
+
+    /**
+     * 获取token存储对象 <br>
+     * 默认使用{@link #DEFAULT_PASSWORD_TOKEN_REGISTRY}, 按用户保存token, 有界且淘汰空闲用户
+     *
+     * @return token存储对象
+     */
+    @Override
+    default TokenStorage<T> getTokenStorage() {
+        return DEFAULT_PASSWORD_TOKEN_REGISTRY.storage(TokenRegistry.GRANT_TYPE_PASSWORD, null);
+    }
+
     /**
      * 获取token <br>
      * grant_type: password <br>
+     * 并发获取时同一用户仅请求一次token服务器, 见{@link #getTokenSingleFlight()}
      *
      * @return Token
      */
     default T getToken(boolean isRefreshToken) {
-        T token = getTokenStorage().get(getClientId());
-        if (isRefreshToken || token == null) {
-            TokenResponse<T> tokenResponse = getToken(Objects.requireNonNull(getClientId()),
-                    Objects.requireNonNull(getClientSecret()),
-                    Objects.requireNonNull(getUsername()), Objects.requireNonNull(getPassword()));
-            if (tokenResponse != null) {
-                token = tokenResponse.getToken();
-                getTokenStorage().set(getClientId(), token);
-            }
-        }
-        return token;
+        return TokenLoader.load(this, getTokenIdentity(), isRefreshToken,
+                () -> getToken(Objects.requireNonNull(getClientId()), Objects.requireNonNull(getClientSecret()),
+                        Objects.requireNonNull(getUsername()), Objects.requireNonNull(getPassword())));
     }
 }
@@ -0,0 +1,266 @@
+package org.kangspace.oauth2.helper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.concurrent.CircuitBreaker;
+import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+import org.kangspace.oauth2.helper.token.TokenResponse;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Token加载 <br>
+ * 缓存中token不存在或需刷新时, 同一token存储key同一时刻仅有一个调用方请求token服务器, 其余调用方等待并共享该结果 <br>
+ * 请求token服务器受{@link CircuitBreaker}保护, token服务不可用时快速失败 <br>
+ * 新token按{@link TokenEnvelope}(扣除安全余量后的绝对过期时间)写入存储, 存储过期时间早于token服务器过期时间
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+final class TokenLoader {
+
+    private TokenLoader() {
+    }
+
+    /**
+     * 获取token
+     *
+     * @param service        OAuth2RequestService
+     * @param identity       token存储唯一标识
+     * @param isRefreshToken 是否刷新token
+     * @param tokenFetcher   从token服务器获取token操作
+     * @param <T>            Token类型
+     * @return token
+     */
+    static <T extends Token> T load(OAuth2RequestService<T> service, String identity, boolean isRefreshToken,
+                                    Supplier<TokenResponse<T>> tokenFetcher) {
+        return load(service, identity, isRefreshToken, 0L, tokenFetcher);
+    }
+
+    /**
+     * 获取token(支持stale-while-revalidate) <br>
+     * token剩余有效时间(至安全余量过期时间)不超过宽限时间时, 直接返回当前token, 同时后台异步获取新token;
+     * 宽限时间在安全余量过期时间之前, 已过期的token不再使用
+     *
+     * @param service                    OAuth2RequestService
+     * @param identity                   token存储唯一标识
+     * @param isRefreshToken             是否刷新token
+     * @param staleWhileRevalidateMillis 宽限时间(毫秒), 不大于0时不启用
+     * @param tokenFetcher               从token服务器获取token操作
+     * @param <T>                        Token类型
+     * @return token
+     */
+    static <T extends Token> T load(OAuth2RequestService<T> service, String identity, boolean isRefreshToken,
+                                    long staleWhileRevalidateMillis, Supplier<TokenResponse<T>> tokenFetcher) {
+        TokenStorage<T> tokenStorage = service.getTokenStorage();
+        T token;
+        if (!isRefreshToken && staleWhileRevalidateMillis > 0) {
+            TokenEnvelope<T> envelope = tokenStorage.getEnvelope(identity);
+            token = envelope == null ? null : envelope.getToken();
+            if (envelope != null && envelope.remainingTtl().toMillis() <= staleWhileRevalidateMillis) {
+                revalidate(service, tokenStorage, identity, token, tokenFetcher);
+            }
+        } else {
+            token = tokenStorage.get(identity);
+        }
+        if (!isRefreshToken && token != null) {
+            return token;
+        }
+        log.debug("cache token not exist or need refresh token, identity: {}, isRefreshToken: {}", identity, isRefreshToken);
+        T staleToken = token;
+        return service.getTokenSingleFlight().execute(tokenStorage.getKey(identity),
+                () -> renew(service, tokenStorage, identity, staleToken, tokenFetcher));
+    }
+
+    /**
+     * 后台异步获取新token, 同一token存储key同一时刻仅执行一次
+     *
+     * @param service      OAuth2RequestService
+     * @param tokenStorage token存储
+     * @param identity     token存储唯一标识
+     * @param staleToken   当前token
+     * @param tokenFetcher 从token服务器获取token操作
+     * @param <T>          Token类型
+     */
+    private static <T extends Token> void revalidate(OAuth2RequestService<T> service, TokenStorage<T> tokenStorage,
+                                                     String identity, T staleToken,
+                                                     Supplier<TokenResponse<T>> tokenFetcher) {
+        String key = tokenStorage.getKey(identity);
+        if (service.getTokenSingleFlight().isInFlight(key)) {
+            return;
+        }
+        log.debug("token in stale-while-revalidate window, revalidate in background, identity: {}", identity);
+        service.getTokenSingleFlight()
+                .executeAsync(key, () -> renew(service, tokenStorage, identity, staleToken, tokenFetcher),
+                        service.getTokenRefreshExecutor())
+                .whenComplete((token, e) -> {
+                    if (e != null) {
+                        log.error("revalidate token error, identity: {}, error: {}", identity, e.getMessage(), e);
+                    }
+                });
+    }
+
+    /**
+     * 获取新token(在合并请求内执行)
+     *
+     * @param service      OAuth2RequestService
+     * @param tokenStorage token存储
+     * @param identity     token存储唯一标识
+     * @param staleToken   调用方获取到的旧token
+     * @param tokenFetcher 从token服务器获取token操作
+     * @param <T>          Token类型
+     * @return token
+     */
+    private static <T extends Token> T renew(OAuth2RequestService<T> service, TokenStorage<T> tokenStorage,
+                                             String identity, T staleToken, Supplier<TokenResponse<T>> tokenFetcher) {
+        // 本地缓存可能滞后于共享存储, 刷新前先失效
+        tokenStorage.invalidate(identity);
+        // 等待期间token可能已被其他调用方更新
+        T current = tokenStorage.get(identity);
+        if (isRenewed(current, staleToken)) {
+            log.debug("token already renewed by another caller, identity: {}", identity);
+            return current;
+        }
+        CircuitBreaker circuitBreaker = service.getTokenCircuitBreaker();
+        if (circuitBreaker == null) {
+            return fetchWithRefreshLock(service, tokenStorage, identity, staleToken, tokenFetcher);
+        }
+        // token服务不可用时快速失败, 不再等待请求超时
+        return circuitBreaker.execute(
+                () -> fetchWithRefreshLock(service, tokenStorage, identity, staleToken, tokenFetcher),
+                service::isTokenEndpointFailure);
+    }
+
+    /**
+     * 持有token刷新锁时从token服务器获取token并缓存 <br>
+     * 分布式存储下其他节点持有锁时等待, 获取锁后若token已被其他节点更新则直接使用
+     *
+     * @param service      OAuth2RequestService
+     * @param tokenStorage token存储
+     * @param identity     token存储唯一标识
+     * @param staleToken   调用方获取到的旧token
+     * @param tokenFetcher 从token服务器获取token操作
+     * @param <T>          Token类型
+     * @return token
+     */
+    private static <T extends Token> T fetchWithRefreshLock(OAuth2RequestService<T> service, TokenStorage<T> tokenStorage,
+                                                            String identity, T staleToken,
+                                                            Supplier<TokenResponse<T>> tokenFetcher) {
+        boolean locked = tokenStorage.tryRefreshLock(identity);
+        if (!locked) {
+            log.warn("acquire token refresh lock timeout, get token from server directly, identity: {}", identity);
+        }
+        try {
+            T current = tokenStorage.get(identity);
+            if (isRenewed(current, staleToken)) {
+                log.debug("token already renewed by another node, identity: {}", identity);
+                return current;
+            }
+            // 以发起请求的时间作为获取时间, 计入网络耗时
+            long issuedAtMillis = System.currentTimeMillis();
+            TokenResponse<T> tokenResponse = fetch(service, tokenStorage, identity, current, tokenFetcher);
+            if (tokenResponse == null) {
+                return current;
+            }
+            log.debug("get token from server success, cache token, identity: {}", identity);
+            T newToken = tokenResponse.getToken();
+            tokenStorage.setEnvelope(identity,
+                    TokenEnvelope.of(newToken, issuedAtMillis, service.getTokenExpiryMarginSeconds()));
+            return newToken;
+        } finally {
+            if (locked) {
+                tokenStorage.releaseRefreshLock(identity);
+            }
+        }
+    }
+
+    /**
+     * 从token服务器获取token, 指定useRefreshToken时优先使用刷新token(当前token已过期时使用存储保留的刷新token)
+     *
+     * @param service      OAuth2RequestService
+     * @param tokenStorage token存储
+     * @param identity     token存储唯一标识
+     * @param current      当前缓存的token
+     * @param tokenFetcher 从token服务器获取token操作
+     * @param <T>          Token类型
+     * @return TokenResponse
+     */
+    private static <T extends Token> TokenResponse<T> fetch(OAuth2RequestService<T> service, TokenStorage<T> tokenStorage,
+                                                            String identity, T current,
+                                                            Supplier<TokenResponse<T>> tokenFetcher) {
+        TokenResponse<T> tokenResponse = null;
+        String refreshToken = null;
+        if (service.useRefreshToken()) {
+            refreshToken = current != null && current.getRefreshToken() != null ? current.getRefreshToken()
+                    : tokenStorage.getRefreshToken(identity);
+        }
+        if (refreshToken != null) {
+            log.debug("specific useRefreshToken, identity: {}, refreshToken: {}", identity, refreshToken);
+            try {
+                tokenResponse = service.refreshToken(refreshToken,
+                        Objects.requireNonNull(service.getClientId()), Objects.requireNonNull(service.getClientSecret()));
+            } catch (UnsupportedOperationException e) {
+                log.debug("refreshToken is not supported, identity: {}", identity);
+            } catch (Exception e) {
+                log.error("specific useRefreshToken exception, error: {}", e.getMessage(), e);
+            }
+        }
+        if (tokenResponse == null) {
+            log.debug("get token from server, identity: {}", identity);
+            tokenResponse = tokenFetcher.get();
+        }
+        return tokenResponse;
+    }
+
+    /**
+     * 当前token是否已被其他调用方更新
+     *
+     * @param current    当前缓存的token
+     * @param staleToken 调用方获取到的旧token
+     * @param <T>        Token类型
+     * @return 是否已更新
+     */
+    private static <T extends Token> boolean isRenewed(T current, T staleToken) {
+        return current != null
+                && (staleToken == null || !Objects.equals(current.getAccessToken(), staleToken.getAccessToken()));
+    }
+
+    /**
+     * 创建默认token刷新线程池(守护线程, 有界队列)
+     *
+     * @return token刷新线程池
+     */
+    static ExecutorService newTokenRefreshExecutor() {
+        return newExecutor("oauth2-token-revalidate-", 2, 256);
+    }
+
+    /**
+     * 创建默认异步获取token线程池(守护线程, 有界队列) <br>
+     * 线程在请求token服务器期间阻塞, 线程数多于后台刷新线程池, 且与其分开, 后台刷新积压时不影响异步请求获取token
+     *
+     * @return 异步获取token线程池
+     */
+    static ExecutorService newTokenLoadExecutor() {
+        return newExecutor("oauth2-token-load-", 8, 1024);
+    }
+
+    private static ExecutorService newExecutor(String namePrefix, int threads, int queueCapacity) {
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, namePrefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
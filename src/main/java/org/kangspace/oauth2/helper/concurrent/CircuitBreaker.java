@@ -0,0 +1,367 @@
+package org.kangspace.oauth2.helper.concurrent;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.exception.TokenEndpointUnavailableException;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 熔断器 <br>
+ * 连续失败次数达到阈值后打开, 打开期间调用直接抛出{@link TokenEndpointUnavailableException}(缓存最近一次失败), 不再等待超时;
+ * 打开时间结束后进入半开状态, 仅允许一个探测请求: 成功则关闭, 失败则重新打开并加倍打开时间(不超过最大打开时间) <br>
+ * 状态变更通过{@link StateListener}通知 <br>
+ * 共享熔断器({@link #shared(String)})数量超过{@link #SHARED_SWEEP_THRESHOLD}时, 创建新熔断器前清理空闲的关闭状态熔断器
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class CircuitBreaker {
+    /**
+     * 默认连续失败阈值
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * 默认打开时间(毫秒)
+     */
+    public static final long DEFAULT_OPEN_MILLIS = 10_000L;
+
+    /**
+     * 默认最大打开时间(毫秒)
+     */
+    public static final long DEFAULT_MAX_OPEN_MILLIS = 120_000L;
+
+    /**
+     * 共享熔断器数量清理阈值
+     */
+    public static final int SHARED_SWEEP_THRESHOLD = 256;
+
+    /**
+     * 共享熔断器空闲清理时间(毫秒), 关闭状态且超过该时间未使用的共享熔断器被清理
+     */
+    public static final long SHARED_IDLE_MILLIS = 600_000L;
+
+    /**
+     * 共享熔断器, 按名称区分
+     */
+    private static final ConcurrentMap<String, CircuitBreaker> SHARED = new ConcurrentHashMap<>();
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        /**
+         * 关闭: 正常调用
+         */
+        CLOSED,
+        /**
+         * 打开: 快速失败
+         */
+        OPEN,
+        /**
+         * 半开: 仅允许一个探测请求
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * 状态变更监听器
+     */
+    @FunctionalInterface
+    public interface StateListener {
+        /**
+         * 状态变更
+         *
+         * @param circuitBreaker 熔断器
+         * @param from           变更前状态
+         * @param to             变更后状态
+         */
+        void onStateTransition(CircuitBreaker circuitBreaker, State from, State to);
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long maxOpenMillis;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final List<StateListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * 打开状态截止时间(毫秒时间戳)
+     */
+    private volatile long openUntilMillis;
+    /**
+     * 当前打开时间(毫秒), 半开探测失败时加倍
+     */
+    private volatile long currentOpenMillis;
+    /**
+     * 最近一次失败
+     */
+    private volatile Throwable lastFailure;
+    /**
+     * 最近一次使用时间(毫秒时间戳), 用于清理空闲的共享熔断器
+     */
+    private volatile long lastAccessMillis = System.currentTimeMillis();
+
+    public CircuitBreaker(@NonNull String name) {
+        this(name, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS, DEFAULT_MAX_OPEN_MILLIS);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param name             熔断器名称
+     * @param failureThreshold 连续失败阈值
+     * @param openMillis       打开时间(毫秒)
+     * @param maxOpenMillis    最大打开时间(毫秒)
+     */
+    public CircuitBreaker(@NonNull String name, int failureThreshold, long openMillis, long maxOpenMillis) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be greater than 0");
+        }
+        if (openMillis <= 0 || maxOpenMillis < openMillis) {
+            throw new IllegalArgumentException("openMillis must be greater than 0 and not greater than maxOpenMillis");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.maxOpenMillis = maxOpenMillis;
+        this.currentOpenMillis = openMillis;
+    }
+
+    /**
+     * 获取共享熔断器, 同一名称返回同一实例 <br>
+     * 空闲的关闭状态熔断器可能被清理, 再次获取时重新创建
+     *
+     * @param name 熔断器名称
+     * @return 熔断器
+     */
+    public static CircuitBreaker shared(@NonNull String name) {
+        CircuitBreaker circuitBreaker = SHARED.get(name);
+        if (circuitBreaker == null) {
+            if (SHARED.size() >= SHARED_SWEEP_THRESHOLD) {
+                evictIdleShared(SHARED_IDLE_MILLIS);
+            }
+            circuitBreaker = SHARED.computeIfAbsent(name, CircuitBreaker::new);
+        }
+        circuitBreaker.lastAccessMillis = System.currentTimeMillis();
+        return circuitBreaker;
+    }
+
+    /**
+     * 移除共享熔断器
+     *
+     * @param name 熔断器名称
+     * @return 被移除的熔断器, 不存在时为null
+     */
+    public static CircuitBreaker removeShared(@NonNull String name) {
+        return SHARED.remove(name);
+    }
+
+    /**
+     * 清理空闲的关闭状态共享熔断器
+     *
+     * @param idleMillis 空闲时间(毫秒)
+     * @return 清理数量
+     */
+    static int evictIdleShared(long idleMillis) {
+        long idleBefore = System.currentTimeMillis() - idleMillis;
+        int evicted = 0;
+        for (CircuitBreaker circuitBreaker : SHARED.values()) {
+            if (circuitBreaker.isIdle(idleBefore) && SHARED.remove(circuitBreaker.name, circuitBreaker)) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("CircuitBreaker: evict idle shared circuit breakers, evicted: {}, size: {}", evicted,
+                    SHARED.size());
+        }
+        return evicted;
+    }
+
+    private boolean isIdle(long idleBefore) {
+        return state.get() == State.CLOSED && consecutiveFailures.get() == 0 && lastAccessMillis <= idleBefore;
+    }
+
+    /**
+     * 在熔断器保护下执行操作
+     *
+     * @param supplier 操作
+     * @param <V>      结果类型
+     * @return 操作结果
+     * @throws TokenEndpointUnavailableException 熔断器打开时
+     */
+    public <V> V execute(@Nonnull Supplier<V> supplier) {
+        return execute(supplier, e -> true);
+    }
+
+    /**
+     * 在熔断器保护下执行操作
+     *
+     * @param supplier  操作
+     * @param isFailure 异常是否计为失败, 不计为失败的异常(如凭证被拒绝, 服务本身可用)按成功处理
+     * @param <V>       结果类型
+     * @return 操作结果
+     * @throws TokenEndpointUnavailableException 熔断器打开时
+     */
+    public <V> V execute(@Nonnull Supplier<V> supplier, @Nonnull Predicate<Throwable> isFailure) {
+        lastAccessMillis = System.currentTimeMillis();
+        boolean probe = acquirePermission();
+        try {
+            V value = supplier.get();
+            onSuccess();
+            return value;
+        } catch (RuntimeException | Error e) {
+            if (isFailure.test(e)) {
+                onFailure(e, probe);
+            } else {
+                onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 获取调用许可
+     *
+     * @return 是否为半开状态下的探测请求
+     */
+    private boolean acquirePermission() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return false;
+        }
+        long remaining = openUntilMillis - System.currentTimeMillis();
+        if (current == State.OPEN && remaining <= 0 && transition(State.OPEN, State.HALF_OPEN)) {
+            log.info("CircuitBreaker: send probe request, name: {}", name);
+            return true;
+        }
+        throw new TokenEndpointUnavailableException(name, Math.max(0L, remaining), lastFailure);
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.get() == State.HALF_OPEN) {
+            currentOpenMillis = openMillis;
+            transition(State.HALF_OPEN, State.CLOSED);
+        }
+    }
+
+    private void onFailure(Throwable e, boolean probe) {
+        lastFailure = e;
+        if (probe) {
+            currentOpenMillis = Math.min(currentOpenMillis * 2, maxOpenMillis);
+            open(State.HALF_OPEN);
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(State.CLOSED);
+        }
+    }
+
+    private void open(State from) {
+        openUntilMillis = System.currentTimeMillis() + currentOpenMillis;
+        if (transition(from, State.OPEN)) {
+            log.warn("CircuitBreaker: open for {}ms, name: {}, error: {}", currentOpenMillis, name,
+                    lastFailure == null ? null : lastFailure.getMessage());
+        }
+    }
+
+    /**
+     * 状态变更, 成功时通知监听器
+     *
+     * @param from 变更前状态
+     * @param to   变更后状态
+     * @return 是否变更成功
+     */
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        log.info("CircuitBreaker: state transition, name: {}, {} -> {}", name, from, to);
+        for (StateListener listener : listeners) {
+            try {
+                listener.onStateTransition(this, from, to);
+            } catch (Exception e) {
+                log.error("CircuitBreaker: state listener error, name: {}, error: {}", name, e.getMessage(), e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 重置为关闭状态
+     */
+    public void reset() {
+        consecutiveFailures.set(0);
+        currentOpenMillis = openMillis;
+        State current = state.get();
+        if (current != State.CLOSED) {
+            transition(current, State.CLOSED);
+        }
+    }
+
+    /**
+     * 添加状态变更监听器
+     *
+     * @param listener 监听器
+     */
+    public void addListener(@NonNull StateListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 移除状态变更监听器
+     *
+     * @param listener 监听器
+     */
+    public void removeListener(@NonNull StateListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 获取熔断器名称
+     *
+     * @return 熔断器名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取当前状态
+     *
+     * @return 当前状态
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * 获取连续失败次数
+     *
+     * @return 连续失败次数
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * 获取最近一次失败
+     *
+     * @return 最近一次失败, 无失败时为null
+     */
+    public Throwable getLastFailure() {
+        return lastFailure;
+    }
+}
@@ -0,0 +1,110 @@
+package org.kangspace.oauth2.helper.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 延迟统计 <br>
+ * 保留最近固定数量的延迟样本(环形数组, 无锁记录), 按百分位计算延迟; 排序快照每记录一定数量样本后重新生成, 读取时无需每次排序
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public class LatencyRecorder {
+    /**
+     * 默认样本数
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 1024;
+
+    /**
+     * 重新生成排序快照的间隔(样本数)
+     */
+    private static final int SNAPSHOT_INTERVAL = 32;
+
+    private final AtomicLongArray samples;
+    /**
+     * 已记录的样本总数, 同时作为环形数组的写入位置
+     */
+    private final AtomicLong recorded = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public LatencyRecorder() {
+        this(DEFAULT_SAMPLE_SIZE);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param sampleSize 样本数
+     */
+    public LatencyRecorder(int sampleSize) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("sampleSize must be greater than 0");
+        }
+        this.samples = new AtomicLongArray(sampleSize);
+    }
+
+    /**
+     * 记录一次延迟
+     *
+     * @param millis 延迟(毫秒)
+     */
+    public void record(long millis) {
+        // 占位与写入之间读取到的是该位置的旧样本, 仅影响统计精度
+        long position = recorded.getAndIncrement();
+        samples.lazySet((int) (position % samples.length()), millis);
+    }
+
+    /**
+     * 获取延迟百分位
+     *
+     * @param percentile 百分位, 如0.95
+     * @return 延迟(毫秒), 无样本时返回-1
+     */
+    public long percentile(double percentile) {
+        long total = recorded.get();
+        if (total == 0) {
+            return -1L;
+        }
+        Snapshot current = snapshot;
+        if (current == null || total - current.recorded >= SNAPSHOT_INTERVAL) {
+            // 并发读取时可能重复生成快照, 结果一致
+            long[] sorted = new long[(int) Math.min(total, samples.length())];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            current = new Snapshot(sorted, total);
+            snapshot = current;
+        }
+        long[] sorted = current.sorted;
+        int i = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))];
+    }
+
+    /**
+     * 获取样本数
+     *
+     * @return 样本数
+     */
+    public int getSampleCount() {
+        return (int) Math.min(recorded.get(), samples.length());
+    }
+
+    /**
+     * 排序快照
+     */
+    private static final class Snapshot {
+        private final long[] sorted;
+        /**
+         * 生成快照时已记录的样本总数
+         */
+        private final long recorded;
+
+        private Snapshot(long[] sorted, long recorded) {
+            this.sorted = sorted;
+            this.recorded = recorded;
+        }
+    }
+}
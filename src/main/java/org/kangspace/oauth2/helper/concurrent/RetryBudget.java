@@ -0,0 +1,137 @@
+package org.kangspace.oauth2.helper.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 重试预算 <br>
+ * 按滑动时间窗口(按秒分桶, 无锁)统计请求数及重试数, 窗口内重试数不超过: 请求数 * 比例 + 每秒最少重试数 * 窗口秒数;
+ * 上游故障时限制重试放大的流量
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public class RetryBudget {
+    /**
+     * 默认重试比例
+     */
+    public static final double DEFAULT_RATIO = 0.2D;
+
+    /**
+     * 默认每秒最少重试数(请求量较少时仍允许重试)
+     */
+    public static final int DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+
+    /**
+     * 默认窗口秒数
+     */
+    public static final int DEFAULT_WINDOW_SECONDS = 10;
+
+    private final double ratio;
+    private final int minRetriesPerSecond;
+    private final int windowSeconds;
+    private final long startSecond = System.currentTimeMillis() / 1000;
+    /**
+     * 按秒分桶的请求数, 分桶高32位为所属秒(相对创建时间), 低32位为计数; 通过CAS更新, 不加锁
+     */
+    private final AtomicLongArray requests;
+    /**
+     * 按秒分桶的重试数, 格式同{@link #requests}
+     */
+    private final AtomicLongArray retries;
+
+    public RetryBudget() {
+        this(DEFAULT_RATIO, DEFAULT_MIN_RETRIES_PER_SECOND, DEFAULT_WINDOW_SECONDS);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param ratio               重试比例(重试数/请求数)
+     * @param minRetriesPerSecond 每秒最少重试数
+     * @param windowSeconds       窗口秒数
+     */
+    public RetryBudget(double ratio, int minRetriesPerSecond, int windowSeconds) {
+        if (ratio < 0 || minRetriesPerSecond < 0) {
+            throw new IllegalArgumentException("ratio and minRetriesPerSecond must not be negative");
+        }
+        if (windowSeconds <= 0) {
+            throw new IllegalArgumentException("windowSeconds must be greater than 0");
+        }
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.windowSeconds = windowSeconds;
+        this.requests = new AtomicLongArray(windowSeconds);
+        this.retries = new AtomicLongArray(windowSeconds);
+    }
+
+    /**
+     * 记录一次请求(不含重试)
+     */
+    public void onRequest() {
+        increment(requests, currentSecond());
+    }
+
+    /**
+     * 尝试获取一次重试, 获取成功时记录该重试 <br>
+     * 判断与记录之间不加锁, 并发获取时重试数可能略微超出预算
+     *
+     * @return 是否允许重试
+     */
+    public boolean tryAcquireRetry() {
+        long now = currentSecond();
+        if (sum(retries, now) >= sum(requests, now) * ratio + (long) minRetriesPerSecond * windowSeconds) {
+            return false;
+        }
+        increment(retries, now);
+        return true;
+    }
+
+    /**
+     * 窗口内请求数
+     *
+     * @return 请求数
+     */
+    public long getRequestCount() {
+        return sum(requests, currentSecond());
+    }
+
+    /**
+     * 窗口内重试数
+     *
+     * @return 重试数
+     */
+    public long getRetryCount() {
+        return sum(retries, currentSecond());
+    }
+
+    private long currentSecond() {
+        return Math.max(0L, System.currentTimeMillis() / 1000 - startSecond);
+    }
+
+    /**
+     * 当前秒的分桶计数加1, 分桶属于过期的秒时重新计数
+     *
+     * @param buckets 分桶
+     * @param second  当前秒
+     */
+    private void increment(AtomicLongArray buckets, long second) {
+        int index = (int) (second % windowSeconds);
+        long bucket;
+        long next;
+        do {
+            bucket = buckets.get(index);
+            next = bucket >>> 32 < second ? second << 32 | 1L : bucket + 1;
+        } while (!buckets.compareAndSet(index, bucket, next));
+    }
+
+    private long sum(AtomicLongArray buckets, long now) {
+        long sum = 0;
+        for (int i = 0; i < windowSeconds; i++) {
+            long bucket = buckets.get(i);
+            if (now - (bucket >>> 32) < windowSeconds) {
+                sum += bucket & 0xFFFFFFFFL;
+            }
+        }
+        return sum;
+    }
+}
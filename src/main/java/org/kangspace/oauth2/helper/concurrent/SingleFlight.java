@@ -0,0 +1,207 @@
+package org.kangspace.oauth2.helper.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.exception.OAuth2HelperException;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并(Single-Flight) <br>
+ * 同一key同一时刻仅有一个调用方执行加载操作, 其余并发调用方等待并共享该次执行结果(包括异常)
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class SingleFlight {
+    /**
+     * 执行中的请求
+     */
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 实际执行次数
+     */
+    private final LongAdder executions = new LongAdder();
+
+    /**
+     * 被合并(等待其他调用方结果)的调用次数
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * 执行加载操作, 同一key并发调用时仅执行一次
+     *
+     * @param key    合并key
+     * @param loader 加载操作
+     * @param <V>    结果类型
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(@Nonnull String key, @Nonnull Supplier<V> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            log.debug("SingleFlight: join in-flight call, key: {}", key);
+            return (V) await(existing);
+        }
+        executions.increment();
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 异步执行加载操作, 同一key并发调用(含同步调用)时仅执行一次 <br>
+     * 各调用方获得独立的结果, 取消或完成其中一个不影响其他调用方
+     *
+     * @param key      合并key
+     * @param loader   加载操作
+     * @param executor 执行加载操作的线程池
+     * @param <V>      结果类型
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CompletableFuture<V> executeAsync(@Nonnull String key, @Nonnull Supplier<V> loader,
+                                                 @Nonnull Executor executor) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            log.debug("SingleFlight: join in-flight call, key: {}", key);
+            return existing.thenApply(value -> (V) value);
+        }
+        executions.increment();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(loader.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future.thenApply(value -> (V) value);
+    }
+
+    /**
+     * 执行异步加载操作, 同一key并发调用时仅执行一次 <br>
+     * 各调用方获得独立的结果, 取消其中一个不影响其他调用方
+     *
+     * @param key    合并key
+     * @param loader 异步加载操作
+     * @param <V>    结果类型
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CompletableFuture<V> executeAsync(@Nonnull String key, @Nonnull Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            log.debug("SingleFlight: join in-flight call, key: {}", key);
+            return existing.thenApply(value -> (V) value);
+        }
+        executions.increment();
+        try {
+            loader.get().whenComplete((value, e) -> {
+                inFlight.remove(key, future);
+                if (e != null) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(value);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future.thenApply(value -> (V) value);
+    }
+
+    /**
+     * 等待执行中的请求结果
+     *
+     * @param future 执行中的请求
+     * @return 执行结果
+     */
+    private Object await(CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OAuth2HelperException("等待合并请求结果被中断", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * 还原加载操作抛出的异常
+     *
+     * @param cause 异常
+     * @return RuntimeException
+     */
+    static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new OAuth2HelperException("合并请求执行异常, error: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * 指定key是否有执行中的请求
+     *
+     * @param key 合并key
+     * @return 是否执行中
+     */
+    public boolean isInFlight(@Nonnull String key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * 获取实际执行次数
+     *
+     * @return 实际执行次数
+     */
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    /**
+     * 获取被合并的调用次数
+     *
+     * @return 被合并的调用次数
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,30 @@
+package org.kangspace.oauth2.helper.exception;
+
+import lombok.Getter;
+
+/**
+ * Token服务不可用异常 <br>
+ * token获取熔断器处于打开状态(或半开状态下已有探测请求)时快速失败抛出, 不再请求token服务器
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Getter
+public class TokenEndpointUnavailableException extends OAuth2HelperException {
+    /**
+     * 熔断器名称
+     */
+    private final String circuitName;
+
+    /**
+     * 距允许下次探测请求的时间(毫秒)
+     */
+    private final long retryAfterMillis;
+
+    public TokenEndpointUnavailableException(String circuitName, long retryAfterMillis, Throwable lastFailure) {
+        super("Token服务不可用: 熔断器已打开, circuit: " + circuitName + ", retryAfterMillis: " + retryAfterMillis
+                + (lastFailure == null ? "" : ", 最近一次错误: " + lastFailure.getMessage()), lastFailure);
+        this.circuitName = circuitName;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
@@ -16,12 +16,55 @@ import org.apache.http.HttpRequest;
 @EqualsAndHashCode(callSuper = true)
 public class UnOKResponseException extends OAuth2HelperException {
     private final int code;
+    /**
+     * 请求方法
+     */
+    private final String method;
+    /**
+     * 请求URL
+     */
+    private final String url;
+    /**
+     * Apache HttpClient请求, 仅通过{@link #UnOKResponseException(int, HttpRequest, String)}创建时有值
+     *
+     * @deprecated 使用{@link #getMethod()}, {@link #getUrl()}
+     */
+    @Deprecated
     private final HttpRequest request;
     private final String response;
 
+    /**
+     * 构造方法
+     *
+     * @param code     状态码
+     * @param method   请求方法
+     * @param url      请求URL
+     * @param response 响应信息
+     * @since 0.0.2
+     */
+    public UnOKResponseException(int code, String method, String url, String response) {
+        super("请求异常: 非200/201响应, 状态码: " + code + ", 响应信息: " + response);
+        this.code = code;
+        this.method = method;
+        this.url = url;
+        this.request = null;
+        this.response = response;
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param code     状态码
+     * @param request  Apache HttpClient请求
+     * @param response 响应信息
+     * @deprecated 使用{@link #UnOKResponseException(int, String, String, String)}
+     */
+    @Deprecated
     public UnOKResponseException(int code, HttpRequest request, String response) {
         super("请求异常: 非200/201响应, 状态码: " + code + ", 响应信息: " + response);
         this.code = code;
+        this.method = request != null ? request.getRequestLine().getMethod() : null;
+        this.url = request != null ? request.getRequestLine().getUri() : null;
         this.request = request;
         this.response = response;
     }
@@ -30,7 +73,8 @@ public class UnOKResponseException extends OAuth2HelperException {
     public String toString() {
         return "UnOKResponseException{" +
                 "code=" + code +
-                ", request=" + request +
+                ", method=" + method +
+                ", url=" + url +
                 ", response='" + response + '\'' +
                 '}';
     }
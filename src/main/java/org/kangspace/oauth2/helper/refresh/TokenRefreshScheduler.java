@@ -0,0 +1,234 @@
+package org.kangspace.oauth2.helper.refresh;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.OAuth2RequestService;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token提前刷新调度器 <br>
+ * 在token过期前(默认有效时长的80%, 并附加随机抖动)后台刷新token, 请求线程无需等待token服务器 <br>
+ * 通过{@link OAuth2RequestService#getToken(boolean)}刷新, 适用于所有TokenStorage实现
+ *
+ * <pre>
+ * TokenRefreshScheduler&lt;WeChatToken&gt; scheduler = new TokenRefreshScheduler&lt;&gt;(weChatClientCredentialsService);
+ * scheduler.start();
+ * ...
+ * scheduler.stop();
+ * </pre>
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class TokenRefreshScheduler<T extends Token> implements Closeable {
+    /**
+     * 默认刷新时间点(有效时长的比例)
+     */
+    public static final double DEFAULT_REFRESH_FACTOR = 0.8;
+
+    /**
+     * 默认随机抖动比例(刷新间隔的比例)
+     */
+    public static final double DEFAULT_JITTER_FACTOR = 0.05;
+
+    /**
+     * 默认刷新失败重试间隔(秒)
+     */
+    public static final long DEFAULT_RETRY_DELAY_SECONDS = 30L;
+
+    /**
+     * 最小刷新间隔(毫秒)
+     */
+    private static final long MIN_DELAY_MILLIS = 1000L;
+
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+    private final OAuth2RequestService<T> oAuth2RequestService;
+    private final double refreshFactor;
+    private final double jitterFactor;
+    private final long retryDelaySeconds;
+    private volatile ScheduledExecutorService executor;
+    /**
+     * 是否为内部创建的线程池, 内部创建时stop时关闭, 再次start时重新创建
+     */
+    private final boolean internalExecutor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    /**
+     * 调度代数, 每次start递增, 避免stop前仍在执行的刷新任务在重新start后继续调度
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile ScheduledFuture<?> scheduledFuture;
+    /**
+     * 上次调度时的accessToken, 用于判断token是否已被其他调用方更新
+     */
+    private volatile String scheduledAccessToken;
+
+    public TokenRefreshScheduler(@NonNull OAuth2RequestService<T> oAuth2RequestService) {
+        this(oAuth2RequestService, DEFAULT_REFRESH_FACTOR, DEFAULT_JITTER_FACTOR);
+    }
+
+    public TokenRefreshScheduler(@NonNull OAuth2RequestService<T> oAuth2RequestService, double refreshFactor,
+                                 double jitterFactor) {
+        this(oAuth2RequestService, refreshFactor, jitterFactor, DEFAULT_RETRY_DELAY_SECONDS, null);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param oAuth2RequestService OAuth2RequestService
+     * @param refreshFactor        刷新时间点(有效时长的比例), 取值(0, 1)
+     * @param jitterFactor         随机抖动比例, 取值[0, 1)
+     * @param retryDelaySeconds    刷新失败重试间隔(秒)
+     * @param executor             调度线程池, 为null时使用内部单线程调度器
+     */
+    public TokenRefreshScheduler(@NonNull OAuth2RequestService<T> oAuth2RequestService, double refreshFactor,
+                                 double jitterFactor, long retryDelaySeconds, ScheduledExecutorService executor) {
+        if (refreshFactor <= 0 || refreshFactor >= 1) {
+            throw new IllegalArgumentException("refreshFactor must be in (0, 1)");
+        }
+        if (jitterFactor < 0 || jitterFactor >= 1) {
+            throw new IllegalArgumentException("jitterFactor must be in [0, 1)");
+        }
+        this.oAuth2RequestService = oAuth2RequestService;
+        this.refreshFactor = refreshFactor;
+        this.jitterFactor = jitterFactor;
+        this.retryDelaySeconds = retryDelaySeconds;
+        this.internalExecutor = executor == null;
+        this.executor = executor != null ? executor : newInternalExecutor();
+    }
+
+    private static ScheduledExecutorService newInternalExecutor() {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "oauth2-token-refresh-" + THREAD_INDEX.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 启动调度, 立即加载一次token并按其过期时间安排下次刷新 <br>
+     * stop后可再次start, 内部线程池已关闭时重新创建
+     */
+    public synchronized void start() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        if (internalExecutor && executor.isShutdown()) {
+            executor = newInternalExecutor();
+        }
+        scheduledAccessToken = null;
+        log.info("TokenRefreshScheduler start, clientId: {}", oAuth2RequestService.getClientId());
+        schedule(0L, generation.incrementAndGet());
+    }
+
+    /**
+     * 停止调度
+     */
+    public synchronized void stop() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        ScheduledFuture<?> future = scheduledFuture;
+        if (future != null) {
+            future.cancel(false);
+        }
+        if (internalExecutor) {
+            executor.shutdownNow();
+        }
+        log.info("TokenRefreshScheduler stopped, clientId: {}", oAuth2RequestService.getClientId());
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * 是否运行中
+     *
+     * @return 是否运行中
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * 安排下次刷新
+     *
+     * @param delayMillis 延迟(毫秒)
+     * @param gen         调度代数
+     */
+    private synchronized void schedule(long delayMillis, int gen) {
+        if (!isCurrent(gen)) {
+            return;
+        }
+        scheduledFuture = executor.schedule(() -> refresh(gen), delayMillis, TimeUnit.MILLISECONDS);
+        log.debug("TokenRefreshScheduler: next refresh in {}ms, clientId: {}", delayMillis,
+                oAuth2RequestService.getClientId());
+    }
+
+    /**
+     * 刷新token <br>
+     * 缓存中的token仍为上次调度时的token时强制刷新, 已被其他调用方更新时仅按新token重新安排
+     *
+     * @param gen 调度代数
+     */
+    private void refresh(int gen) {
+        if (!isCurrent(gen)) {
+            return;
+        }
+        try {
+            String identity = oAuth2RequestService.getTokenIdentity();
+            T cached = oAuth2RequestService.getTokenStorage().get(identity);
+            boolean forceRefresh = scheduledAccessToken != null && cached != null
+                    && Objects.equals(cached.getAccessToken(), scheduledAccessToken);
+            T token = oAuth2RequestService.getToken(forceRefresh);
+            if (token == null || token.getExpiresIn() == null) {
+                log.warn("TokenRefreshScheduler: token or expiresIn is null, retry in {}s, identity: {}",
+                        retryDelaySeconds, identity);
+                schedule(TimeUnit.SECONDS.toMillis(retryDelaySeconds), gen);
+                return;
+            }
+            // 按存储中记录的获取时间计算, 避免将其他节点较早获取的token当作刚获取的token
+            TokenEnvelope<T> envelope = oAuth2RequestService.getTokenStorage().getEnvelope(identity);
+            if (envelope == null || !Objects.equals(envelope.getToken().getAccessToken(), token.getAccessToken())) {
+                envelope = TokenEnvelope.of(token, System.currentTimeMillis(), 0L);
+            }
+            scheduledAccessToken = token.getAccessToken();
+            schedule(nextDelayMillis(envelope), gen);
+        } catch (Exception e) {
+            log.error("TokenRefreshScheduler: refresh token error, retry in {}s, error: {}", retryDelaySeconds,
+                    e.getMessage(), e);
+            schedule(TimeUnit.SECONDS.toMillis(retryDelaySeconds), gen);
+        }
+    }
+
+    private boolean isCurrent(int gen) {
+        return running.get() && generation.get() == gen;
+    }
+
+    /**
+     * 计算下次刷新延迟: 获取时间 + 有效时长 * refreshFactor ± 抖动
+     *
+     * @param envelope Token信封
+     * @return 延迟(毫秒)
+     */
+    long nextDelayMillis(TokenEnvelope<T> envelope) {
+        double base = envelope.getLifetimeMillis() * refreshFactor;
+        double jitter = base * jitterFactor * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        long refreshAtMillis = envelope.getIssuedAtMillis() + (long) (base + jitter);
+        return Math.max(MIN_DELAY_MILLIS, refreshAtMillis - System.currentTimeMillis());
+    }
+}
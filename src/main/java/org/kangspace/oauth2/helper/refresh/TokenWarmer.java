@@ -0,0 +1,286 @@
+package org.kangspace.oauth2.helper.refresh;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.OAuth2RequestService;
+import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.storage.local.TokenSnapshotFile;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Token预热 <br>
+ * 启动时并行加载指定Service的token, 全部加载完成后才视为就绪(可用于就绪探针); 指定快照文件时优先使用快照中仍有效的token, 无需请求token服务器;
+ * 关闭时将当前token写入快照文件, 供下次启动使用 <br>
+ * 预热使用独立线程池(默认), 同时加载的Service数不超过并行度, 不占用token后台刷新线程池; 指定线程池拒绝任务时在当前线程加载
+ *
+ * <pre>
+ * TokenWarmer warmer = new TokenWarmer(services, new TokenSnapshotFile(Paths.get("/data/oauth2-token.snapshot")));
+ * warmer.warmUp();
+ * warmer.awaitReady(30, TimeUnit.SECONDS);
+ * ...
+ * warmer.close();
+ * </pre>
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class TokenWarmer implements Closeable {
+    /**
+     * 默认并行度
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private final List<OAuth2RequestService<? extends Token>> services;
+    private final TokenSnapshotFile snapshotFile;
+    private final Executor executor;
+    private final int parallelism;
+    /**
+     * 是否为内部创建的线程池, 关闭时一并关闭
+     */
+    private final boolean ownExecutor;
+    /**
+     * 预热失败的token存储key - 异常
+     */
+    private final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+    private volatile CompletableFuture<Void> warmUpFuture;
+
+    public TokenWarmer(@NonNull List<? extends OAuth2RequestService<? extends Token>> services) {
+        this(services, null);
+    }
+
+    public TokenWarmer(@NonNull List<? extends OAuth2RequestService<? extends Token>> services,
+                       TokenSnapshotFile snapshotFile) {
+        this(services, snapshotFile, newWarmUpExecutor(DEFAULT_PARALLELISM), DEFAULT_PARALLELISM, true);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param services     需预热的Service
+     * @param snapshotFile 快照文件, 为null时不使用快照
+     * @param executor     加载token的线程池, 同时提交的任务数不超过{@link #DEFAULT_PARALLELISM}
+     */
+    public TokenWarmer(@NonNull List<? extends OAuth2RequestService<? extends Token>> services,
+                       TokenSnapshotFile snapshotFile, @NonNull Executor executor) {
+        this(services, snapshotFile, executor, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param services     需预热的Service
+     * @param snapshotFile 快照文件, 为null时不使用快照
+     * @param executor     加载token的线程池
+     * @param parallelism  并行度: 同时提交到线程池的任务数
+     */
+    public TokenWarmer(@NonNull List<? extends OAuth2RequestService<? extends Token>> services,
+                       TokenSnapshotFile snapshotFile, @NonNull Executor executor, int parallelism) {
+        this(services, snapshotFile, executor, parallelism, false);
+    }
+
+    private TokenWarmer(List<? extends OAuth2RequestService<? extends Token>> services,
+                        TokenSnapshotFile snapshotFile, Executor executor, int parallelism, boolean ownExecutor) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be greater than 0");
+        }
+        this.services = new ArrayList<>(services);
+        this.snapshotFile = snapshotFile;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * 创建预热线程池(守护线程), 空闲后回收线程
+     *
+     * @param parallelism 线程数
+     * @return 预热线程池
+     */
+    private static ExecutorService newWarmUpExecutor(int parallelism) {
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 30L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "oauth2-token-warmer-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 开始预热(异步), 重复调用返回同一结果
+     *
+     * @return 预热结果, 所有token加载完成后完成(加载失败不影响完成, 见{@link #getFailures()})
+     */
+    public synchronized CompletableFuture<Void> warmUp() {
+        if (warmUpFuture != null) {
+            return warmUpFuture;
+        }
+        Map<String, TokenEnvelope<Token>> snapshot = snapshotFile == null ? Collections.emptyMap()
+                : snapshotFile.load();
+        // 每个worker依次加载队列中的Service, 同时提交到线程池的任务数不超过并行度
+        Queue<OAuth2RequestService<? extends Token>> queue = new ConcurrentLinkedQueue<>(services);
+        int workers = Math.min(parallelism, services.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(warmUpNext(queue, snapshot));
+        }
+        warmUpFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .whenComplete((v, e) -> log.info("TokenWarmer: warm up finished, services: {}, failures: {}",
+                        services.size(), failures.keySet()));
+        return warmUpFuture;
+    }
+
+    /**
+     * 加载队列中的下一个Service, 完成后继续加载, 队列为空时完成; 线程池拒绝时在当前线程加载
+     *
+     * @param queue    待加载的Service
+     * @param snapshot 快照
+     * @return 加载结果
+     */
+    private CompletableFuture<Void> warmUpNext(Queue<OAuth2RequestService<? extends Token>> queue,
+                                               Map<String, TokenEnvelope<Token>> snapshot) {
+        OAuth2RequestService<? extends Token> service;
+        while ((service = queue.poll()) != null) {
+            OAuth2RequestService<? extends Token> current = service;
+            try {
+                return CompletableFuture.runAsync(() -> warmUp(current, snapshot), executor)
+                        .thenCompose(v -> warmUpNext(queue, snapshot));
+            } catch (RejectedExecutionException e) {
+                log.warn("TokenWarmer: executor rejected, warm up in current thread, clientId: {}",
+                        current.getClientId());
+                warmUp(current, snapshot);
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * 预热单个Service: 快照中存在有效token时写入token存储, 否则获取token
+     *
+     * @param service  Service
+     * @param snapshot 快照
+     * @param <T>      Token类型
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Token> void warmUp(OAuth2RequestService<T> service, Map<String, TokenEnvelope<Token>> snapshot) {
+        String identity = service.getTokenIdentity();
+        TokenStorage<T> tokenStorage = service.getTokenStorage();
+        String key = tokenStorage.getKey(identity);
+        try {
+            TokenEnvelope<Token> envelope = snapshot.get(key);
+            if (envelope != null && !envelope.isExpired() && tokenStorage.get(identity) == null) {
+                tokenStorage.setEnvelope(identity, (TokenEnvelope<T>) (TokenEnvelope<?>) envelope);
+                log.debug("TokenWarmer: load token from snapshot, key: {}", key);
+                return;
+            }
+            service.getToken(false);
+            log.debug("TokenWarmer: load token, key: {}", key);
+        } catch (Exception e) {
+            failures.put(key, e);
+            log.error("TokenWarmer: warm up token error, key: {}, error: {}", key, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 等待预热完成
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 是否就绪: 预热已完成且所有token加载成功
+     */
+    public boolean awaitReady(long timeout, @NonNull TimeUnit unit) {
+        CompletableFuture<Void> future = warmUp();
+        try {
+            future.get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (TimeoutException e) {
+            log.warn("TokenWarmer: wait for warm up timeout, timeout: {} {}", timeout, unit);
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+        return isReady();
+    }
+
+    /**
+     * 是否就绪: 预热已完成且所有token加载成功
+     *
+     * @return 是否就绪
+     */
+    public boolean isReady() {
+        CompletableFuture<Void> future = warmUpFuture;
+        return future != null && future.isDone() && !future.isCompletedExceptionally() && failures.isEmpty();
+    }
+
+    /**
+     * 获取预热失败的token存储key及异常
+     *
+     * @return token存储key - 异常
+     */
+    public Map<String, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * 将当前仍有效的token写入快照文件, 未指定快照文件时无操作
+     */
+    public void saveSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        Map<String, TokenEnvelope<? extends Token>> envelopes = new LinkedHashMap<>();
+        for (OAuth2RequestService<? extends Token> service : services) {
+            try {
+                TokenStorage<? extends Token> tokenStorage = service.getTokenStorage();
+                String identity = service.getTokenIdentity();
+                TokenEnvelope<? extends Token> envelope = tokenStorage.getEnvelope(identity);
+                if (envelope != null) {
+                    envelopes.put(tokenStorage.getKey(identity), envelope);
+                }
+            } catch (Exception e) {
+                log.warn("TokenWarmer: get token for snapshot error, clientId: {}, error: {}", service.getClientId(),
+                        e.getMessage());
+            }
+        }
+        snapshotFile.save(envelopes);
+    }
+
+    /**
+     * 关闭时写入快照文件, 并关闭内部创建的线程池
+     */
+    @Override
+    public void close() {
+        try {
+            saveSnapshot();
+        } finally {
+            if (ownExecutor) {
+                ((ExecutorService) executor).shutdown();
+            }
+        }
+    }
+}
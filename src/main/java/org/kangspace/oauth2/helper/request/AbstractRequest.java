@@ -1,27 +1,44 @@
 package org.kangspace.oauth2.helper.request;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpHeaders;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.*;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.kangspace.devhelper.CollectionUtil;
-import org.kangspace.devhelper.json.JsonParser;
 import org.kangspace.oauth2.helper.OAuth2RequestService;
 import org.kangspace.oauth2.helper.exception.UnOKResponseException;
 import org.kangspace.oauth2.helper.exception.UnSucceedResponseException;
 import org.kangspace.oauth2.helper.exception.UnauthorizedException;
 import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.transport.ApacheHttpTransport;
+import org.kangspace.oauth2.helper.transport.HttpTransport;
+import org.kangspace.oauth2.helper.transport.HttpTransportRequest;
+import org.kangspace.oauth2.helper.transport.HttpTransportResponse;
+import org.kangspace.oauth2.helper.transport.RequestBody;
+import org.kangspace.oauth2.helper.transport.StreamingJsonParser;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 /**
  * 抽象Request请求实现
@@ -32,6 +49,11 @@ import java.util.Objects;
 @Data
 @Slf4j
 public abstract class AbstractRequest<Req, Resp extends Response, T extends Token> implements Request<Req, Resp, T> {
+    /**
+     * 请求体类型, 与Apache HttpClient StringEntity默认类型一致
+     */
+    private static final String TEXT_PLAIN_UTF8 = "text/plain; charset=UTF-8";
+
     /**
      * 请求的URL
      */
@@ -62,6 +84,50 @@ public abstract class AbstractRequest<Req, Resp extends Response, T extends Toke
      */
     private HttpClient httpClient;
 
+    /**
+     * 异步请求Client, 为null时使用{@link OAuth2RequestService#getHttpAsyncClient()}
+     */
+    private HttpAsyncClient httpAsyncClient;
+
+    /**
+     * HTTP传输层, 为null时使用{@link OAuth2RequestService#getHttpTransport()}
+     */
+    private HttpTransport httpTransport;
+
+    /**
+     * POST/PUT请求体是否序列化一次并缓存, 为null时使用{@link OAuth2RequestService#isBufferRequestBody()}
+     */
+    private Boolean bufferRequestBody;
+
+    /**
+     * 已创建的请求体, 重试时复用
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private RequestBody httpRequestBody;
+
+    /**
+     * 重试策略, 为null时使用{@link OAuth2RequestService#getRetryPolicy()}
+     */
+    private RetryPolicy retryPolicy;
+
+    /**
+     * 对冲策略, 为null时使用{@link OAuth2RequestService#getHedgePolicy()}
+     */
+    private HedgePolicy hedgePolicy;
+
+    /**
+     * 是否合并相同的并发GET请求, 为null时使用{@link OAuth2RequestService#isCoalesceRequests()}
+     */
+    private Boolean coalesce;
+
+    /**
+     * GET响应缓存, 为null时使用{@link OAuth2RequestService#getResponseCache()}
+     */
+    private ResponseCache responseCache;
+
     /**
      * 是否需要Token
      */
@@ -127,6 +193,21 @@ public abstract class AbstractRequest<Req, Resp extends Response, T extends Toke
      * @param request 请求
      * @param token   令牌
      */
+    public void tokenSet4Request(HttpTransportRequest request, String token) {
+        boolean isSet = getOAuth2RequestService().tokenSet4Request(request, token);
+        if (!isSet) {
+            request.setHeader(HttpHeaders.AUTHORIZATION, BEARER_HEADER_PREFIX + token);
+        }
+    }
+
+    /**
+     * 设置请求时的Token
+     *
+     * @param request 请求
+     * @param token   令牌
+     * @deprecated 使用{@link #tokenSet4Request(HttpTransportRequest, String)}
+     */
+    @Deprecated
     public void tokenSet4Request(HttpRequestBase request, String token) {
         boolean isSet = getOAuth2RequestService().tokenSet4Request(request, token);
         if (!isSet) {
@@ -136,8 +217,48 @@ public abstract class AbstractRequest<Req, Resp extends Response, T extends Toke
         }
     }
 
+    @Override
+    public HttpAsyncClient getHttpAsyncClient() {
+        return httpAsyncClient != null ? httpAsyncClient : getOAuth2RequestService().getHttpAsyncClient();
+    }
+
+    /**
+     * 获取HTTP传输层 <br>
+     * 未指定时使用{@link OAuth2RequestService#getHttpTransport()}; 请求指定了与Service不同的HttpClient时, 使用该HttpClient发送请求
+     *
+     * @return HTTP传输层
+     */
+    @Override
+    public HttpTransport getHttpTransport() {
+        if (httpTransport != null) {
+            return httpTransport;
+        }
+        OAuth2RequestService<T> service = getOAuth2RequestService();
+        if (httpClient != null && httpClient != service.getHttpClient()) {
+            return new ApacheHttpTransport(httpClient, this::getHttpAsyncClient);
+        }
+        return service.getHttpTransport();
+    }
+
+    /**
+     * 执行请求, 开启请求合并时相同的并发GET请求仅执行一次
+     *
+     * @return 响应结果
+     */
     @Override
     public Resp execute() {
+        if (isCoalesced()) {
+            return getOAuth2RequestService().getRequestSingleFlight().execute(getRequestKey(), this::executeOnce);
+        }
+        return executeOnce();
+    }
+
+    /**
+     * 执行请求, Token失效时刷新Token并重新请求一次
+     *
+     * @return 响应结果
+     */
+    private Resp executeOnce() {
         log.debug("request execute: request: {}", this);
         boolean refreshToken = false;
         Resp response = null;
@@ -152,62 +273,449 @@ public abstract class AbstractRequest<Req, Resp extends Response, T extends Toke
             response = doExecute(true);
         }
         if (response != null && !response.isSucceed()) {
-            throw new UnSucceedResponseException(JsonParser.toJsonString(response));
+            throw new UnSucceedResponseException(StreamingJsonParser.toJsonString(response));
         }
         return response;
     }
 
     @Override
     public Resp doExecute(boolean isRefreshToken) {
+        HttpTransportRequest request = createRequest();
+        ResponseCache.Entry cached = lookupCache(request, isRefreshToken);
+        if (cached != null && cached.isFresh()) {
+            return parseCached(request, cached);
+        }
+        // 请求头Token处理
+        if (needToken) {
+            tokenSet4Request(request, getOAuth2RequestService().getToken(isRefreshToken).getAccessToken());
+        }
+        // 仅debug日志需要时序列化请求体
+        if (log.isDebugEnabled()) {
+            log.debug("request doExecute: send request begin, url: {}, content: {}", url,
+                    StreamingJsonParser.toJsonString(requestBody));
+        }
+        try (HttpTransportResponse response = executeWithRetry(request)) {
+            return readResponse(request, response, cached);
+        } catch (IOException e) {
+            throw new RuntimeException("请求异常, error:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按{@link #getRetryPolicy()}发送请求, 请求异常或响应状态码可重试时等待后重试
+     *
+     * @param request 请求
+     * @return 响应
+     * @throws IOException 请求异常(已不可重试)
+     */
+    private HttpTransportResponse executeWithRetry(HttpTransportRequest request) throws IOException {
+        RetryPolicy policy = getRetryPolicy();
+        HedgePolicy hedgePolicy = getHedgePolicy();
+        boolean hedged = hedgePolicy.isHedgeable(request.getMethod());
+        policy.onRequest();
+        for (int attempt = 1; ; attempt++) {
+            long delay;
+            try {
+                HttpTransportResponse response = hedged ? hedgePolicy.executeSync(getHttpTransport(), request)
+                        : getHttpTransport().execute(request);
+                delay = policy.nextDelayMillis(request.getMethod(), attempt, response.getStatusCode(),
+                        response.getHeader(HttpHeaders.RETRY_AFTER));
+                if (delay < 0) {
+                    return response;
+                }
+                log.info("request doExecute: retry after {}ms, url: {}, attempt: {}, status: {}", delay, url,
+                        attempt, response.getStatusCode());
+                response.close();
+            } catch (IOException e) {
+                delay = policy.nextDelayMillis(request.getMethod(), attempt, e);
+                if (delay < 0) {
+                    throw e;
+                }
+                log.info("request doExecute: retry after {}ms, url: {}, attempt: {}, error: {}", delay, url, attempt,
+                        e.toString());
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("请求重试等待被中断, url: " + url);
+            }
+        }
+    }
+
+    /**
+     * 是否合并请求: 仅GET请求, 未指定时使用{@link OAuth2RequestService#isCoalesceRequests()}
+     *
+     * @return 是否合并请求
+     */
+    protected boolean isCoalesced() {
+        if (!HttpMethod.GET.equals(httpMethod)) {
+            return false;
+        }
+        return coalesce != null ? coalesce : getOAuth2RequestService().isCoalesceRequests();
+    }
+
+    /**
+     * 获取请求key(用于请求合并及响应缓存): 请求方法、URL、响应类、请求头指纹(按名称排序, 名称不区分大小写),
+     * 需要Token时包含token存储唯一标识, 不同客户端/用户的请求不会被合并或共享缓存
+     *
+     * @return 请求key
+     */
+    protected String getRequestKey() {
+        StringBuilder key = new StringBuilder(httpMethod.name()).append(' ').append(url)
+                .append("\nresponse: ").append(responseClass.getName());
+        if (needToken) {
+            key.append("\ntoken: ").append(getOAuth2RequestService().getTokenIdentity());
+        }
+        if (CollectionUtil.isNotEmpty(httpHeaders)) {
+            Map<String, String> headers = new TreeMap<>();
+            httpHeaders.forEach((name, value) -> headers.put(name.toLowerCase(Locale.ROOT), value));
+            headers.forEach((name, value) -> key.append('\n').append(name).append(": ").append(value));
+        }
+        return key.toString();
+    }
+
+    /**
+     * 获取GET响应缓存, 未指定时使用{@link OAuth2RequestService#getResponseCache()}
+     *
+     * @return GET响应缓存, 未开启时返回null
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache != null ? responseCache : getOAuth2RequestService().getResponseCache();
+    }
+
+    /**
+     * 获取对冲策略, 未指定时使用{@link OAuth2RequestService#getHedgePolicy()}
+     *
+     * @return 对冲策略
+     */
+    public HedgePolicy getHedgePolicy() {
+        return hedgePolicy != null ? hedgePolicy : getOAuth2RequestService().getHedgePolicy();
+    }
+
+    /**
+     * 获取重试策略, 未指定时使用{@link OAuth2RequestService#getRetryPolicy()}
+     *
+     * @return 重试策略
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy != null ? retryPolicy : getOAuth2RequestService().getRetryPolicy();
+    }
+
+    /**
+     * 异步执行请求, Token失效时刷新Token并重新请求一次(同{@link #execute()})
+     *
+     * @return 响应结果
+     */
+    @Override
+    public CompletableFuture<Resp> executeAsync() {
+        if (isCoalesced()) {
+            return getOAuth2RequestService().getRequestSingleFlight().executeAsync(getRequestKey(),
+                    this::executeAsyncOnce);
+        }
+        return executeAsyncOnce();
+    }
+
+    private CompletableFuture<Resp> executeAsyncOnce() {
+        log.debug("request executeAsync: request: {}", this);
+        return doExecuteAsync(false).handle((response, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause != null && !(cause instanceof UnauthorizedException)) {
+                return AbstractRequest.<Resp>failed(cause);
+            }
+            // Token过期, 刷新token重新请求
+            if (cause != null || response != null && response.isInvalidToken()) {
+                log.info("request executeAsync: token invalid, refresh token and retry");
+                return doExecuteAsync(true);
+            }
+            return CompletableFuture.completedFuture(response);
+        }).thenCompose(Function.identity()).thenApply(response -> {
+            if (response != null && !response.isSucceed()) {
+                throw new UnSucceedResponseException(StreamingJsonParser.toJsonString(response));
+            }
+            return response;
+        });
+    }
+
+    /**
+     * 异步执行请求具体操作 <br>
+     * Token通过{@link OAuth2RequestService#getTokenAsync(boolean)}获取, 需要请求token服务器时在
+     * {@link OAuth2RequestService#getTokenLoadExecutor()}中执行, 不阻塞调用线程
+     *
+     * @param isRefreshToken 是否刷新Token
+     * @return 响应结果
+     */
+    @Override
+    public CompletableFuture<Resp> doExecuteAsync(boolean isRefreshToken) {
+        try {
+            HttpTransportRequest request = createRequest();
+            ResponseCache.Entry cached = lookupCache(request, isRefreshToken);
+            if (cached != null && cached.isFresh()) {
+                return CompletableFuture.completedFuture(parseCached(request, cached));
+            }
+            if (!needToken) {
+                return send(request, cached);
+            }
+            return getOAuth2RequestService().getTokenAsync(isRefreshToken).thenCompose(token -> {
+                tokenSet4Request(request, token.getAccessToken());
+                return send(request, cached);
+            });
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+    }
+
+    /**
+     * 创建请求(不含Token)
+     *
+     * @return 请求
+     */
+    protected HttpTransportRequest createRequest() {
         String uri = getUrl();
         HttpMethod method = getHttpMethod();
         Map<String, String> headers = getHttpHeaders();
         log.debug("request doExecute: url: {}, method: {}, httpHeader: {}, requestBody: {}, responseClass: {}", uri,
                 method, headers, getRequestBody(), getResponseClass());
 
-        HttpRequestBase request;
-
-        if (HttpMethod.GET.equals(method)) {
-            request = new HttpGet(uri);
-        } else if (HttpMethod.POST.equals(method) || HttpMethod.PUT.equals(method)) {
-            if (HttpMethod.POST.equals(method)) {
-                request = new HttpPost(uri);
-            } else {
-                request = new HttpPut(uri);
-            }
-            if (Objects.nonNull(requestBody)) {
-                // 请求体赋值
-                ((HttpEntityEnclosingRequestBase) request)
-                        .setEntity(new StringEntity(JsonParser.toJsonString(requestBody), StandardCharsets.UTF_8));
-            }
-        } else {
-            throw new UnsupportedOperationException("不支持的请求方法");
+        HttpTransportRequest request = new HttpTransportRequest(method, uri);
+        if ((HttpMethod.POST.equals(method) || HttpMethod.PUT.equals(method)) && Objects.nonNull(requestBody)) {
+            // 请求体赋值
+            request.setBody(getHttpRequestBody());
         }
         // 请求头赋值
         if (CollectionUtil.isNotEmpty(headers)) {
-            headers.forEach(request::addHeader);
+            headers.forEach(request::setHeader);
         }
-        // 请求头Token处理
-        if (needToken) {
-            tokenSet4Request(request, getOAuth2RequestService().getToken(isRefreshToken).getAccessToken());
+        return request;
+    }
+
+    /**
+     * 获取请求体, 同一请求多次发送(如Token失效重试)时复用 <br>
+     * 缓存模式下仅序列化一次; 否则每次发送时直接序列化至连接输出流
+     *
+     * @return 请求体
+     */
+    protected RequestBody getHttpRequestBody() {
+        RequestBody body = httpRequestBody;
+        if (body == null) {
+            boolean buffered = bufferRequestBody != null ? bufferRequestBody
+                    : getOAuth2RequestService().isBufferRequestBody();
+            body = buffered ? RequestBody.bufferedJson(requestBody, TEXT_PLAIN_UTF8)
+                    : RequestBody.json(requestBody, TEXT_PLAIN_UTF8);
+            httpRequestBody = body;
+        }
+        return body;
+    }
+
+    /**
+     * 设置请求对象, 同时清除已创建的请求体
+     *
+     * @param requestBody 请求对象
+     */
+    public void setRequestBody(Req requestBody) {
+        this.requestBody = requestBody;
+        this.httpRequestBody = null;
+    }
+
+    /**
+     * 解析响应 <br>
+     * 成功响应直接从响应体流解析, 不生成中间字符串; 仅在异常或开启debug日志时读取为字符串
+     *
+     * @param request  请求
+     * @param response 响应, 由调用方关闭
+     * @return 响应结果
+     * @throws IOException 读取响应体异常
+     */
+    protected Resp parseResponse(HttpTransportRequest request, HttpTransportResponse response) throws IOException {
+        int statusCode = response.getStatusCode();
+        if (statusCode == HttpStatus.SC_UNAUTHORIZED) {
+            throw new UnauthorizedException("请求异常: 状态码: " + statusCode + ", 错误信息: "
+                    + response.getBodyAsString());
         }
+        if (statusCode != HttpStatus.SC_OK && statusCode != HttpStatus.SC_CREATED) {
+            throw new UnOKResponseException(statusCode, request.getMethod().name(), request.getUrl(),
+                    response.getBodyAsString());
+        }
+        if (log.isDebugEnabled()) {
+            byte[] responseBody = IOUtils.toByteArray(response.getBody());
+            log.debug("request doExecute: send request success, uri: {}, responseBody: {}", request.getUrl(),
+                    new String(responseBody, StandardCharsets.UTF_8));
+            return StreamingJsonParser.parse(new ByteArrayInputStream(responseBody), responseClass);
+        }
+        return StreamingJsonParser.parse(response.getBody(), responseClass);
+    }
+
+    /**
+     * 读取GET响应缓存: 新鲜条目直接使用; 过期但可重新验证的条目, 在请求中添加If-None-Match/If-Modified-Since <br>
+     * 刷新Token重新请求时不读取缓存, 避免再次返回Token失效前的响应
+     *
+     * @param request        请求
+     * @param isRefreshToken 是否刷新Token
+     * @return 新鲜或待重新验证的条目, 无可用条目、刷新Token或未开启缓存时返回null
+     */
+    private ResponseCache.Entry lookupCache(HttpTransportRequest request, boolean isRefreshToken) {
+        ResponseCache cache = HttpMethod.GET.equals(httpMethod) && !isRefreshToken ? getResponseCache() : null;
+        ResponseCache.Entry cached = cache != null ? cache.get(getRequestKey()) : null;
+        if (cached == null) {
+            return null;
+        }
+        if (cached.isFresh()) {
+            cache.recordHit();
+            log.debug("request: response cache hit, url: {}", url);
+            return cached;
+        }
+        if (!cached.isRevalidatable()) {
+            return null;
+        }
+        if (cached.getEtag() != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, cached.getEtag());
+        }
+        if (cached.getLastModified() != null) {
+            request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+        }
+        return cached;
+    }
+
+    /**
+     * 读取响应: 304时使用重新验证的缓存条目; 可缓存的200响应仅业务成功且Token有效时写入缓存; 其余同{@link #parseResponse} <br>
+     * 响应Token失效时删除缓存条目
+     *
+     * @param request  请求
+     * @param response 响应, 由调用方关闭
+     * @param cached   重新验证的缓存条目, 可为null
+     * @return 响应结果
+     * @throws IOException 读取响应体异常
+     */
+    private Resp readResponse(HttpTransportRequest request, HttpTransportResponse response,
+                              ResponseCache.Entry cached) throws IOException {
+        ResponseCache cache = HttpMethod.GET.equals(httpMethod) ? getResponseCache() : null;
+        if (cache == null) {
+            return parseResponse(request, response);
+        }
+        if (cached != null && response.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+            cache.recordRevalidation();
+            log.debug("request: response cache revalidated, url: {}", url);
+            return parseCached(request, cache.revalidate(getRequestKey(), cached, response));
+        }
+        cache.recordMiss();
+        Resp resp;
         try {
-            log.debug("request doExecute: send request begin, url: {}, content: {}", uri,
-                    JsonParser.toJsonString(requestBody));
-            HttpResponse response = getHttpClient().execute(request);
-            int statusCode = response.getStatusLine().getStatusCode();
-            InputStream bodyStream = response.getEntity().getContent();
-            String responseBody = IOUtils.toString(bodyStream, StandardCharsets.UTF_8);
-            if (statusCode == HttpStatus.SC_UNAUTHORIZED) {
-                throw new UnauthorizedException("请求异常: 状态码: " + statusCode + ", 错误信息: " + responseBody);
+            if (response.getStatusCode() != HttpStatus.SC_OK || !cache.isCacheable(response)) {
+                resp = parseResponse(request, response);
+            } else {
+                byte[] body = IOUtils.toByteArray(response.getBody());
+                resp = parseResponse(request, new HttpTransportResponse(response.getStatusCode(),
+                        response.getHeaders(), new ByteArrayInputStream(body)));
+                if (resp != null && resp.isSucceed() && !resp.isInvalidToken()) {
+                    cache.put(getRequestKey(), response, body);
+                }
             }
-            if (statusCode != HttpStatus.SC_OK && statusCode != HttpStatus.SC_CREATED) {
-                throw new UnOKResponseException(statusCode, request, responseBody);
+        } catch (UnauthorizedException e) {
+            cache.remove(getRequestKey());
+            throw e;
+        }
+        if (resp != null && resp.isInvalidToken()) {
+            cache.remove(getRequestKey());
+        }
+        return resp;
+    }
+
+    /**
+     * 解析缓存的响应体, 每次解码为新的响应对象
+     *
+     * @param request 请求
+     * @param cached  缓存条目
+     * @return 响应结果
+     */
+    private Resp parseCached(HttpTransportRequest request, ResponseCache.Entry cached) {
+        try {
+            return parseResponse(request, new HttpTransportResponse(HttpStatus.SC_OK, Collections.emptyMap(),
+                    new ByteArrayInputStream(cached.getBody())));
+        } catch (IOException e) {
+            throw new RuntimeException("解析缓存响应异常, error:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 通过HTTP传输层异步发送请求, 按{@link #getRetryPolicy()}延迟重试; 取消返回结果时中止请求
+     *
+     * @param request 请求
+     * @param cached  重新验证的缓存条目, 可为null
+     * @return 响应结果
+     */
+    private CompletableFuture<Resp> send(HttpTransportRequest request, ResponseCache.Entry cached) {
+        // 仅debug日志需要时序列化请求体
+        if (log.isDebugEnabled()) {
+            log.debug("request doExecuteAsync: send request begin, url: {}, content: {}", url,
+                    StreamingJsonParser.toJsonString(requestBody));
+        }
+        CompletableFuture<Resp> future = new CompletableFuture<>();
+        RetryPolicy policy = getRetryPolicy();
+        policy.onRequest();
+        send(request, cached, policy, 1, future);
+        return future;
+    }
+
+    private void send(HttpTransportRequest request, ResponseCache.Entry cached, RetryPolicy policy, int attempt,
+                      CompletableFuture<Resp> future) {
+        if (future.isDone()) {
+            return;
+        }
+        HedgePolicy hedgePolicy = getHedgePolicy();
+        CompletableFuture<HttpTransportResponse> exchange = hedgePolicy.isHedgeable(request.getMethod())
+                ? hedgePolicy.execute(getHttpTransport(), request) : getHttpTransport().executeAsync(request);
+        future.whenComplete((response, e) -> {
+            if (future.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        exchange.whenComplete((response, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof CancellationException) {
+                    future.cancel(false);
+                    return;
+                }
+                long delay = policy.nextDelayMillis(request.getMethod(), attempt, cause);
+                if (delay >= 0) {
+                    log.info("request doExecuteAsync: retry after {}ms, url: {}, attempt: {}, error: {}", delay, url,
+                            attempt, cause.toString());
+                    RequestScheduler.schedule(() -> send(request, cached, policy, attempt + 1, future), delay);
+                    return;
+                }
+                future.completeExceptionally(new RuntimeException("请求异常, error:" + cause.getMessage(), cause));
+                return;
+            }
+            long delay = policy.nextDelayMillis(request.getMethod(), attempt, response.getStatusCode(),
+                    response.getHeader(HttpHeaders.RETRY_AFTER));
+            if (delay >= 0) {
+                log.info("request doExecuteAsync: retry after {}ms, url: {}, attempt: {}, status: {}", delay, url,
+                        attempt, response.getStatusCode());
+                closeQuietly(response);
+                RequestScheduler.schedule(() -> send(request, cached, policy, attempt + 1, future), delay);
+                return;
+            }
+            try (HttpTransportResponse r = response) {
+                future.complete(readResponse(request, r, cached));
+            } catch (IOException ex) {
+                future.completeExceptionally(new RuntimeException("请求异常, error:" + ex.getMessage(), ex));
+            } catch (RuntimeException ex) {
+                future.completeExceptionally(ex);
             }
-            log.debug("request doExecute: send request success, uri: {}, responseBody: {}", uri, responseBody);
-            return JsonParser.parse(responseBody, responseClass);
+        });
+    }
+
+    private static void closeQuietly(HttpTransportResponse response) {
+        try {
+            response.close();
         } catch (IOException e) {
-            throw new RuntimeException("请求异常, error:" + e.getMessage(), e);
+            log.debug("request: close response error: {}", e.getMessage());
         }
     }
+
+    private static <V> CompletableFuture<V> failed(Throwable e) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
 }
@@ -0,0 +1,446 @@
+package org.kangspace.oauth2.helper.request;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.concurrent.LatencyRecorder;
+import org.kangspace.oauth2.helper.concurrent.RetryBudget;
+import org.kangspace.oauth2.helper.transport.HttpTransport;
+import org.kangspace.oauth2.helper.transport.HttpTransportRequest;
+import org.kangspace.oauth2.helper.transport.HttpTransportResponse;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 请求对冲策略(Hedged Request)
+ *
+ * <pre>
+ * 1. 仅对冲幂等方法(默认GET); 同步请求通过{@link HttpTransport#execute(HttpTransportRequest, CompletionStage)}(同步HttpClient及其连接池)发送,
+ *    首次请求在调用线程中执行, 对冲请求在有界的对冲线程池中执行, 线程池已满时不对冲; 异步请求通过{@link HttpTransport#executeAsync(HttpTransportRequest)}发送
+ * 2. 首次请求超过对冲延迟仍未响应时, 发送第二次请求, 先返回的响应生效, 另一请求被中止
+ * 3. 对冲延迟: 指定固定延迟时使用固定延迟; 否则使用已观测响应延迟的百分位(默认p95), 样本不足时不对冲
+ * 4. 对冲次数受{@link RetryBudget}限制(默认不超过请求数的5%), 避免上游整体变慢时对冲放大流量
+ * </pre>
+ * 策略配置不可变, 配置方法返回新策略(共享当前策略的对冲预算, 使用独立的延迟统计), {@link #NONE}可安全共享
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Getter
+@ToString
+@Slf4j
+public final class HedgePolicy {
+    public static final double DEFAULT_PERCENTILE = 0.95D;
+    public static final int DEFAULT_MIN_SAMPLES = 20;
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 10L;
+    public static final double DEFAULT_MAX_HEDGE_RATIO = 0.05D;
+
+    /**
+     * 不对冲
+     */
+    public static final HedgePolicy NONE = new HedgePolicy().methods();
+
+    /**
+     * 固定对冲延迟(毫秒), 小于0时按响应延迟百分位计算
+     */
+    private final long delayMillis;
+
+    /**
+     * 对冲延迟的响应延迟百分位
+     */
+    private final double percentile;
+
+    /**
+     * 按百分位计算对冲延迟所需的最少样本数
+     */
+    private final int minSamples;
+
+    /**
+     * 最小对冲延迟(毫秒)
+     */
+    private final long minDelayMillis;
+
+    /**
+     * 可对冲的方法
+     */
+    private final Set<HttpMethod> hedgeableMethods;
+
+    /**
+     * 对冲预算
+     */
+    private final RetryBudget budget;
+
+    /**
+     * 响应延迟统计
+     */
+    @ToString.Exclude
+    private final LatencyRecorder latencies = new LatencyRecorder();
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final LongAdder requests = new LongAdder();
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final LongAdder hedges = new LongAdder();
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private final LongAdder hedgesWon = new LongAdder();
+
+    /**
+     * 默认策略: 对冲GET请求, 按响应延迟p95计算对冲延迟, 使用独立的对冲预算
+     */
+    public HedgePolicy() {
+        this(-1L, DEFAULT_PERCENTILE, DEFAULT_MIN_SAMPLES, DEFAULT_MIN_DELAY_MILLIS, EnumSet.of(HttpMethod.GET),
+                new RetryBudget(DEFAULT_MAX_HEDGE_RATIO, 0, RetryBudget.DEFAULT_WINDOW_SECONDS));
+    }
+
+    private HedgePolicy(long delayMillis, double percentile, int minSamples, long minDelayMillis,
+                        Set<HttpMethod> hedgeableMethods, RetryBudget budget) {
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile must be in (0, 1]");
+        }
+        if (minSamples <= 0) {
+            throw new IllegalArgumentException("minSamples must be greater than 0");
+        }
+        if (minDelayMillis < 0) {
+            throw new IllegalArgumentException("minDelayMillis must not be negative");
+        }
+        this.delayMillis = delayMillis;
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.minDelayMillis = minDelayMillis;
+        this.hedgeableMethods = Collections.unmodifiableSet(hedgeableMethods);
+        this.budget = budget;
+    }
+
+    /**
+     * 设置可对冲的方法
+     *
+     * @param methods 可对冲的方法, 为空时不对冲
+     * @return 新策略
+     */
+    public HedgePolicy methods(@NonNull HttpMethod... methods) {
+        Set<HttpMethod> hedgeableMethods = EnumSet.noneOf(HttpMethod.class);
+        hedgeableMethods.addAll(Arrays.asList(methods));
+        return new HedgePolicy(delayMillis, percentile, minSamples, minDelayMillis, hedgeableMethods, budget);
+    }
+
+    /**
+     * 设置固定对冲延迟
+     *
+     * @param delayMillis 对冲延迟(毫秒), 小于0时按响应延迟百分位计算
+     * @return 新策略
+     */
+    public HedgePolicy delayMillis(long delayMillis) {
+        return new HedgePolicy(delayMillis, percentile, minSamples, minDelayMillis, hedgeableMethods, budget);
+    }
+
+    /**
+     * 设置对冲延迟的响应延迟百分位
+     *
+     * @param percentile 百分位, (0, 1]
+     * @return 新策略
+     */
+    public HedgePolicy percentile(double percentile) {
+        return new HedgePolicy(delayMillis, percentile, minSamples, minDelayMillis, hedgeableMethods, budget);
+    }
+
+    /**
+     * 设置按百分位计算对冲延迟所需的最少样本数
+     *
+     * @param minSamples 最少样本数
+     * @return 新策略
+     */
+    public HedgePolicy minSamples(int minSamples) {
+        return new HedgePolicy(delayMillis, percentile, minSamples, minDelayMillis, hedgeableMethods, budget);
+    }
+
+    /**
+     * 设置最小对冲延迟
+     *
+     * @param minDelayMillis 最小对冲延迟(毫秒)
+     * @return 新策略
+     */
+    public HedgePolicy minDelayMillis(long minDelayMillis) {
+        return new HedgePolicy(delayMillis, percentile, minSamples, minDelayMillis, hedgeableMethods, budget);
+    }
+
+    /**
+     * 设置对冲预算
+     *
+     * @param budget 对冲预算
+     * @return 新策略
+     */
+    public HedgePolicy budget(@NonNull RetryBudget budget) {
+        return new HedgePolicy(delayMillis, percentile, minSamples, minDelayMillis, hedgeableMethods, budget);
+    }
+
+    /**
+     * 请求方法是否可对冲
+     *
+     * @param method 请求方法
+     * @return 是否可对冲
+     */
+    public boolean isHedgeable(@NonNull HttpMethod method) {
+        return hedgeableMethods.contains(method);
+    }
+
+    /**
+     * 获取当前对冲延迟
+     *
+     * @return 对冲延迟(毫秒), 不对冲时返回-1
+     */
+    public long getHedgeDelayMillis() {
+        if (delayMillis >= 0) {
+            return delayMillis;
+        }
+        if (latencies.getSampleCount() < minSamples) {
+            return -1L;
+        }
+        return Math.max(minDelayMillis, latencies.percentile(percentile));
+    }
+
+    /**
+     * 通过{@link HttpTransport#executeAsync(HttpTransportRequest)}发送请求, 超过对冲延迟未响应时发送对冲请求 <br>
+     * 先返回的响应生效, 另一请求被取消; 两次请求均失败时返回最后一次的异常; 取消返回结果时取消所有请求
+     *
+     * @param transport HTTP传输层
+     * @param request   请求
+     * @return 响应
+     */
+    public CompletableFuture<HttpTransportResponse> execute(@NonNull HttpTransport transport,
+                                                            @NonNull HttpTransportRequest request) {
+        return execute(transport::executeAsync, request);
+    }
+
+    /**
+     * 通过{@link HttpTransport#execute(HttpTransportRequest, CompletionStage)}发送请求(使用同步HttpClient及其连接池), 超过对冲延迟未响应时发送对冲请求 <br>
+     * 首次请求在调用线程中执行, 对冲请求在对冲线程池中执行(线程池已满时不对冲); 先返回的响应生效, 另一请求被中止;
+     * 两次请求均失败时抛出最后一次的异常
+     *
+     * @param transport HTTP传输层
+     * @param request   请求
+     * @return 响应
+     * @throws IOException 请求异常
+     */
+    public HttpTransportResponse executeSync(@NonNull HttpTransport transport, @NonNull HttpTransportRequest request)
+            throws IOException {
+        Exchange exchange = new Exchange(request);
+        long delay = getHedgeDelayMillis();
+        ScheduledFuture<?> timer = delay < 0 ? null : RequestScheduler.schedule(() -> {
+            if (!exchange.tryHedge(delay)) {
+                return;
+            }
+            try {
+                RequestScheduler.executeHedge(() -> {
+                    try {
+                        exchange.onResponse(transport.execute(request, exchange.abortHedge), true);
+                    } catch (IOException | RuntimeException e) {
+                        exchange.onFailure(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.debug("HedgePolicy: hedge executor busy, skip hedged request, url: {}", request.getUrl());
+                exchange.onHedgeSkipped();
+            }
+        }, delay);
+        try {
+            exchange.onResponse(transport.execute(request, exchange.abortPrimary), false);
+        } catch (IOException | RuntimeException e) {
+            exchange.onFailure(e);
+        }
+        try {
+            // 首次请求失败或被中止时等待对冲请求
+            return exchange.result.get();
+        } catch (InterruptedException e) {
+            exchange.result.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待对冲请求响应被中断, url: " + request.getUrl());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("请求异常, error: " + cause.getMessage(), cause);
+        } finally {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+        }
+    }
+
+    private CompletableFuture<HttpTransportResponse> execute(
+            Function<HttpTransportRequest, CompletableFuture<HttpTransportResponse>> sender,
+            HttpTransportRequest request) {
+        Exchange exchange = new Exchange(request);
+        CompletableFuture<HttpTransportResponse> result = exchange.result;
+        AtomicReference<CompletableFuture<HttpTransportResponse>> hedge = new AtomicReference<>();
+        CompletableFuture<HttpTransportResponse> primary = sender.apply(request);
+        exchange.onComplete(primary, false);
+        long delay = getHedgeDelayMillis();
+        ScheduledFuture<?> timer = delay < 0 ? null : RequestScheduler.schedule(() -> {
+            if (!exchange.tryHedge(delay)) {
+                return;
+            }
+            CompletableFuture<HttpTransportResponse> attempt = sender.apply(request);
+            hedge.set(attempt);
+            exchange.onComplete(attempt, true);
+            if (result.isDone()) {
+                attempt.cancel(true);
+            }
+        }, delay);
+        result.whenComplete((response, e) -> {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            primary.cancel(true);
+            CompletableFuture<HttpTransportResponse> attempt = hedge.get();
+            if (attempt != null) {
+                attempt.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static void closeQuietly(HttpTransportResponse response) {
+        try {
+            response.close();
+        } catch (IOException e) {
+            log.debug("HedgePolicy: close response error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一次请求(首次请求及对冲请求)的状态
+     */
+    private final class Exchange {
+        private final HttpTransportRequest request;
+        private final long start = System.nanoTime();
+        private final CompletableFuture<HttpTransportResponse> result = new CompletableFuture<>();
+        /**
+         * 未完成的请求数, 为0时请求均已失败
+         */
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicReference<Throwable> lastFailure = new AtomicReference<>();
+        /**
+         * 同步请求的中止信号, 另一请求先返回时完成
+         */
+        private final CompletableFuture<Void> abortPrimary = new CompletableFuture<>();
+        private final CompletableFuture<Void> abortHedge = new CompletableFuture<>();
+
+        private Exchange(HttpTransportRequest request) {
+            this.request = request;
+            requests.increment();
+            budget.onRequest();
+            // 等待被中断时中止对冲请求
+            result.whenComplete((response, e) -> {
+                if (result.isCancelled()) {
+                    abortHedge.complete(null);
+                }
+            });
+        }
+
+        /**
+         * 是否发送对冲请求: 请求未完成且对冲预算充足
+         */
+        private boolean tryHedge(long delay) {
+            if (result.isDone() || pending.getAndUpdate(n -> n > 0 ? n + 1 : n) == 0) {
+                return false;
+            }
+            if (!budget.tryAcquireRetry()) {
+                log.debug("HedgePolicy: hedge budget exhausted, url: {}", request.getUrl());
+                onHedgeSkipped();
+                return false;
+            }
+            hedges.increment();
+            log.debug("HedgePolicy: send hedged request after {}ms, url: {}", delay, request.getUrl());
+            return true;
+        }
+
+        private void onHedgeSkipped() {
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(lastFailure.get());
+            }
+        }
+
+        private void onComplete(CompletableFuture<HttpTransportResponse> attempt, boolean isHedge) {
+            attempt.whenComplete((response, e) -> {
+                if (e == null) {
+                    onResponse(response, isHedge);
+                } else {
+                    onFailure(e);
+                }
+            });
+        }
+
+        private void onResponse(HttpTransportResponse response, boolean isHedge) {
+            if (!result.complete(response)) {
+                closeQuietly(response);
+                return;
+            }
+            latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (isHedge) {
+                hedgesWon.increment();
+                abortPrimary.complete(null);
+            } else {
+                abortHedge.complete(null);
+            }
+        }
+
+        private void onFailure(Throwable e) {
+            lastFailure.set(e);
+            if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 获取请求数(不含对冲请求)
+     *
+     * @return 请求数
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * 获取对冲请求数
+     *
+     * @return 对冲请求数
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * 获取对冲请求先于首次请求返回的次数
+     *
+     * @return 对冲请求生效次数
+     */
+    public long getHedgeWonCount() {
+        return hedgesWon.sum();
+    }
+}
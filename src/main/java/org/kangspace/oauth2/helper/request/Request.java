@@ -2,10 +2,13 @@ package org.kangspace.oauth2.helper.request;
 
 import org.apache.http.HttpHeaders;
 import org.apache.http.client.HttpClient;
+import org.apache.http.nio.client.HttpAsyncClient;
 import org.kangspace.oauth2.helper.OAuth2RequestService;
 import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.transport.HttpTransport;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 请求接口
@@ -68,6 +71,20 @@ public interface Request<Req, Resp extends Response, T extends Token> {
      */
     HttpClient getHttpClient();
 
+    /**
+     * 获取异步请求客户端
+     *
+     * @return {@link HttpAsyncClient}
+     */
+    HttpAsyncClient getHttpAsyncClient();
+
+    /**
+     * 获取HTTP传输层
+     *
+     * @return {@link HttpTransport}
+     */
+    HttpTransport getHttpTransport();
+
     /**
      * 获取OAuth2Service,用于获取和刷新Token
      *
@@ -89,4 +106,19 @@ public interface Request<Req, Resp extends Response, T extends Token> {
      * @return Resp
      */
     Resp doExecute(boolean refreshToken);
+
+    /**
+     * 异步执行请求
+     *
+     * @return 响应结果
+     */
+    CompletableFuture<Resp> executeAsync();
+
+    /**
+     * 异步执行请求具体操作
+     *
+     * @param refreshToken 是否刷新Token
+     * @return 响应结果
+     */
+    CompletableFuture<Resp> doExecuteAsync(boolean refreshToken);
 }
@@ -1,11 +1,13 @@
 package org.kangspace.oauth2.helper.request;
 
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.kangspace.oauth2.helper.OAuth2RequestService;
 import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.transport.ConnectionPoolConfig;
+import org.kangspace.oauth2.helper.transport.HttpConnectionPool;
 
 import java.util.Map;
 
@@ -17,46 +19,65 @@ import java.util.Map;
  */
 public class RequestFactory {
     /**
-     * 默认最大重试次数
-     */
-    private static final int DEFAULT_MAX_RETRIES = 3;
-
-    /**
-     * 获取HttpClient对象 <br>
+     * 创建HttpClient对象 <br>
+     * 每次调用创建独立的{@link HttpConnectionPool}(含空闲连接回收线程), 调用方应复用返回的HttpClient, 不再使用时close;
+     * 多个OAuth2RequestService可直接使用共享的{@link OAuth2RequestService#getConnectionPool()}
      * <pre>
-     * 基础配置:
-     * 超时时间: 60s
-     * 连接超时时间: 30s
+     * 基础配置(见{@link ConnectionPoolConfig}):
+     * 连接超时时间: 60s
+     * 从连接池获取连接超时时间: 30s
      * 读取超时时间: 60s
      * 最大连接数: 200
      * 每个路由的最大连接数: 20
-     * 重试机制: IOException时 重试3次(不含首次请求)
+     * 空闲连接回收: 空闲30s
+     * 连接保持时间: 服务端Keep-Alive响应头指定的时间, 最长60s
+     * 重试机制: 不自动重试, 由请求的{@link RetryPolicy}处理
      * </pre>
      *
-     * @return HttpClient
+     * @return HttpClient, close时关闭其连接池及回收线程
      */
     public static CloseableHttpClient getHttpClient() {
-        // 创建自定义的RequestConfig
-        RequestConfig config = RequestConfig.custom()
-                .setConnectTimeout(60000)
-                .setConnectionRequestTimeout(30000)
-                .setSocketTimeout(60000)
+        return getConnectionPool(new ConnectionPoolConfig()).getHttpClient();
+    }
+
+    /**
+     * 按配置创建连接池, 通过{@link HttpConnectionPool#getHttpClient()}获取HttpClient,
+     * 通过{@link HttpConnectionPool#getRouteStats()}获取连接池统计 <br>
+     * 每次调用创建新的连接池及回收线程, 不再使用时close
+     *
+     * @param config 连接池配置
+     * @return 连接池
+     */
+    public static HttpConnectionPool getConnectionPool(ConnectionPoolConfig config) {
+        return new HttpConnectionPool(config);
+    }
+
+    /**
+     * 获取异步HttpClient对象(已启动) <br>
+     * 基础配置同{@link #getHttpClient()}, 不含重试机制
+     *
+     * @return 异步HttpClient
+     */
+    public static CloseableHttpAsyncClient getHttpAsyncClient() {
+        return getHttpAsyncClient(new ConnectionPoolConfig());
+    }
+
+    /**
+     * 按配置获取异步HttpClient对象(已启动) <br>
+     * 使用配置中的超时时间、最大连接数、每个路由的默认最大连接数及连接保持时间, 不支持按路由设置最大连接数
+     *
+     * @param config 连接池配置
+     * @return 异步HttpClient
+     */
+    public static CloseableHttpAsyncClient getHttpAsyncClient(ConnectionPoolConfig config) {
+        CloseableHttpAsyncClient httpAsyncClient = HttpAsyncClients.custom()
+                .setDefaultRequestConfig(HttpConnectionPool.toRequestConfig(config))
+                .setMaxConnTotal(config.getMaxTotal())
+                .setMaxConnPerRoute(config.getDefaultMaxPerRoute())
+                .setKeepAliveStrategy(HttpConnectionPool.keepAliveStrategy(config.getMaxKeepAliveMillis()))
                 .build();
-        // 添加重试机制
-        HttpClientBuilder builder = HttpClientBuilder.create()
-                .setDefaultRequestConfig(config)
-                .setMaxConnTotal(200)
-                .setMaxConnPerRoute(20);
-
-        // 设置重试处理器
-        builder.setRetryHandler((exception, executionCount, context) -> {
-            if (executionCount >= DEFAULT_MAX_RETRIES) {
-                return false;
-            }
-            // 如果是IOException，进行重试
-            return exception instanceof java.io.IOException;
-        });
-        return builder.build();
+        httpAsyncClient.start();
+        return httpAsyncClient;
     }
 
     /**
@@ -0,0 +1,63 @@
+package org.kangspace.oauth2.helper.request;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 请求延迟任务调度线程(异步重试、对冲请求)及同步对冲请求的发送线程池, 首次使用时创建
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+final class RequestScheduler {
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "oauth2-request-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 同步对冲请求的最大并发数
+     */
+    static final int MAX_HEDGE_THREADS = 32;
+
+    /**
+     * 同步对冲请求的发送线程池, 不排队, 线程已满时拒绝(不对冲); 空闲60秒后回收
+     */
+    private static final ThreadPoolExecutor HEDGE_EXECUTOR = newHedgeExecutor();
+
+    private RequestScheduler() {
+    }
+
+    static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return EXECUTOR.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在对冲线程池中发送同步对冲请求
+     *
+     * @param task 对冲请求
+     * @throws RejectedExecutionException 对冲线程已满时
+     */
+    static void executeHedge(Runnable task) {
+        HEDGE_EXECUTOR.execute(task);
+    }
+
+    private static ThreadPoolExecutor newHedgeExecutor() {
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_HEDGE_THREADS, MAX_HEDGE_THREADS, 60L,
+                TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "oauth2-request-hedge-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
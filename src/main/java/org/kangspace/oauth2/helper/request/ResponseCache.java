@@ -0,0 +1,369 @@
+package org.kangspace.oauth2.helper.request;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHeaders;
+import org.kangspace.oauth2.helper.transport.HttpTransportResponse;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GET响应缓存(客户端私有缓存)
+ *
+ * <pre>
+ * 1. 仅缓存200响应, 新鲜度按Cache-Control max-age(扣除Age)计算; no-store或Vary: *的响应不缓存
+ * 2. 过期(或no-cache)且包含ETag/Last-Modified的条目, 以If-None-Match/If-Modified-Since条件请求重新验证, 304时复用缓存的响应体
+ * 3. 缓存key包含token存储唯一标识(见{@link AbstractRequest#getRequestKey()}), 不同客户端/用户的响应不会共享
+ * 4. 按响应体等估算的内存占用限制总大小, 超出时淘汰最久未访问的条目(LRU)
+ * 5. 缓存响应体字节, 每次命中时重新解码, 调用方获得独立的响应对象
+ * </pre>
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class ResponseCache {
+    /**
+     * 默认最大内存占用(字节)
+     */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * 默认单个条目最大内存占用(字节)
+     */
+    public static final long DEFAULT_MAX_ENTRY_BYTES = 1024L * 1024;
+
+    /**
+     * 条目固定开销估算(字节)
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRY_BYTES);
+    }
+
+    public ResponseCache(long maxBytes) {
+        this(maxBytes, Math.min(maxBytes, DEFAULT_MAX_ENTRY_BYTES));
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param maxBytes      最大内存占用(字节)
+     * @param maxEntryBytes 单个条目最大内存占用(字节), 超出时不缓存
+     */
+    public ResponseCache(long maxBytes, long maxEntryBytes) {
+        if (maxBytes <= 0 || maxEntryBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes and maxEntryBytes must be greater than 0");
+        }
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxBytes, maxEntryBytes);
+    }
+
+    /**
+     * 读取条目(含已过期待重新验证的条目)
+     *
+     * @param key 缓存key
+     * @return 条目, 不存在时返回null
+     */
+    public synchronized Entry get(@NonNull String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * 响应是否可缓存(读取响应体前判断, 不可缓存时直接流式解析)
+     *
+     * @param response 响应
+     * @return 是否可缓存
+     */
+    public boolean isCacheable(@NonNull HttpTransportResponse response) {
+        long maxAgeMillis = maxAgeMillis(response);
+        if (maxAgeMillis < 0 || maxAgeMillis == 0 && response.getHeader(HttpHeaders.ETAG) == null
+                && response.getHeader(HttpHeaders.LAST_MODIFIED) == null) {
+            return false;
+        }
+        String contentLength = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+        try {
+            return contentLength == null || Long.parseLong(contentLength.trim()) <= maxEntryBytes;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 缓存200响应
+     *
+     * @param key      缓存key
+     * @param response 响应(仅读取响应头)
+     * @param body     响应体
+     * @return 缓存的条目, 响应不可缓存时返回null
+     */
+    public Entry put(@NonNull String key, @NonNull HttpTransportResponse response, @NonNull byte[] body) {
+        if (!isCacheable(response)) {
+            remove(key);
+            return null;
+        }
+        long maxAgeMillis = maxAgeMillis(response);
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+        Entry entry = new Entry(body, etag, lastModified, maxAgeMillis,
+                System.currentTimeMillis() + maxAgeMillis, ENTRY_OVERHEAD_BYTES + key.length() * 2L + body.length);
+        if (entry.size > maxEntryBytes) {
+            remove(key);
+            return null;
+        }
+        put(key, entry);
+        return entry;
+    }
+
+    /**
+     * 304响应后更新条目的新鲜度, 响应未包含Cache-Control时沿用原max-age
+     *
+     * @param key      缓存key
+     * @param entry    重新验证的条目
+     * @param response 304响应
+     * @return 更新后的条目
+     */
+    public Entry revalidate(@NonNull String key, @NonNull Entry entry, @NonNull HttpTransportResponse response) {
+        long maxAgeMillis = response.getHeader(HttpHeaders.CACHE_CONTROL) != null ? maxAgeMillis(response)
+                : entry.maxAgeMillis;
+        if (maxAgeMillis < 0) {
+            remove(key);
+            return entry;
+        }
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+        Entry updated = new Entry(entry.body, etag != null ? etag : entry.etag,
+                lastModified != null ? lastModified : entry.lastModified, maxAgeMillis,
+                System.currentTimeMillis() + maxAgeMillis, entry.size);
+        put(key, updated);
+        return updated;
+    }
+
+    /**
+     * 删除条目
+     *
+     * @param key 缓存key
+     */
+    public synchronized void remove(@NonNull String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.size;
+        }
+    }
+
+    /**
+     * 清空
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        bytes += entry.size - (previous != null ? previous.size : 0);
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            bytes -= eldest.size;
+            evictions.increment();
+        }
+        log.debug("ResponseCache: put entry, key: {}, maxAge: {}ms, size: {}, bytes: {}", key, entry.maxAgeMillis,
+                entry.size, bytes);
+    }
+
+    /**
+     * 按Cache-Control计算max-age(扣除Age响应头)
+     *
+     * @param response 响应
+     * @return max-age(毫秒), no-cache或未指定时为0, 不可缓存(no-store、Vary: *)时返回-1
+     */
+    static long maxAgeMillis(HttpTransportResponse response) {
+        String vary = response.getHeader(HttpHeaders.VARY);
+        if (vary != null && vary.trim().equals("*")) {
+            return -1L;
+        }
+        String cacheControl = response.getHeader(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl == null) {
+            return 0L;
+        }
+        long maxAge = 0L;
+        boolean noCache = false;
+        for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+            directive = directive.trim();
+            if (directive.equals("no-store")) {
+                return -1L;
+            }
+            if (directive.startsWith("no-cache")) {
+                noCache = true;
+            } else if (directive.startsWith("max-age=")) {
+                try {
+                    maxAge = Long.parseLong(directive.substring("max-age=".length()).replace("\"", "").trim());
+                } catch (NumberFormatException e) {
+                    maxAge = 0L;
+                }
+            }
+        }
+        if (noCache || maxAge <= 0) {
+            return 0L;
+        }
+        long age = 0L;
+        String ageHeader = response.getHeader(HttpHeaders.AGE);
+        if (ageHeader != null) {
+            try {
+                age = Math.max(0L, Long.parseLong(ageHeader.trim()));
+            } catch (NumberFormatException e) {
+                age = 0L;
+            }
+        }
+        return Math.max(0L, maxAge - age) * 1000L;
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordRevalidation() {
+        revalidations.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * 获取条目数
+     *
+     * @return 条目数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 获取估算的内存占用(字节)
+     *
+     * @return 内存占用
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 获取命中数(新鲜条目, 未发送请求)
+     *
+     * @return 命中数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 获取重新验证命中数(304, 未下载响应体)
+     *
+     * @return 重新验证命中数
+     */
+    public long getRevalidationCount() {
+        return revalidations.sum();
+    }
+
+    /**
+     * 获取未命中数
+     *
+     * @return 未命中数
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * 获取淘汰条目数
+     *
+     * @return 淘汰条目数
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 获取命中率: (命中数 + 重新验证命中数) / 请求数
+     *
+     * @return 命中率, 无请求时为0
+     */
+    public double getHitRatio() {
+        long hit = getHitCount() + getRevalidationCount();
+        long total = hit + getMissCount();
+        return total == 0 ? 0D : (double) hit / total;
+    }
+
+    /**
+     * 缓存条目
+     */
+    public static final class Entry {
+        private final byte[] body;
+        private final String etag;
+        private final String lastModified;
+        private final long maxAgeMillis;
+        private final long expiresAtMillis;
+        private final long size;
+
+        Entry(byte[] body, String etag, String lastModified, long maxAgeMillis, long expiresAtMillis, long size) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.maxAgeMillis = maxAgeMillis;
+            this.expiresAtMillis = expiresAtMillis;
+            this.size = size;
+        }
+
+        /**
+         * 是否新鲜(无需重新验证)
+         *
+         * @return 是否新鲜
+         */
+        public boolean isFresh() {
+            return System.currentTimeMillis() < expiresAtMillis;
+        }
+
+        /**
+         * 是否可重新验证
+         *
+         * @return 是否包含ETag或Last-Modified
+         */
+        public boolean isRevalidatable() {
+            return etag != null || lastModified != null;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package org.kangspace.oauth2.helper.request;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.kangspace.oauth2.helper.concurrent.RetryBudget;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 请求重试策略
+ *
+ * <pre>
+ * 1. 幂等方法(默认GET/PUT/DELETE): IOException及可重试状态码(默认429/502/503/504)时重试
+ * 2. 非幂等方法(POST): 仅在请求确定未发出(连接失败、获取连接超时)或429时重试
+ * 3. 重试间隔: 指数退避 + 完全抖动, random(0, min(最大间隔, 基础间隔 * 2^(n-1)))
+ * 4. 429/503响应包含Retry-After时按其等待, 超过最长等待时间时不重试
+ * 5. 重试受{@link RetryBudget}限制, 避免上游故障时重试放大流量
+ * </pre>
+ * 策略不可变, 配置方法返回新策略(共享当前策略的重试预算), {@link #NONE}及默认策略可安全共享
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Getter
+@ToString
+public final class RetryPolicy {
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 100L;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5000L;
+    public static final long DEFAULT_MAX_RETRY_AFTER_MILLIS = 30000L;
+
+    /**
+     * 不重试
+     */
+    public static final RetryPolicy NONE = new RetryPolicy().maxAttempts(1);
+
+    /**
+     * 最大请求次数(含首次请求)
+     */
+    private final int maxAttempts;
+
+    /**
+     * 基础重试间隔(毫秒)
+     */
+    private final long baseDelayMillis;
+
+    /**
+     * 最大重试间隔(毫秒)
+     */
+    private final long maxDelayMillis;
+
+    /**
+     * Retry-After最长等待时间(毫秒)
+     */
+    private final long maxRetryAfterMillis;
+
+    /**
+     * 幂等方法
+     */
+    private final Set<HttpMethod> idempotentMethods;
+
+    /**
+     * 可重试状态码
+     */
+    private final Set<Integer> retryableStatusCodes;
+
+    /**
+     * 重试预算
+     */
+    private final RetryBudget budget;
+
+    /**
+     * 默认策略: 最多请求3次, 使用独立的重试预算
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MAX_RETRY_AFTER_MILLIS,
+                EnumSet.of(HttpMethod.GET, HttpMethod.PUT, HttpMethod.DELETE),
+                new HashSet<>(Arrays.asList(429, 502, 503, 504)), new RetryBudget());
+    }
+
+    private RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long maxRetryAfterMillis,
+                        Set<HttpMethod> idempotentMethods, Set<Integer> retryableStatusCodes, RetryBudget budget) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be greater than 0");
+        }
+        if (baseDelayMillis < 0 || maxDelayMillis < 0 || maxRetryAfterMillis < 0) {
+            throw new IllegalArgumentException("delay must not be negative");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxRetryAfterMillis = maxRetryAfterMillis;
+        this.idempotentMethods = Collections.unmodifiableSet(idempotentMethods);
+        this.retryableStatusCodes = Collections.unmodifiableSet(retryableStatusCodes);
+        this.budget = budget;
+    }
+
+    /**
+     * 设置最大请求次数(含首次请求)
+     *
+     * @param maxAttempts 最大请求次数, 为1时不重试
+     * @return 新策略
+     */
+    public RetryPolicy maxAttempts(int maxAttempts) {
+        return new RetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis, maxRetryAfterMillis,
+                idempotentMethods, retryableStatusCodes, budget);
+    }
+
+    /**
+     * 设置基础重试间隔
+     *
+     * @param baseDelayMillis 基础重试间隔(毫秒)
+     * @return 新策略
+     */
+    public RetryPolicy baseDelayMillis(long baseDelayMillis) {
+        return new RetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis, maxRetryAfterMillis,
+                idempotentMethods, retryableStatusCodes, budget);
+    }
+
+    /**
+     * 设置最大重试间隔
+     *
+     * @param maxDelayMillis 最大重试间隔(毫秒)
+     * @return 新策略
+     */
+    public RetryPolicy maxDelayMillis(long maxDelayMillis) {
+        return new RetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis, maxRetryAfterMillis,
+                idempotentMethods, retryableStatusCodes, budget);
+    }
+
+    /**
+     * 设置Retry-After最长等待时间
+     *
+     * @param maxRetryAfterMillis Retry-After最长等待时间(毫秒), 超过时不重试
+     * @return 新策略
+     */
+    public RetryPolicy maxRetryAfterMillis(long maxRetryAfterMillis) {
+        return new RetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis, maxRetryAfterMillis,
+                idempotentMethods, retryableStatusCodes, budget);
+    }
+
+    /**
+     * 设置幂等方法
+     *
+     * @param methods 幂等方法
+     * @return 新策略
+     */
+    public RetryPolicy idempotentMethods(@NonNull HttpMethod... methods) {
+        Set<HttpMethod> idempotentMethods = EnumSet.noneOf(HttpMethod.class);
+        idempotentMethods.addAll(Arrays.asList(methods));
+        return new RetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis, maxRetryAfterMillis,
+                idempotentMethods, retryableStatusCodes, budget);
+    }
+
+    /**
+     * 设置可重试状态码
+     *
+     * @param statusCodes 可重试状态码
+     * @return 新策略
+     */
+    public RetryPolicy retryableStatusCodes(@NonNull Integer... statusCodes) {
+        return new RetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis, maxRetryAfterMillis,
+                idempotentMethods, new HashSet<>(Arrays.asList(statusCodes)), budget);
+    }
+
+    /**
+     * 设置重试预算
+     *
+     * @param budget 重试预算
+     * @return 新策略
+     */
+    public RetryPolicy budget(@NonNull RetryBudget budget) {
+        return new RetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis, maxRetryAfterMillis,
+                idempotentMethods, retryableStatusCodes, budget);
+    }
+
+    /**
+     * 记录一次请求(不含重试), 用于重试预算
+     */
+    public void onRequest() {
+        if (maxAttempts > 1) {
+            budget.onRequest();
+        }
+    }
+
+    /**
+     * 请求异常时的重试间隔, 允许重试时消耗一次重试预算
+     *
+     * @param method  请求方法
+     * @param attempt 已请求次数
+     * @param error   异常
+     * @return 重试间隔(毫秒), 不重试时返回-1
+     */
+    public long nextDelayMillis(@NonNull HttpMethod method, int attempt, @NonNull Throwable error) {
+        if (attempt >= maxAttempts || !(error instanceof IOException) || error instanceof UnknownHostException) {
+            return -1L;
+        }
+        if (!idempotentMethods.contains(method) && !isNotSent(error)) {
+            return -1L;
+        }
+        return budget.tryAcquireRetry() ? backoffMillis(attempt) : -1L;
+    }
+
+    /**
+     * 响应状态码可重试时的重试间隔, 允许重试时消耗一次重试预算
+     *
+     * @param method     请求方法
+     * @param attempt    已请求次数
+     * @param statusCode 响应状态码
+     * @param retryAfter Retry-After响应头, 可为null
+     * @return 重试间隔(毫秒), 不重试时返回-1
+     */
+    public long nextDelayMillis(@NonNull HttpMethod method, int attempt, int statusCode, String retryAfter) {
+        if (attempt >= maxAttempts || !retryableStatusCodes.contains(statusCode)) {
+            return -1L;
+        }
+        // 429表示请求未被处理, 非幂等方法同样可重试
+        if (statusCode != 429 && !idempotentMethods.contains(method)) {
+            return -1L;
+        }
+        long delay = backoffMillis(attempt);
+        if ((statusCode == 429 || statusCode == 503) && retryAfter != null) {
+            long retryAfterMillis = parseRetryAfter(retryAfter);
+            if (retryAfterMillis > maxRetryAfterMillis) {
+                return -1L;
+            }
+            if (retryAfterMillis >= 0) {
+                delay = retryAfterMillis;
+            }
+        }
+        return budget.tryAcquireRetry() ? delay : -1L;
+    }
+
+    /**
+     * 指数退避 + 完全抖动
+     *
+     * @param attempt 已请求次数
+     * @return 重试间隔(毫秒)
+     */
+    long backoffMillis(int attempt) {
+        long cap = baseDelayMillis << Math.min(attempt - 1, 30);
+        if (cap <= 0 || cap > maxDelayMillis) {
+            cap = maxDelayMillis;
+        }
+        return cap <= 0 ? 0L : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /**
+     * 解析Retry-After: 秒数或HTTP日期
+     *
+     * @param retryAfter Retry-After响应头
+     * @return 等待时间(毫秒), 无法解析时返回-1
+     */
+    static long parseRetryAfter(@NonNull String retryAfter) {
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0L, Long.parseLong(value) * 1000L);
+        } catch (NumberFormatException e) {
+            try {
+                long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                return Math.max(0L, at - System.currentTimeMillis());
+            } catch (DateTimeParseException ex) {
+                return -1L;
+            }
+        }
+    }
+
+    /**
+     * 请求是否确定未发出: 连接失败或从连接池获取连接超时
+     *
+     * @param error 异常
+     * @return 是否未发出
+     */
+    private static boolean isNotSent(Throwable error) {
+        return error instanceof ConnectException || error instanceof ConnectTimeoutException
+                || error instanceof ConnectionPoolTimeoutException;
+    }
+}
@@ -0,0 +1,89 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.NonNull;
+import org.kangspace.oauth2.helper.token.Token;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步Token存储接口 <br>
+ * 与{@link TokenStorage}对应, 操作不阻塞调用线程, 适用于事件循环等异步调用方; 同步存储可通过{@link #of(TokenStorage)}适配
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public interface AsyncTokenStorage<T extends Token> {
+
+    /**
+     * 异步获取令牌
+     *
+     * @param identity 令牌唯一标识
+     * @return 令牌, 不存在时为null
+     */
+    CompletableFuture<T> getAsync(@Nonnull String identity);
+
+    /**
+     * 异步设置令牌, 过期时间为令牌的有效时间
+     *
+     * @param identity 令牌唯一标识
+     * @param value    令牌
+     * @return 设置结果
+     */
+    default CompletableFuture<Void> setAsync(@Nonnull String identity, @Nonnull T value) {
+        return setAsync(identity, value, Objects.requireNonNull(value.getExpiresIn()));
+    }
+
+    /**
+     * 异步设置令牌
+     *
+     * @param identity   令牌唯一标识
+     * @param value      令牌
+     * @param ttlSeconds 过期时间(秒)
+     * @return 设置结果
+     */
+    CompletableFuture<Void> setAsync(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds);
+
+    /**
+     * 异步批量获取令牌, 默认逐个获取, 支持批量读取的存储应重写
+     *
+     * @param identities 令牌唯一标识
+     * @return 令牌唯一标识 - 令牌(仅包含存在的令牌)
+     */
+    default CompletableFuture<Map<String, T>> getAllAsync(@Nonnull Collection<String> identities) {
+        List<String> keys = new ArrayList<>(identities);
+        List<CompletableFuture<T>> futures = new ArrayList<>(keys.size());
+        keys.forEach(identity -> futures.add(getAsync(identity)));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> {
+            Map<String, T> values = new LinkedHashMap<>(keys.size() * 4 / 3 + 1);
+            for (int i = 0; i < keys.size(); i++) {
+                T value = futures.get(i).join();
+                if (value != null) {
+                    values.put(keys.get(i), value);
+                }
+            }
+            return values;
+        });
+    }
+
+    /**
+     * 获取异步Token存储: 已实现{@link AsyncTokenStorage}的存储直接返回, 否则通过{@link ExecutorAsyncTokenStorage}在默认有界线程池中执行
+     *
+     * @param tokenStorage 同步Token存储
+     * @param <T>          Token类型
+     * @return 异步Token存储
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Token> AsyncTokenStorage<T> of(@NonNull TokenStorage<T> tokenStorage) {
+        if (tokenStorage instanceof AsyncTokenStorage) {
+            return (AsyncTokenStorage<T>) tokenStorage;
+        }
+        return new ExecutorAsyncTokenStorage<>(tokenStorage);
+    }
+}
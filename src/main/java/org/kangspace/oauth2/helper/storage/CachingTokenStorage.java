@@ -0,0 +1,298 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地一级缓存Token存储(装饰任意TokenStorage) <br>
+ * 令牌以不可变快照(含{@link TokenEnvelope}绝对过期时间)保存在本地, 读取时无锁、无对象分配; 仅在快照临近过期或被{@link #invalidate(String)}后才访问被装饰的存储 <br>
+ * 适用于Redis等每次读取都需网络请求的存储:
+ *
+ * <pre>
+ * TokenStorage&lt;WeChatToken&gt; tokenStorage = new CachingTokenStorage&lt;&gt;(new WeChatTokenStorage(redissonClient));
+ * </pre>
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class CachingTokenStorage<T extends Token> implements TokenStorage<T> {
+    /**
+     * 默认提前回源时间(毫秒): 快照距过期不足该时间时从被装饰的存储重新读取
+     */
+    public static final long DEFAULT_REFRESH_MARGIN_MILLIS = 60_000L;
+
+    /**
+     * 默认从被装饰的存储读取的令牌本地最长缓存时间(毫秒) <br>
+     * 其他节点可能已更新被装饰的存储中的令牌, 按该时间限制本地缓存时长
+     */
+    public static final long DEFAULT_MAX_LOADED_TTL_MILLIS = 60_000L;
+
+    /**
+     * 被装饰的存储
+     */
+    private final TokenStorage<T> delegate;
+
+    /**
+     * 提前回源时间(毫秒)
+     */
+    private final long refreshMarginMillis;
+
+    /**
+     * 从被装饰的存储读取的令牌本地最长缓存时间(毫秒)
+     */
+    private final long maxLoadedTtlMillis;
+
+    /**
+     * 令牌快照
+     */
+    private final ConcurrentMap<String, Snapshot<T>> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * 最近写入的令牌快照, 单令牌场景下免去Map查找
+     */
+    private volatile Snapshot<T> last;
+
+    public CachingTokenStorage(@NonNull TokenStorage<T> delegate) {
+        this(delegate, DEFAULT_REFRESH_MARGIN_MILLIS, DEFAULT_MAX_LOADED_TTL_MILLIS);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param delegate            被装饰的存储
+     * @param refreshMarginMillis 提前回源时间(毫秒)
+     * @param maxLoadedTtlMillis  从被装饰的存储读取的令牌本地最长缓存时间(毫秒)
+     */
+    public CachingTokenStorage(@NonNull TokenStorage<T> delegate, long refreshMarginMillis, long maxLoadedTtlMillis) {
+        this.delegate = delegate;
+        this.refreshMarginMillis = refreshMarginMillis;
+        this.maxLoadedTtlMillis = maxLoadedTtlMillis;
+    }
+
+    @Override
+    public void set(@Nonnull String identity, @Nonnull T value) {
+        delegate.set(identity, value);
+        afterSet(identity, TokenEnvelope.of(value, System.currentTimeMillis(), 0L));
+    }
+
+    @Override
+    public void set(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds) {
+        delegate.set(identity, value, ttlSeconds);
+        long now = System.currentTimeMillis();
+        afterSet(identity, new TokenEnvelope<>(value, now, now + TimeUnit.SECONDS.toMillis(ttlSeconds)));
+    }
+
+    @Override
+    public void setEnvelope(@Nonnull String identity, @Nonnull TokenEnvelope<T> envelope) {
+        delegate.setEnvelope(identity, envelope);
+        afterSet(identity, envelope);
+    }
+
+    @Override
+    public T get(@Nonnull String identity) {
+        TokenEnvelope<T> envelope = getEnvelope(identity);
+        return envelope == null ? null : envelope.getToken();
+    }
+
+    @Override
+    public void setAll(@Nonnull Map<String, T> values) {
+        delegate.setAll(values);
+        long now = System.currentTimeMillis();
+        values.forEach((identity, value) -> afterSet(identity, TokenEnvelope.of(value, now, 0L)));
+    }
+
+    @Override
+    public void setAll(@Nonnull Map<String, T> values, @Nonnull Long ttlSeconds) {
+        delegate.setAll(values, ttlSeconds);
+        long now = System.currentTimeMillis();
+        values.forEach((identity, value) -> afterSet(identity,
+                new TokenEnvelope<>(value, now, now + TimeUnit.SECONDS.toMillis(ttlSeconds))));
+    }
+
+    /**
+     * 批量获取令牌: 本地快照有效的令牌直接返回, 其余令牌从被装饰的存储一次批量读取(批量读取的令牌不缓存, 无过期时间)
+     *
+     * @param identities 令牌唯一标识
+     * @return 令牌唯一标识 - 令牌
+     */
+    @Override
+    public Map<String, T> getAll(@Nonnull Collection<String> identities) {
+        Map<String, T> values = new LinkedHashMap<>(identities.size() * 4 / 3 + 1);
+        List<String> misses = new ArrayList<>();
+        for (String identity : identities) {
+            TokenEnvelope<T> envelope = getCached(identity);
+            if (envelope != null) {
+                values.put(identity, envelope.getToken());
+            } else {
+                misses.add(identity);
+            }
+        }
+        if (!misses.isEmpty()) {
+            values.putAll(delegate.getAll(misses));
+        }
+        return values;
+    }
+
+    @Override
+    public TokenEnvelope<T> getEnvelope(@Nonnull String identity) {
+        TokenEnvelope<T> cached = getCached(identity);
+        if (cached != null) {
+            return cached;
+        }
+        TokenEnvelope<T> envelope = delegate.getEnvelope(identity);
+        log.debug("CachingTokenStorage: load token from delegate storage, identity: {}, value: {}", identity, envelope);
+        if (envelope == null) {
+            invalidate(identity);
+            return null;
+        }
+        cache(identity, envelope, maxLoadedTtlMillis);
+        return envelope;
+    }
+
+    /**
+     * 获取本地有效的令牌快照
+     *
+     * @param identity 令牌唯一标识
+     * @return Token信封, 不存在或需回源时返回null
+     */
+    private TokenEnvelope<T> getCached(String identity) {
+        Snapshot<T> snapshot = last;
+        if (snapshot == null || !snapshot.identity.equals(identity)) {
+            snapshot = snapshots.get(identity);
+        }
+        return snapshot != null && snapshot.validUntilMillis > System.currentTimeMillis() ? snapshot.envelope : null;
+    }
+
+    /**
+     * 使本地令牌快照失效, 下次读取时从被装饰的存储加载
+     *
+     * @param identity 令牌唯一标识
+     */
+    @Override
+    public void invalidate(@Nonnull String identity) {
+        snapshots.remove(identity);
+        Snapshot<T> snapshot = last;
+        if (snapshot != null && snapshot.identity.equals(identity)) {
+            last = null;
+        }
+    }
+
+    @Override
+    public String getRefreshToken(@Nonnull String identity) {
+        return delegate.getRefreshToken(identity);
+    }
+
+    @Override
+    public String getKeyPrefix() {
+        return delegate.getKeyPrefix();
+    }
+
+    @Override
+    public String getKey(@Nonnull String identity) {
+        return delegate.getKey(identity);
+    }
+
+    @Override
+    public String getRefreshLockKey(@Nonnull String identity) {
+        return delegate.getRefreshLockKey(identity);
+    }
+
+    @Override
+    public boolean tryRefreshLock(@Nonnull String identity) {
+        return delegate.tryRefreshLock(identity);
+    }
+
+    @Override
+    public void releaseRefreshLock(@Nonnull String identity) {
+        delegate.releaseRefreshLock(identity);
+    }
+
+    /**
+     * 获取从被装饰的存储读取的令牌本地最长缓存时间(毫秒)
+     *
+     * @return 本地最长缓存时间(毫秒)
+     */
+    public long getMaxLoadedTtlMillis() {
+        return maxLoadedTtlMillis;
+    }
+
+    /**
+     * 获取提前回源时间(毫秒)
+     *
+     * @return 提前回源时间(毫秒)
+     */
+    public long getRefreshMarginMillis() {
+        return refreshMarginMillis;
+    }
+
+    /**
+     * 获取被装饰的存储
+     *
+     * @return 被装饰的存储
+     */
+    public TokenStorage<T> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 写入令牌后缓存令牌快照, 子类可重写实现写入通知
+     *
+     * @param identity 令牌唯一标识
+     * @param envelope Token信封
+     */
+    protected void afterSet(@Nonnull String identity, @Nonnull TokenEnvelope<T> envelope) {
+        cache(identity, envelope, Long.MAX_VALUE);
+    }
+
+    /**
+     * 缓存令牌快照 <br>
+     * 本地有效截止时间为令牌过期时间减去提前回源时间, 且不超过maxTtlMillis
+     *
+     * @param identity     令牌唯一标识
+     * @param envelope     Token信封
+     * @param maxTtlMillis 本地最长缓存时间(毫秒)
+     */
+    protected void cache(@Nonnull String identity, @Nonnull TokenEnvelope<T> envelope, long maxTtlMillis) {
+        long now = System.currentTimeMillis();
+        long validUntilMillis = Math.min(envelope.getExpiresAtMillis() - refreshMarginMillis,
+                maxTtlMillis == Long.MAX_VALUE ? Long.MAX_VALUE : now + maxTtlMillis);
+        if (validUntilMillis <= now) {
+            invalidate(identity);
+            return;
+        }
+        Snapshot<T> snapshot = new Snapshot<>(identity, envelope, validUntilMillis);
+        snapshots.put(identity, snapshot);
+        last = snapshot;
+    }
+
+    /**
+     * 令牌快照(不可变)
+     */
+    private static final class Snapshot<T extends Token> {
+        private final String identity;
+        private final TokenEnvelope<T> envelope;
+        /**
+         * 本地有效截止时间(绝对时间, 毫秒), 已扣除提前回源时间
+         */
+        private final long validUntilMillis;
+
+        private Snapshot(String identity, TokenEnvelope<T> envelope, long validUntilMillis) {
+            this.identity = identity;
+            this.envelope = envelope;
+            this.validUntilMillis = validUntilMillis;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.NonNull;
+import org.kangspace.oauth2.helper.token.Token;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 基于线程池的异步Token存储, 将同步{@link TokenStorage}的调用提交到有界线程池执行 <br>
+ * 线程池队列已满时返回异常完成的结果({@link RejectedExecutionException}), 不阻塞调用线程
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public class ExecutorAsyncTokenStorage<T extends Token> implements AsyncTokenStorage<T> {
+    /**
+     * 默认线程池, 所有实例共享
+     */
+    public static final ExecutorService DEFAULT_EXECUTOR = newDefaultExecutor();
+
+    private final TokenStorage<T> tokenStorage;
+    private final Executor executor;
+
+    public ExecutorAsyncTokenStorage(@NonNull TokenStorage<T> tokenStorage) {
+        this(tokenStorage, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param tokenStorage 同步Token存储
+     * @param executor     执行同步调用的线程池, 建议使用有界队列
+     */
+    public ExecutorAsyncTokenStorage(@NonNull TokenStorage<T> tokenStorage, @NonNull Executor executor) {
+        this.tokenStorage = tokenStorage;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<T> getAsync(@Nonnull String identity) {
+        return supply(() -> tokenStorage.get(identity));
+    }
+
+    @Override
+    public CompletableFuture<Void> setAsync(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds) {
+        return supply(() -> {
+            tokenStorage.set(identity, value, ttlSeconds);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> getAllAsync(@Nonnull Collection<String> identities) {
+        return supply(() -> tokenStorage.getAll(identities));
+    }
+
+    /**
+     * 获取同步Token存储
+     *
+     * @return 同步Token存储
+     */
+    public TokenStorage<T> getTokenStorage() {
+        return tokenStorage;
+    }
+
+    private <V> CompletableFuture<V> supply(Supplier<V> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<V> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 创建默认线程池(守护线程, 有界队列)
+     *
+     * @return 线程池
+     */
+    private static ExecutorService newDefaultExecutor() {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        AtomicInteger index = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1024), r -> {
+            Thread thread = new Thread(r, "oauth2-async-token-storage-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -1,6 +1,9 @@
 package org.kangspace.oauth2.helper.storage;
 
 import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * 存储接口
@@ -26,6 +29,35 @@ public interface Storage<T> {
      */
     T get(@Nonnull String identity);
 
+    /**
+     * 批量设置缓存 <br>
+     * 默认逐个设置, 远程存储实现可重写为一次网络请求
+     *
+     * @param values     唯一标识 - value
+     * @param ttlSeconds 超时时间(秒)
+     */
+    default void setAll(@Nonnull Map<String, T> values, @Nonnull Long ttlSeconds) {
+        values.forEach((identity, value) -> set(identity, value, ttlSeconds));
+    }
+
+    /**
+     * 批量获取缓存 <br>
+     * 默认逐个获取, 远程存储实现可重写为一次网络请求
+     *
+     * @param identities 唯一标识
+     * @return 唯一标识 - value, 不包含不存在的唯一标识
+     */
+    default Map<String, T> getAll(@Nonnull Collection<String> identities) {
+        Map<String, T> values = new LinkedHashMap<>(identities.size() * 4 / 3 + 1);
+        for (String identity : identities) {
+            T value = get(identity);
+            if (value != null) {
+                values.put(identity, value);
+            }
+        }
+        return values;
+    }
+
     /**
      * 获取key前缀(自定义key格式)
      *
@@ -1,8 +1,10 @@
 package org.kangspace.oauth2.helper.storage;
 
 import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
 
 import javax.annotation.Nonnull;
+import java.util.Map;
 
 /**
  * Token存储接口
@@ -16,6 +18,21 @@ public interface TokenStorage<T extends Token> extends Storage<T> {
      */
     String DEFAULT_TOKEN_KEY_PREFIX = "oauth2-helper:token:";
 
+    /**
+     * token刷新锁key后缀
+     */
+    String REFRESH_LOCK_KEY_SUFFIX = ":refresh-lock";
+
+    /**
+     * 默认token刷新锁等待时间(毫秒)
+     */
+    long DEFAULT_REFRESH_LOCK_WAIT_MILLIS = 5000L;
+
+    /**
+     * 默认token刷新锁租约时间(毫秒)
+     */
+    long DEFAULT_REFRESH_LOCK_LEASE_MILLIS = 10000L;
+
     /**
      * 设置令牌
      *
@@ -36,8 +53,95 @@ public interface TokenStorage<T extends Token> extends Storage<T> {
         set(identity, value);
     }
 
+    /**
+     * 批量设置令牌, 过期时间为各令牌的有效时间 <br>
+     * 默认逐个设置, 远程存储实现可重写为一次网络请求
+     *
+     * @param values 令牌唯一标识 - 令牌
+     */
+    default void setAll(@Nonnull Map<String, T> values) {
+        values.forEach(this::set);
+    }
+
+    /**
+     * 设置令牌(按Token信封的剩余有效时间设置过期时间) <br>
+     * 令牌已过期时不写入
+     *
+     * @param identity 令牌唯一标识
+     * @param envelope Token信封
+     */
+    default void setEnvelope(@Nonnull String identity, @Nonnull TokenEnvelope<T> envelope) {
+        long ttlSeconds = envelope.remainingTtl().getSeconds();
+        if (ttlSeconds > 0) {
+            set(identity, envelope.getToken(), ttlSeconds);
+        }
+    }
+
+    /**
+     * 获取令牌及其过期时间 <br>
+     * 默认实现无法获知令牌的写入时间, 按当前时间获取计算; 存储实现可重写该方法返回准确的过期时间
+     *
+     * @param identity 令牌唯一标识
+     * @return Token信封, 不存在时返回null
+     */
+    default TokenEnvelope<T> getEnvelope(@Nonnull String identity) {
+        T token = get(identity);
+        return token == null ? null : TokenEnvelope.of(token, System.currentTimeMillis(), 0L);
+    }
+
+    /**
+     * 获取用于续期的refresh token <br>
+     * 默认取当前令牌的refresh token; 存储实现可在令牌过期后继续保留refresh token
+     *
+     * @param identity 令牌唯一标识
+     * @return refresh token, 不存在时返回null
+     */
+    default String getRefreshToken(@Nonnull String identity) {
+        T token = get(identity);
+        return token == null ? null : token.getRefreshToken();
+    }
+
     @Override
     default String getKeyPrefix() {
         return DEFAULT_TOKEN_KEY_PREFIX;
     }
+
+    /**
+     * 使本地缓存的令牌失效(不影响共享存储), 下次读取时从共享存储加载 <br>
+     * 刷新token前调用, 默认无操作
+     *
+     * @param identity 令牌唯一标识
+     */
+    default void invalidate(@Nonnull String identity) {
+    }
+
+    /**
+     * 获取token刷新锁key
+     *
+     * @param identity 令牌唯一标识
+     * @return token刷新锁key
+     */
+    default String getRefreshLockKey(@Nonnull String identity) {
+        return getKey(identity) + REFRESH_LOCK_KEY_SUFFIX;
+    }
+
+    /**
+     * 尝试获取token刷新锁 <br>
+     * 分布式存储可重写该方法, 保证集群内同一时刻仅一个节点请求新token, 其余节点等待后读取存储结果 <br>
+     * 默认不加锁
+     *
+     * @param identity 令牌唯一标识
+     * @return 是否获取到锁
+     */
+    default boolean tryRefreshLock(@Nonnull String identity) {
+        return true;
+    }
+
+    /**
+     * 释放token刷新锁
+     *
+     * @param identity 令牌唯一标识
+     */
+    default void releaseRefreshLock(@Nonnull String identity) {
+    }
 }
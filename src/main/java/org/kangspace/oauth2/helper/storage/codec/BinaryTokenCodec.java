@@ -0,0 +1,198 @@
+package org.kangspace.oauth2.helper.storage.codec;
+
+import lombok.NonNull;
+import org.kangspace.oauth2.helper.exception.OAuth2HelperException;
+import org.kangspace.oauth2.helper.token.Token;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 紧凑二进制Token编解码 <br>
+ * 仅保存{@link Token}的标准字段(accessToken, expiresIn, refreshToken, tokenType), 不含类名及字段名; 解码时通过{@link TokenFactory}创建令牌 <br>
+ * 非本编码格式的数据(如迁移前的JSON数据)交由fallback解码
+ *
+ * <pre>
+ * 格式: magic(1) version(1) flags(1) [accessToken] [expiresIn] [refreshToken] [tokenType] [新版本字段...]
+ * 字符串: varint长度 + UTF-8字节; 数值: varint
+ * flags按位标记字段是否存在, 新增字段使用新的flag位并追加在末尾, 旧实现解码时忽略
+ * version仅在格式不兼容时递增, 解码时拒绝未知版本
+ * </pre>
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public class BinaryTokenCodec<T extends Token> implements TokenCodec<T> {
+    /**
+     * 格式标识, 不是合法的JSON/UTF-8首字节
+     */
+    public static final byte MAGIC = (byte) 0xB7;
+
+    /**
+     * 当前格式版本, 解码时仅接受该版本
+     */
+    public static final byte VERSION = 1;
+
+    private static final int ACCESS_TOKEN = 1;
+    private static final int EXPIRES_IN = 1 << 1;
+    private static final int REFRESH_TOKEN = 1 << 2;
+    private static final int TOKEN_TYPE = 1 << 3;
+
+    private final TokenFactory<T> tokenFactory;
+
+    /**
+     * 非本编码格式数据的解码器, 可为null
+     */
+    private final TokenCodec<T> fallback;
+
+    /**
+     * 令牌创建
+     */
+    @FunctionalInterface
+    public interface TokenFactory<T extends Token> {
+        /**
+         * 创建令牌
+         *
+         * @param accessToken  访问令牌
+         * @param expiresIn    过期时间(秒)
+         * @param refreshToken 刷新令牌
+         * @param tokenType    令牌类型
+         * @return 令牌
+         */
+        T create(String accessToken, Long expiresIn, String refreshToken, String tokenType);
+    }
+
+    public BinaryTokenCodec(@NonNull TokenFactory<T> tokenFactory) {
+        this(tokenFactory, null);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param tokenFactory 令牌创建
+     * @param fallback     非本编码格式数据的解码器(如{@link JsonTokenCodec}), 用于读取迁移前的数据
+     */
+    public BinaryTokenCodec(@NonNull TokenFactory<T> tokenFactory, TokenCodec<T> fallback) {
+        this.tokenFactory = tokenFactory;
+        this.fallback = fallback;
+    }
+
+    /**
+     * 是否为本编码格式
+     *
+     * @param bytes 字节数组
+     * @return 是否为本编码格式
+     */
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes != null && bytes.length > 0 && bytes[0] == MAGIC;
+    }
+
+    @Override
+    public byte[] encode(@Nonnull T token) {
+        byte[] accessToken = utf8(token.getAccessToken());
+        byte[] refreshToken = utf8(token.getRefreshToken());
+        byte[] tokenType = utf8(token.getTokenType());
+        Long expiresIn = token.getExpiresIn();
+        int flags = (accessToken != null ? ACCESS_TOKEN : 0) | (expiresIn != null ? EXPIRES_IN : 0)
+                | (refreshToken != null ? REFRESH_TOKEN : 0) | (tokenType != null ? TOKEN_TYPE : 0);
+        int size = 3 + sizeOf(accessToken) + (expiresIn != null ? varLongSize(expiresIn) : 0) + sizeOf(refreshToken)
+                + sizeOf(tokenType);
+        byte[] bytes = new byte[size];
+        bytes[0] = MAGIC;
+        bytes[1] = VERSION;
+        bytes[2] = (byte) flags;
+        int pos = writeBytes(bytes, 3, accessToken);
+        if (expiresIn != null) {
+            pos = writeVarLong(bytes, pos, expiresIn);
+        }
+        pos = writeBytes(bytes, pos, refreshToken);
+        writeBytes(bytes, pos, tokenType);
+        return bytes;
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (!isEncoded(bytes)) {
+            if (fallback == null) {
+                throw new OAuth2HelperException("不支持的token编码格式");
+            }
+            return fallback.decode(bytes);
+        }
+        if (bytes.length < 3) {
+            throw new OAuth2HelperException("token编码数据不完整");
+        }
+        if (bytes[1] != VERSION) {
+            throw new OAuth2HelperException("不支持的token编码版本: " + (bytes[1] & 0xFF));
+        }
+        int flags = bytes[2] & 0xFF;
+        int[] pos = {3};
+        String accessToken = (flags & ACCESS_TOKEN) != 0 ? readString(bytes, pos) : null;
+        Long expiresIn = (flags & EXPIRES_IN) != 0 ? readVarLong(bytes, pos) : null;
+        String refreshToken = (flags & REFRESH_TOKEN) != 0 ? readString(bytes, pos) : null;
+        String tokenType = (flags & TOKEN_TYPE) != 0 ? readString(bytes, pos) : null;
+        return tokenFactory.create(accessToken, expiresIn, refreshToken, tokenType);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] value) {
+        return value == null ? 0 : varLongSize(value.length) + value.length;
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeBytes(byte[] bytes, int pos, byte[] value) {
+        if (value == null) {
+            return pos;
+        }
+        pos = writeVarLong(bytes, pos, value.length);
+        System.arraycopy(value, 0, bytes, pos, value.length);
+        return pos + value.length;
+    }
+
+    private static int writeVarLong(byte[] bytes, int pos, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static long readVarLong(byte[] bytes, int[] pos) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= bytes.length) {
+                throw new OAuth2HelperException("token编码数据不完整");
+            }
+            byte b = bytes[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new OAuth2HelperException("token编码数据格式错误");
+    }
+
+    private static String readString(byte[] bytes, int[] pos) {
+        long length = readVarLong(bytes, pos);
+        if (length < 0 || length > bytes.length - pos[0]) {
+            throw new OAuth2HelperException("token编码数据不完整");
+        }
+        String value = new String(bytes, pos[0], (int) length, StandardCharsets.UTF_8);
+        pos[0] += (int) length;
+        return value;
+    }
+}
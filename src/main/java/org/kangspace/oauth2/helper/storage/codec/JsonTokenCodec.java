@@ -0,0 +1,35 @@
+package org.kangspace.oauth2.helper.storage.codec;
+
+import lombok.NonNull;
+import org.kangspace.devhelper.json.JsonParser;
+import org.kangspace.oauth2.helper.token.Token;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON Token编解码(UTF-8), 与{@link org.kangspace.oauth2.helper.storage.redis.RedisTemplateTokenStorage}默认存储格式一致
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public class JsonTokenCodec<T extends Token> implements TokenCodec<T> {
+    private final Class<T> tokenClass;
+
+    public JsonTokenCodec(@NonNull Class<T> tokenClass) {
+        this.tokenClass = tokenClass;
+    }
+
+    @Override
+    public byte[] encode(@Nonnull T token) {
+        return JsonParser.toJsonString(token).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        return JsonParser.parse(new String(bytes, StandardCharsets.UTF_8), tokenClass);
+    }
+}
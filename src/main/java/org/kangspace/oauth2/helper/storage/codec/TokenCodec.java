@@ -0,0 +1,31 @@
+package org.kangspace.oauth2.helper.storage.codec;
+
+import org.kangspace.oauth2.helper.token.Token;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Token编解码接口 <br>
+ * 用于Redis等存储的令牌序列化, 见{@link JsonTokenCodec}、{@link BinaryTokenCodec}
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public interface TokenCodec<T extends Token> {
+
+    /**
+     * 编码
+     *
+     * @param token 令牌
+     * @return 字节数组
+     */
+    byte[] encode(@Nonnull T token);
+
+    /**
+     * 解码
+     *
+     * @param bytes 字节数组
+     * @return 令牌, bytes为空时返回null
+     */
+    T decode(byte[] bytes);
+}
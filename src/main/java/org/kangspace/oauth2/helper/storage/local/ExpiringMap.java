@@ -0,0 +1,242 @@
+package org.kangspace.oauth2.helper.storage.local;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 带过期时间的本地Map <br>
+ * 基于{@link ConcurrentHashMap}, 读取无锁; 过期条目在读取时惰性删除, 写入时按清理间隔批量删除;
+ * 超过最大条目数时先删除已过期条目, 再按{@link EvictionPolicy}淘汰至上限的90%
+ *
+ * @param <K> key类型
+ * @param <V> value类型
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class ExpiringMap<K, V> {
+    /**
+     * 默认最大条目数
+     */
+    public static final int DEFAULT_MAX_SIZE = 2048;
+
+    /**
+     * 默认过期清理间隔(毫秒)
+     */
+    public static final long DEFAULT_SWEEP_INTERVAL_MILLIS = 60_000L;
+
+    /**
+     * 淘汰策略
+     */
+    public enum EvictionPolicy {
+        /**
+         * 淘汰最久未访问的条目
+         */
+        LRU,
+        /**
+         * 淘汰最早过期的条目
+         */
+        EARLIEST_EXPIRY
+    }
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final EvictionPolicy evictionPolicy;
+    private final long sweepIntervalMillis;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder evictions = new LongAdder();
+    private volatile long nextSweepMillis;
+
+    public ExpiringMap() {
+        this(DEFAULT_MAX_SIZE, EvictionPolicy.LRU);
+    }
+
+    public ExpiringMap(int maxSize, @NonNull EvictionPolicy evictionPolicy) {
+        this(maxSize, evictionPolicy, DEFAULT_SWEEP_INTERVAL_MILLIS);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param maxSize             最大条目数
+     * @param evictionPolicy      淘汰策略
+     * @param sweepIntervalMillis 过期清理间隔(毫秒)
+     */
+    public ExpiringMap(int maxSize, @NonNull EvictionPolicy evictionPolicy, long sweepIntervalMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0");
+        }
+        if (sweepIntervalMillis <= 0) {
+            throw new IllegalArgumentException("sweepIntervalMillis must be greater than 0");
+        }
+        this.maxSize = maxSize;
+        this.evictionPolicy = evictionPolicy;
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        this.nextSweepMillis = System.currentTimeMillis() + sweepIntervalMillis;
+    }
+
+    /**
+     * 写入
+     *
+     * @param key       key
+     * @param value     value
+     * @param ttlMillis 有效时间(毫秒)
+     */
+    public void put(@NonNull K key, @NonNull V value, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        put(key, value, now, now + ttlMillis);
+    }
+
+    /**
+     * 写入
+     *
+     * @param key             key
+     * @param value           value
+     * @param createdAtMillis 创建时间(毫秒时间戳)
+     * @param expiresAtMillis 过期时间(毫秒时间戳)
+     */
+    public void put(@NonNull K key, @NonNull V value, long createdAtMillis, long expiresAtMillis) {
+        entries.put(key, new Entry<>(value, createdAtMillis, expiresAtMillis));
+        if (entries.size() > maxSize || System.currentTimeMillis() >= nextSweepMillis) {
+            evict();
+        }
+    }
+
+    /**
+     * 读取
+     *
+     * @param key key
+     * @return value, 不存在或已过期时返回null
+     */
+    public V get(@NonNull K key) {
+        Entry<V> entry = getEntry(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * 读取条目
+     *
+     * @param key key
+     * @return 条目, 不存在或已过期时返回null
+     */
+    public Entry<V> getEntry(@NonNull K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry.expiresAtMillis <= now) {
+            entries.remove(key, entry);
+            return null;
+        }
+        // 同一毫秒内不重复写入, 减少热点条目的缓存行竞争
+        if (evictionPolicy == EvictionPolicy.LRU && entry.lastAccessMillis != now) {
+            entry.lastAccessMillis = now;
+        }
+        return entry;
+    }
+
+    /**
+     * 删除
+     *
+     * @param key key
+     */
+    public void remove(@NonNull K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * 清空
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 获取条目数(可能包含尚未清理的过期条目)
+     *
+     * @return 条目数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 获取淘汰条目数(不含过期删除)
+     *
+     * @return 淘汰条目数
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 删除过期条目; 超过最大条目数时按淘汰策略淘汰至上限的90%
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            nextSweepMillis = now + sweepIntervalMillis;
+            entries.entrySet().removeIf(entry -> entry.getValue().expiresAtMillis <= now);
+            if (entries.size() <= maxSize) {
+                return;
+            }
+            int target = Math.max(1, maxSize - maxSize / 10);
+            List<Map.Entry<K, Entry<V>>> live = new ArrayList<>(entries.entrySet());
+            live.sort(evictionPolicy == EvictionPolicy.LRU
+                    ? Comparator.comparingLong(e -> e.getValue().lastAccessMillis)
+                    : Comparator.comparingLong(e -> e.getValue().expiresAtMillis));
+            int excess = entries.size() - target;
+            for (int i = 0; i < excess && i < live.size(); i++) {
+                if (entries.remove(live.get(i).getKey(), live.get(i).getValue())) {
+                    evictions.increment();
+                }
+            }
+            log.debug("ExpiringMap: evict entries, size: {}, maxSize: {}", entries.size(), maxSize);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 条目
+     *
+     * @param <V> value类型
+     */
+    public static final class Entry<V> {
+        private final V value;
+        private final long createdAtMillis;
+        private final long expiresAtMillis;
+        private volatile long lastAccessMillis;
+
+        Entry(V value, long createdAtMillis, long expiresAtMillis) {
+            this.value = value;
+            this.createdAtMillis = createdAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+            this.lastAccessMillis = System.currentTimeMillis();
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public long getCreatedAtMillis() {
+            return createdAtMillis;
+        }
+
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+    }
+}
@@ -1,62 +1,90 @@
 package org.kangspace.oauth2.helper.storage.local;
 
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.jcs.JCS;
-import org.apache.commons.jcs.access.CacheAccess;
-import org.apache.commons.jcs.engine.ElementAttributes;
-import org.apache.commons.jcs.engine.behavior.IElementAttributes;
 import org.kangspace.oauth2.helper.storage.TokenStorage;
 import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
 
 import javax.annotation.Nonnull;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 本地缓存Token存储
+ * 本地缓存Token存储 <br>
+ * 每个实例独立存储, 基于{@link ExpiringMap}, 默认最多{@link ExpiringMap#DEFAULT_MAX_SIZE}个token, 超出时淘汰最久未访问的token
  *
  * @author kango2gler@gmail.com
  * @since 0.0.1
  */
 @Slf4j
 public class InMemoryTokenStorage<T extends Token> implements TokenStorage<T> {
+    private final ExpiringMap<String, T> tokens;
+
+    public InMemoryTokenStorage() {
+        this(ExpiringMap.DEFAULT_MAX_SIZE, ExpiringMap.EvictionPolicy.LRU);
+    }
+
     /**
-     * 缓存名称
-     */
-    private static final String OAUTH2_TOKEN_CACHE = "oauth2TokenCache";
-    /**
-     * 获取jcs内存缓存
+     * 构造方法
+     *
+     * @param maxSize        最大token数
+     * @param evictionPolicy 超出最大token数时的淘汰策略
      */
-    private final static CacheAccess<String, Token> TOKEN_CACHE = JCS.getInstance(OAUTH2_TOKEN_CACHE);
-
-    static {
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            try {
-                TOKEN_CACHE.dispose();
-                log.info("InMemoryTokenStorage shutdown finished");
-            } catch (Exception e) {
-                log.error("InMemoryTokenStorage shutdown error: {}", e.getMessage(), e);
-            }
-        }));
+    public InMemoryTokenStorage(int maxSize, @NonNull ExpiringMap.EvictionPolicy evictionPolicy) {
+        this.tokens = new ExpiringMap<>(maxSize, evictionPolicy);
     }
 
     @Override
     public void set(@Nonnull String identity, @Nonnull T value) {
+        set(identity, value, Objects.requireNonNull(value.getExpiresIn()));
+    }
+
+    @Override
+    public void set(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds) {
         String key = getKey(identity);
-        IElementAttributes elementAttributes = new ElementAttributes();
-        elementAttributes.setMaxLife(Objects.requireNonNull(value.getExpiresIn()));
-        elementAttributes.setIsEternal(false);
-        elementAttributes.setIsRemote(false);
-        elementAttributes.setIsSpool(false);
-        TOKEN_CACHE.put(key, value, elementAttributes);
-        log.debug("InMemoryTokenStorage: set token to local cache, key: {}, value: {}", key, value);
+        tokens.put(key, value, TimeUnit.SECONDS.toMillis(ttlSeconds));
+        log.debug("InMemoryTokenStorage: set token to local cache, key: {}, value: {}, ttl: {}", key, value, ttlSeconds);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public T get(@Nonnull String identity) {
         String key = getKey(identity);
-        T token = (T) TOKEN_CACHE.get(key);
+        T token = tokens.get(key);
         log.debug("InMemoryTokenStorage: get token from local cache, key: {}, value: {}", key, token);
         return token;
     }
+
+    @Override
+    public void setEnvelope(@Nonnull String identity, @Nonnull TokenEnvelope<T> envelope) {
+        tokens.put(getKey(identity), envelope.getToken(), envelope.getIssuedAtMillis(), envelope.getExpiresAtMillis());
+    }
+
+    @Override
+    public TokenEnvelope<T> getEnvelope(@Nonnull String identity) {
+        ExpiringMap.Entry<T> entry = tokens.getEntry(getKey(identity));
+        if (entry == null) {
+            return null;
+        }
+        return new TokenEnvelope<>(entry.getValue(), entry.getCreatedAtMillis(), entry.getExpiresAtMillis());
+    }
+
+    /**
+     * 本存储即为令牌的唯一存储, 无需失效 <br>
+     * 刷新token时保留当前token, 用于读取刷新token及刷新失败时继续使用
+     *
+     * @param identity 令牌唯一标识
+     */
+    @Override
+    public void invalidate(@Nonnull String identity) {
+    }
+
+    /**
+     * 获取当前token数
+     *
+     * @return token数
+     */
+    public int size() {
+        return tokens.size();
+    }
 }
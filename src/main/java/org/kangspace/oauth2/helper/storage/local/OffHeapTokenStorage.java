@@ -0,0 +1,559 @@
+package org.kangspace.oauth2.helper.storage.local;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.exception.OAuth2HelperException;
+import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.storage.codec.BinaryTokenCodec;
+import org.kangspace.oauth2.helper.storage.codec.TokenCodec;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+
+import javax.annotation.Nonnull;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 堆外Token存储 <br>
+ * 令牌经{@link TokenCodec}(建议{@link BinaryTokenCodec})编码后保存在直接内存(DirectByteBuffer)中, 不占用Java堆, 适用于单个JVM保存数百万短期token的场景 <br>
+ * 存储按key哈希分为多个段, 每段为固定大小槽位的开放寻址(线性探测)哈希表, 段内读写锁; 删除时回移后续槽位(不使用删除标记),
+ * 过期token不单独清理, 写入时原地复用其槽位 <br>
+ * 容量(token数)全局限制, 各段按期望token数预留余量, 不会因单个段写满而提前拒绝写入; 达到容量时先清理所有段中已过期的token,
+ * 仍已满时抛出{@link OAuth2HelperException}; 可通过{@link #getFootprint()}获取内存占用
+ *
+ * <pre>
+ * 槽位格式: state(1) 保留(3) hash(4) issuedAtMillis(8) expiresAtMillis(8) keyLength(4) valueLength(4) key value
+ * </pre>
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class OffHeapTokenStorage<T extends Token> implements TokenStorage<T> {
+    /**
+     * 默认单个槽位字节数(含32字节槽位头)
+     */
+    public static final int DEFAULT_SLOT_BYTES = 1024;
+
+    /**
+     * 默认段数
+     */
+    public static final int DEFAULT_SEGMENTS = 64;
+
+    /**
+     * 每段最少期望token数, 容量较小时减少段数, 避免各段余量占比过高
+     */
+    private static final int MIN_TOKENS_PER_SEGMENT = 64;
+
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+
+    private static final int HASH_OFFSET = 4;
+    private static final int ISSUED_AT_OFFSET = 8;
+    private static final int EXPIRES_AT_OFFSET = 16;
+    private static final int KEY_LENGTH_OFFSET = 24;
+    private static final int VALUE_LENGTH_OFFSET = 28;
+    private static final int HEADER_BYTES = 32;
+
+    private final TokenCodec<T> codec;
+    private final int capacity;
+    private final int slotBytes;
+    /**
+     * 已使用槽位数(含已过期)
+     */
+    private final AtomicInteger size = new AtomicInteger();
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    /**
+     * 构造方法
+     *
+     * @param codec    Token编解码
+     * @param capacity 最大token数
+     */
+    public OffHeapTokenStorage(@NonNull TokenCodec<T> codec, int capacity) {
+        this(codec, capacity, DEFAULT_SLOT_BYTES, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param codec     Token编解码
+     * @param capacity  最大token数
+     * @param slotBytes 单个槽位字节数, 需容纳槽位头(32字节)、存储key及编码后的token
+     * @param segments  最大段数, 向上取整为2的幂; 容量较小时按每段至少64个token减少段数
+     */
+    public OffHeapTokenStorage(@NonNull TokenCodec<T> codec, int capacity, int slotBytes, int segments) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        if (slotBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("slotBytes must be greater than " + HEADER_BYTES);
+        }
+        if (segments <= 0) {
+            throw new IllegalArgumentException("segments must be greater than 0");
+        }
+        int segmentCount = Math.max(1, Integer.highestOneBit(segments - 1) << 1);
+        segmentCount = Math.max(1, Math.min(segmentCount, Integer.highestOneBit(capacity / MIN_TOKENS_PER_SEGMENT)));
+        long slotsPerSegment = slotsPerSegment(capacity, segmentCount);
+        if (slotsPerSegment * slotBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segment too large, increase segments or decrease slotBytes");
+        }
+        this.codec = codec;
+        this.capacity = capacity;
+        this.slotBytes = slotBytes;
+        this.segmentMask = segmentCount - 1;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment((int) slotsPerSegment, slotBytes, capacity, size);
+        }
+        log.info("OffHeapTokenStorage: allocate {} bytes off-heap, segments: {}, slots per segment: {}",
+                (long) segmentCount * slotsPerSegment * slotBytes, segmentCount, slotsPerSegment);
+    }
+
+    /**
+     * 计算每段槽位数: 按哈希均匀分布时各段token数近似二项分布, 在期望值上预留4倍标准差及固定余量, 再按负载因子0.75计算
+     *
+     * @param capacity     最大token数
+     * @param segmentCount 段数
+     * @return 每段槽位数
+     */
+    static long slotsPerSegment(int capacity, int segmentCount) {
+        double expected = (double) capacity / segmentCount;
+        double headroom = segmentCount == 1 ? 0D : 4 * Math.sqrt(expected * (1 - 1D / segmentCount)) + 8;
+        return Math.max(1L, (long) Math.ceil((expected + headroom) * 4 / 3));
+    }
+
+    @Override
+    public void set(@Nonnull String identity, @Nonnull T value) {
+        set(identity, value, Objects.requireNonNull(value.getExpiresIn()));
+    }
+
+    @Override
+    public void set(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds) {
+        long now = System.currentTimeMillis();
+        put(getKey(identity), value, now, now + TimeUnit.SECONDS.toMillis(ttlSeconds));
+    }
+
+    @Override
+    public T get(@Nonnull String identity) {
+        TokenEnvelope<T> envelope = getEnvelope(identity);
+        return envelope == null ? null : envelope.getToken();
+    }
+
+    @Override
+    public void setEnvelope(@Nonnull String identity, @Nonnull TokenEnvelope<T> envelope) {
+        if (!envelope.isExpired()) {
+            put(getKey(identity), envelope.getToken(), envelope.getIssuedAtMillis(), envelope.getExpiresAtMillis());
+        }
+    }
+
+    @Override
+    public TokenEnvelope<T> getEnvelope(@Nonnull String identity) {
+        String key = getKey(identity);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        long issuedAtMillis;
+        long expiresAtMillis;
+        byte[] value;
+        segment.lock.readLock().lock();
+        try {
+            int offset = segment.find(hash, keyBytes);
+            if (offset < 0) {
+                return null;
+            }
+            ByteBuffer buffer = segment.buffer;
+            expiresAtMillis = buffer.getLong(offset + EXPIRES_AT_OFFSET);
+            if (expiresAtMillis <= System.currentTimeMillis()) {
+                return null;
+            }
+            issuedAtMillis = buffer.getLong(offset + ISSUED_AT_OFFSET);
+            value = new byte[buffer.getInt(offset + VALUE_LENGTH_OFFSET)];
+            ByteBuffer slot = buffer.duplicate();
+            // 转为Buffer调用, 兼容Java 8
+            ((Buffer) slot).position(offset + HEADER_BYTES + keyBytes.length);
+            slot.get(value);
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+        T token = codec.decode(value);
+        log.debug("OffHeapTokenStorage: get token from off-heap, key: {}, value: {}", key, token);
+        return token == null ? null : new TokenEnvelope<>(token, issuedAtMillis, expiresAtMillis);
+    }
+
+    /**
+     * 本存储即为令牌的唯一存储, 无需失效, 过期token按过期时间清理 <br>
+     * 刷新token时保留当前token, 用于读取刷新token及刷新失败时继续使用
+     *
+     * @param identity 令牌唯一标识
+     */
+    @Override
+    public void invalidate(@Nonnull String identity) {
+    }
+
+    /**
+     * 删除token
+     *
+     * @param identity 令牌唯一标识
+     */
+    public void remove(@Nonnull String identity) {
+        String key = getKey(identity);
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        segment.lock.writeLock().lock();
+        try {
+            int offset = segment.find(hash, key.getBytes(StandardCharsets.UTF_8));
+            if (offset >= 0) {
+                segment.remove(offset / slotBytes);
+            }
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 写入token
+     *
+     * @param key             token存储key
+     * @param value           token
+     * @param issuedAtMillis  获取时间(毫秒时间戳)
+     * @param expiresAtMillis 过期时间(毫秒时间戳)
+     */
+    private void put(String key, T value, long issuedAtMillis, long expiresAtMillis) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] valueBytes = codec.encode(value);
+        if (HEADER_BYTES + keyBytes.length + valueBytes.length > slotBytes) {
+            throw new OAuth2HelperException("token过大, 无法写入堆外存储, key: " + key + ", bytes: "
+                    + (keyBytes.length + valueBytes.length) + ", slotBytes: " + slotBytes);
+        }
+        int hash = hash(key);
+        Segment segment = segmentFor(hash);
+        // 已满时清理所有段中已过期的token后重试一次
+        if (!put(segment, hash, keyBytes, valueBytes, issuedAtMillis, expiresAtMillis)
+                && (sweepExpired() == 0 || !put(segment, hash, keyBytes, valueBytes, issuedAtMillis, expiresAtMillis))) {
+            throw new OAuth2HelperException("堆外token存储已满, capacity: " + capacity + ", size: " + size.get());
+        }
+        log.debug("OffHeapTokenStorage: set token to off-heap, key: {}, value: {}, expiresAt: {}", key, value,
+                expiresAtMillis);
+    }
+
+    private boolean put(Segment segment, int hash, byte[] keyBytes, byte[] valueBytes, long issuedAtMillis,
+                        long expiresAtMillis) {
+        segment.lock.writeLock().lock();
+        try {
+            return segment.put(hash, keyBytes, valueBytes, issuedAtMillis, expiresAtMillis);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 清理所有段中已过期的token
+     *
+     * @return 清理的token数
+     */
+    private int sweepExpired() {
+        int removed = 0;
+        long now = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            segment.lock.writeLock().lock();
+            try {
+                removed += segment.sweepExpired(now);
+            } finally {
+                segment.lock.writeLock().unlock();
+            }
+        }
+        log.debug("OffHeapTokenStorage: sweep expired tokens, removed: {}, size: {}", removed, size.get());
+        return removed;
+    }
+
+    /**
+     * 获取当前保存的token数(可能包含尚未复用的过期token)
+     *
+     * @return token数
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                size += segment.used;
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 获取内存占用(遍历所有槽位统计已过期token)
+     *
+     * @return 内存占用
+     */
+    public Footprint getFootprint() {
+        long offHeapBytes = 0;
+        long slots = 0;
+        long used = 0;
+        long expired = 0;
+        long now = System.currentTimeMillis();
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                offHeapBytes += segment.buffer.capacity();
+                slots += segment.slots;
+                used += segment.used;
+                expired += segment.countExpired(now);
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return new Footprint(offHeapBytes, slotBytes, slots, used - expired, expired);
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[hash & segmentMask];
+    }
+
+    private static int hash(String key) {
+        // murmur3 fmix32, 相近的key(如仅后缀不同)也能均匀分布到各段
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 内存占用
+     */
+    @Getter
+    @ToString
+    public static final class Footprint {
+        /**
+         * 堆外内存字节数
+         */
+        private final long offHeapBytes;
+        private final int slotBytes;
+        private final long slots;
+        /**
+         * 有效token数
+         */
+        private final long liveCount;
+        /**
+         * 已过期但尚未复用的token数
+         */
+        private final long expiredCount;
+
+        public Footprint(long offHeapBytes, int slotBytes, long slots, long liveCount, long expiredCount) {
+            this.offHeapBytes = offHeapBytes;
+            this.slotBytes = slotBytes;
+            this.slots = slots;
+            this.liveCount = liveCount;
+            this.expiredCount = expiredCount;
+        }
+
+        /**
+         * 获取槽位使用率
+         *
+         * @return 槽位使用率
+         */
+        public double getLoadFactor() {
+            return slots == 0 ? 0D : (double) (liveCount + expiredCount) / slots;
+        }
+    }
+
+    /**
+     * 段: 固定槽位的开放寻址哈希表
+     */
+    private static final class Segment {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final int slots;
+        private final int slotBytes;
+        private final int capacity;
+        private final AtomicInteger size;
+        private final ByteBuffer buffer;
+        /**
+         * 已使用槽位数(含已过期)
+         */
+        private int used;
+
+        Segment(int slots, int slotBytes, int capacity, AtomicInteger size) {
+            this.slots = slots;
+            this.slotBytes = slotBytes;
+            this.capacity = capacity;
+            this.size = size;
+            this.buffer = ByteBuffer.allocateDirect(slots * slotBytes);
+        }
+
+        private int start(int hash) {
+            // 段由hash低位确定, 段内起始槽位使用乘法散列后的高位
+            return ((hash * 0x9E3779B9) >>> 1) % slots;
+        }
+
+        private int next(int index) {
+            return index + 1 == slots ? 0 : index + 1;
+        }
+
+        /**
+         * 查找key所在槽位
+         *
+         * @param hash     key哈希
+         * @param keyBytes key
+         * @return 槽位偏移量, 不存在时返回-1
+         */
+        int find(int hash, byte[] keyBytes) {
+            int index = start(hash);
+            for (int i = 0; i < slots; i++) {
+                int offset = index * slotBytes;
+                if (buffer.get(offset) == EMPTY) {
+                    return -1;
+                }
+                if (matches(offset, hash, keyBytes)) {
+                    return offset;
+                }
+                index = next(index);
+            }
+            return -1;
+        }
+
+        /**
+         * 写入: 已存在时原地覆盖, 否则优先复用探测路径上已过期的槽位, 再使用空槽位(受全局容量限制)
+         *
+         * @return 是否写入, 已满时返回false
+         */
+        boolean put(int hash, byte[] keyBytes, byte[] valueBytes, long issuedAtMillis, long expiresAtMillis) {
+            long now = System.currentTimeMillis();
+            int reusable = -1;
+            int empty = -1;
+            int index = start(hash);
+            for (int i = 0; i < slots; i++) {
+                int offset = index * slotBytes;
+                if (buffer.get(offset) == EMPTY) {
+                    empty = offset;
+                    break;
+                }
+                if (matches(offset, hash, keyBytes)) {
+                    write(offset, hash, keyBytes, valueBytes, issuedAtMillis, expiresAtMillis);
+                    return true;
+                }
+                if (reusable < 0 && buffer.getLong(offset + EXPIRES_AT_OFFSET) <= now) {
+                    reusable = offset;
+                }
+                index = next(index);
+            }
+            // 探测路径上的过期槽位可直接复用, 不影响其他key的查找
+            if (reusable >= 0) {
+                write(reusable, hash, keyBytes, valueBytes, issuedAtMillis, expiresAtMillis);
+                return true;
+            }
+            if (empty < 0) {
+                return false;
+            }
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                return false;
+            }
+            used++;
+            write(empty, hash, keyBytes, valueBytes, issuedAtMillis, expiresAtMillis);
+            return true;
+        }
+
+        /**
+         * 删除槽位, 并将后续探测路径上的槽位回移(线性探测的无删除标记删除), 保证其他key仍可查找到
+         *
+         * @param index 槽位下标
+         */
+        void remove(int index) {
+            int hole = index;
+            int j = index;
+            for (int i = 1; i < slots; i++) {
+                j = next(j);
+                int offset = j * slotBytes;
+                if (buffer.get(offset) == EMPTY) {
+                    break;
+                }
+                int home = start(buffer.getInt(offset + HASH_OFFSET));
+                // home在(hole, j]之间时, 槽位j无需回移
+                boolean stays = hole <= j ? hole < home && home <= j : hole < home || home <= j;
+                if (!stays) {
+                    ByteBuffer source = buffer.duplicate();
+                    ((Buffer) source).position(offset).limit(offset + slotBytes);
+                    ByteBuffer target = buffer.duplicate();
+                    ((Buffer) target).position(hole * slotBytes);
+                    target.put(source);
+                    hole = j;
+                }
+            }
+            buffer.put(hole * slotBytes, EMPTY);
+            used--;
+            size.decrementAndGet();
+        }
+
+        /**
+         * 原地删除已过期的槽位
+         *
+         * @param now 当前时间
+         * @return 删除的槽位数
+         */
+        int sweepExpired(long now) {
+            int removed = 0;
+            for (int index = 0; index < slots; ) {
+                int offset = index * slotBytes;
+                if (buffer.get(offset) == USED && buffer.getLong(offset + EXPIRES_AT_OFFSET) <= now) {
+                    // 回移后当前槽位可能为新的过期token, 不前进
+                    remove(index);
+                    removed++;
+                } else {
+                    index++;
+                }
+            }
+            return removed;
+        }
+
+        private void write(int offset, int hash, byte[] keyBytes, byte[] valueBytes, long issuedAtMillis,
+                           long expiresAtMillis) {
+            buffer.putInt(offset + HASH_OFFSET, hash)
+                    .putLong(offset + ISSUED_AT_OFFSET, issuedAtMillis)
+                    .putLong(offset + EXPIRES_AT_OFFSET, expiresAtMillis)
+                    .putInt(offset + KEY_LENGTH_OFFSET, keyBytes.length)
+                    .putInt(offset + VALUE_LENGTH_OFFSET, valueBytes.length);
+            ByteBuffer slot = buffer.duplicate();
+            ((Buffer) slot).position(offset + HEADER_BYTES);
+            slot.put(keyBytes).put(valueBytes);
+            buffer.put(offset, USED);
+        }
+
+        private boolean matches(int offset, int hash, byte[] keyBytes) {
+            if (buffer.getInt(offset + HASH_OFFSET) != hash
+                    || buffer.getInt(offset + KEY_LENGTH_OFFSET) != keyBytes.length) {
+                return false;
+            }
+            int keyOffset = offset + HEADER_BYTES;
+            for (int i = 0; i < keyBytes.length; i++) {
+                if (buffer.get(keyOffset + i) != keyBytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int countExpired(long now) {
+            int expired = 0;
+            for (int offset = 0; offset < buffer.capacity(); offset += slotBytes) {
+                if (buffer.get(offset) == USED && buffer.getLong(offset + EXPIRES_AT_OFFSET) <= now) {
+                    expired++;
+                }
+            }
+            return expired;
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package org.kangspace.oauth2.helper.storage.local;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 多租户Token注册表 <br>
+ * 按(令牌唯一标识, grantType, scope)保存token, 同一租户的所有Service实例共享同一token; 租户数超过上限时优先淘汰已过期的token,
+ * 其次淘汰最久未访问的租户; 可指定空闲时间, 淘汰长时间未访问的租户; 按租户统计命中/未命中次数 <br>
+ * access token过期后保留refresh token, 供续期时使用 <br>
+ * 通过{@link #storage(String, String)}以{@link TokenStorage}形式使用, 令牌唯一标识为clientId(密码模式为clientId:username):
+ *
+ * <pre>
+ * TokenStorage&lt;WeChatToken&gt; tokenStorage = TokenRegistry.getDefault().storage(TokenRegistry.GRANT_TYPE_CLIENT_CREDENTIALS, null);
+ * </pre>
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class TokenRegistry {
+    /**
+     * 客户端模式
+     */
+    public static final String GRANT_TYPE_CLIENT_CREDENTIALS = "client_credentials";
+
+    /**
+     * 密码模式
+     */
+    public static final String GRANT_TYPE_PASSWORD = "password";
+
+    /**
+     * 默认最大租户数
+     */
+    public static final int DEFAULT_MAX_TENANTS = 10_000;
+
+    /**
+     * 默认空闲时间(毫秒)
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 60_000L;
+
+    /**
+     * 最小空闲清理间隔(毫秒)
+     */
+    private static final long MIN_SWEEP_INTERVAL_MILLIS = 1000L;
+
+    /**
+     * 默认注册表
+     */
+    private static final TokenRegistry DEFAULT = new TokenRegistry(DEFAULT_MAX_TENANTS);
+
+    /**
+     * 最大租户数
+     */
+    private final int maxTenants;
+
+    /**
+     * 空闲时间(毫秒), 不大于0时不淘汰空闲租户
+     */
+    private final long idleTimeoutMillis;
+
+    /**
+     * 下次空闲清理时间(毫秒时间戳)
+     */
+    private volatile long nextSweepMillis;
+
+    private final ConcurrentMap<TenantKey, TokenHolder> holders = new ConcurrentHashMap<>();
+
+    /**
+     * 各(grantType, scope)的TokenStorage视图
+     */
+    private final ConcurrentMap<String, TokenStorage<? extends Token>> storages = new ConcurrentHashMap<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * 淘汰的租户数
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    public TokenRegistry(int maxTenants) {
+        this(maxTenants, 0L);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param maxTenants        最大租户数
+     * @param idleTimeoutMillis 空闲时间(毫秒), 超过该时间未访问的租户被淘汰, 不大于0时不淘汰
+     */
+    public TokenRegistry(int maxTenants, long idleTimeoutMillis) {
+        if (maxTenants <= 0) {
+            throw new IllegalArgumentException("maxTenants must be greater than 0");
+        }
+        this.maxTenants = maxTenants;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.nextSweepMillis = System.currentTimeMillis() + sweepIntervalMillis();
+    }
+
+    /**
+     * 获取默认注册表(进程内共享)
+     *
+     * @return 默认注册表
+     */
+    public static TokenRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 获取指定授权模式及scope的TokenStorage视图
+     *
+     * @param grantType 授权模式
+     * @param scope     授权范围, 可为null
+     * @param <T>       Token类型
+     * @return TokenStorage
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Token> TokenStorage<T> storage(@NonNull String grantType, String scope) {
+        return (TokenStorage<T>) storages.computeIfAbsent(grantType + ":" + (scope == null ? "" : scope),
+                k -> new RegistryTokenStorage<>(this, grantType, scope));
+    }
+
+    /**
+     * 获取token
+     *
+     * @param key 租户key
+     * @return Token信封, 不存在或已过期时返回null
+     */
+    TokenEnvelope<Token> getEnvelope(TenantKey key) {
+        TokenHolder holder = holder(key);
+        holder.lastAccessNanos = System.nanoTime();
+        TokenEnvelope<Token> envelope = holder.envelope.get();
+        if (envelope == null || envelope.isExpired()) {
+            // 仅清除读取到的过期token, 不覆盖并发写入的新token
+            if (envelope != null) {
+                holder.envelope.compareAndSet(envelope, null);
+            }
+            holder.misses.increment();
+            return null;
+        }
+        holder.hits.increment();
+        return envelope;
+    }
+
+    /**
+     * 设置token
+     *
+     * @param key      租户key
+     * @param envelope Token信封
+     */
+    void setEnvelope(TenantKey key, TokenEnvelope<Token> envelope) {
+        TokenHolder holder = holder(key);
+        holder.lastAccessNanos = System.nanoTime();
+        holder.envelope.set(envelope);
+        if (envelope.getToken().getRefreshToken() != null) {
+            holder.refreshToken = envelope.getToken().getRefreshToken();
+        }
+        // 并发淘汰时重新放回
+        if (holders.get(key) != holder) {
+            holders.putIfAbsent(key, holder);
+        }
+    }
+
+    /**
+     * 获取保留的refresh token
+     *
+     * @param key 租户key
+     * @return refresh token, 不存在时返回null
+     */
+    String getRefreshToken(TenantKey key) {
+        TokenHolder holder = holders.get(key);
+        return holder == null ? null : holder.refreshToken;
+    }
+
+    /**
+     * 获取租户token持有者, 不存在时创建(首次读取计入未命中), 超过最大租户数或到达空闲清理时间时淘汰
+     *
+     * @param key 租户key
+     * @return token持有者
+     */
+    private TokenHolder holder(TenantKey key) {
+        TokenHolder holder = holders.get(key);
+        if (holder == null) {
+            holder = holders.computeIfAbsent(key, k -> new TokenHolder());
+            if (holders.size() > maxTenants) {
+                evict();
+                return holder;
+            }
+        }
+        if (idleTimeoutMillis > 0 && System.currentTimeMillis() >= nextSweepMillis) {
+            evict();
+        }
+        return holder;
+    }
+
+    /**
+     * 淘汰租户: 淘汰空闲租户; 超过最大租户数时淘汰至上限的90%, 优先淘汰token不存在或已过期的租户, 其次淘汰最久未访问的租户
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            nextSweepMillis = now + sweepIntervalMillis();
+            if (idleTimeoutMillis > 0) {
+                long nowNanos = System.nanoTime();
+                long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+                holders.entrySet().removeIf(entry -> {
+                    boolean idle = nowNanos - entry.getValue().lastAccessNanos > idleTimeoutNanos;
+                    if (idle) {
+                        evictions.increment();
+                    }
+                    return idle;
+                });
+            }
+            if (holders.size() <= maxTenants) {
+                return;
+            }
+            int target = Math.max(1, maxTenants - maxTenants / 10);
+            List<Map.Entry<TenantKey, TokenHolder>> live = new ArrayList<>(holders.size());
+            for (Map.Entry<TenantKey, TokenHolder> entry : holders.entrySet()) {
+                TokenEnvelope<Token> envelope = entry.getValue().envelope.get();
+                if (envelope == null || envelope.isExpired()) {
+                    if (holders.remove(entry.getKey(), entry.getValue())) {
+                        evictions.increment();
+                    }
+                } else {
+                    live.add(entry);
+                }
+            }
+            int excess = holders.size() - target;
+            if (excess > 0) {
+                live.sort(Comparator.comparingLong(e -> e.getValue().lastAccessNanos));
+                for (int i = 0; i < excess && i < live.size(); i++) {
+                    if (holders.remove(live.get(i).getKey(), live.get(i).getValue())) {
+                        evictions.increment();
+                    }
+                }
+            }
+            log.debug("TokenRegistry: evict tenants, size: {}, maxTenants: {}", holders.size(), maxTenants);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private long sweepIntervalMillis() {
+        return Math.max(MIN_SWEEP_INTERVAL_MILLIS, idleTimeoutMillis / 2);
+    }
+
+    /**
+     * 获取租户统计
+     *
+     * @param key 租户key
+     * @return 租户统计, 租户不存在时返回null
+     */
+    public TenantStats getStats(@NonNull TenantKey key) {
+        TokenHolder holder = holders.get(key);
+        return holder == null ? null : new TenantStats(holder.hits.sum(), holder.misses.sum());
+    }
+
+    /**
+     * 获取所有租户统计
+     *
+     * @return 租户统计
+     */
+    public Map<TenantKey, TenantStats> getAllStats() {
+        Map<TenantKey, TenantStats> stats = new HashMap<>(holders.size() * 4 / 3 + 1);
+        holders.forEach((key, holder) -> stats.put(key, new TenantStats(holder.hits.sum(), holder.misses.sum())));
+        return stats;
+    }
+
+    /**
+     * 获取当前租户数
+     *
+     * @return 租户数
+     */
+    public int size() {
+        return holders.size();
+    }
+
+    /**
+     * 获取最大租户数
+     *
+     * @return 最大租户数
+     */
+    public int getMaxTenants() {
+        return maxTenants;
+    }
+
+    /**
+     * 获取空闲时间(毫秒)
+     *
+     * @return 空闲时间(毫秒)
+     */
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * 获取淘汰的租户数
+     *
+     * @return 淘汰的租户数
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * 租户key
+     */
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    public static final class TenantKey {
+        /**
+         * 令牌唯一标识, clientId(密码模式为clientId:username)
+         */
+        private final String identity;
+        private final String grantType;
+        private final String scope;
+
+        public TenantKey(@NonNull String identity, @NonNull String grantType, String scope) {
+            this.identity = identity;
+            this.grantType = grantType;
+            this.scope = scope;
+        }
+    }
+
+    /**
+     * 租户统计
+     */
+    @Getter
+    @ToString
+    public static final class TenantStats {
+        private final long hitCount;
+        private final long missCount;
+
+        public TenantStats(long hitCount, long missCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+        }
+
+        /**
+         * 获取命中率
+         *
+         * @return 命中率, 无访问时为0
+         */
+        public double getHitRatio() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0D : (double) hitCount / total;
+        }
+    }
+
+    /**
+     * 租户token持有者, 同一租户的所有Service实例共享
+     */
+    private static final class TokenHolder {
+        private final AtomicReference<TokenEnvelope<Token>> envelope = new AtomicReference<>();
+        /**
+         * 最近一次写入的refresh token, access token过期后仍保留
+         */
+        private volatile String refreshToken;
+        /**
+         * 最近访问时间(纳秒), 毫秒精度下同一毫秒内访问的租户无法区分先后
+         */
+        private volatile long lastAccessNanos = System.nanoTime();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+
+    /**
+     * 注册表TokenStorage视图
+     */
+    private static final class RegistryTokenStorage<T extends Token> implements TokenStorage<T> {
+        private final TokenRegistry registry;
+        private final String grantType;
+        private final String scope;
+        private final String keyPrefix;
+
+        private RegistryTokenStorage(TokenRegistry registry, String grantType, String scope) {
+            this.registry = registry;
+            this.grantType = grantType;
+            this.scope = scope;
+            this.keyPrefix = DEFAULT_TOKEN_KEY_PREFIX + grantType + ":" + (scope == null ? "" : scope + ":");
+        }
+
+        @Override
+        public void set(@Nonnull String identity, @Nonnull T value) {
+            setEnvelope(identity, TokenEnvelope.of(value, System.currentTimeMillis(), 0L));
+        }
+
+        @Override
+        public void set(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds) {
+            long now = System.currentTimeMillis();
+            setEnvelope(identity, new TokenEnvelope<>(value, now, now + TimeUnit.SECONDS.toMillis(ttlSeconds)));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void setEnvelope(@Nonnull String identity, @Nonnull TokenEnvelope<T> envelope) {
+            registry.setEnvelope(new TenantKey(identity, grantType, scope), (TokenEnvelope<Token>) envelope);
+        }
+
+        @Override
+        public T get(@Nonnull String identity) {
+            TokenEnvelope<T> envelope = getEnvelope(identity);
+            return envelope == null ? null : envelope.getToken();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public TokenEnvelope<T> getEnvelope(@Nonnull String identity) {
+            return (TokenEnvelope<T>) (TokenEnvelope<?>) registry.getEnvelope(new TenantKey(identity, grantType, scope));
+        }
+
+        @Override
+        public String getRefreshToken(@Nonnull String identity) {
+            return registry.getRefreshToken(new TenantKey(identity, grantType, scope));
+        }
+
+        @Override
+        public String getKeyPrefix() {
+            return keyPrefix;
+        }
+    }
+}
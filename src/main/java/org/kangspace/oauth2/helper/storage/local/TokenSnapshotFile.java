@@ -0,0 +1,195 @@
+package org.kangspace.oauth2.helper.storage.local;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.devhelper.json.JsonParser;
+import org.kangspace.oauth2.helper.exception.OAuth2HelperException;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token快照文件(内存映射) <br>
+ * 保存仍在有效期内的token及其绝对过期时间, 节点重启时直接加载, 无需请求token服务器 <br>
+ * 文件包含token明文, 写入时在支持的文件系统上设置为仅所有者可读写
+ *
+ * <pre>
+ * 文件格式: magic(int) version(int) count(int) { key token类名 issuedAtMillis expiresAtMillis token(JSON) }...
+ * 字符串: length(int) + UTF-8字节
+ * </pre>
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class TokenSnapshotFile {
+    private static final int MAGIC = 0x4f413253;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    private final Path path;
+
+    public TokenSnapshotFile(@NonNull Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 写入快照, 仅写入未过期的token; 先写入临时文件再替换, 避免读取到不完整的快照
+     *
+     * @param envelopes token存储key - Token信封
+     */
+    public void save(@NonNull Map<String, ? extends TokenEnvelope<? extends Token>> envelopes) {
+        List<byte[]> fields = new ArrayList<>();
+        int count = 0;
+        int size = HEADER_BYTES;
+        for (Map.Entry<String, ? extends TokenEnvelope<? extends Token>> entry : envelopes.entrySet()) {
+            TokenEnvelope<? extends Token> envelope = entry.getValue();
+            if (envelope == null || envelope.isExpired()) {
+                continue;
+            }
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] type = envelope.getToken().getClass().getName().getBytes(StandardCharsets.UTF_8);
+            byte[] token = JsonParser.toJsonString(envelope.getToken()).getBytes(StandardCharsets.UTF_8);
+            fields.add(key);
+            fields.add(type);
+            fields.add(longs(envelope.getIssuedAtMillis(), envelope.getExpiresAtMillis()));
+            fields.add(token);
+            size += 12 + key.length + type.length + 16 + token.length;
+            count++;
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(tmp);
+            Files.createFile(tmp);
+            restrictPermissions(tmp);
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(count);
+                for (int i = 0; i < fields.size(); i++) {
+                    // 第3个字段为定长的获取/过期时间
+                    if (i % 4 == 2) {
+                        buffer.put(fields.get(i));
+                    } else {
+                        buffer.putInt(fields.get(i).length).put(fields.get(i));
+                    }
+                }
+                buffer.force();
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.info("TokenSnapshotFile: save {} token(s) to {}", count, path);
+        } catch (IOException e) {
+            throw new OAuth2HelperException("写入token快照文件异常, path: " + path + ", error: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取快照, 跳过已过期或无法解析的token; 文件不存在或格式不正确时返回空Map
+     *
+     * @return token存储key - Token信封
+     */
+    public Map<String, TokenEnvelope<Token>> load() {
+        Map<String, TokenEnvelope<Token>> envelopes = new HashMap<>();
+        if (!Files.isRegularFile(path)) {
+            return envelopes;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("TokenSnapshotFile: unsupported snapshot file, ignore it, path: {}", path);
+                return envelopes;
+            }
+            int count = buffer.getInt();
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                String key = string(buffer);
+                String type = string(buffer);
+                long issuedAtMillis = buffer.getLong();
+                long expiresAtMillis = buffer.getLong();
+                String token = string(buffer);
+                if (expiresAtMillis <= now) {
+                    continue;
+                }
+                Token value = parse(type, token);
+                if (value != null) {
+                    envelopes.put(key, new TokenEnvelope<>(value, issuedAtMillis, expiresAtMillis));
+                }
+            }
+            log.info("TokenSnapshotFile: load {} valid token(s) from {}", envelopes.size(), path);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("TokenSnapshotFile: read snapshot file error, path: {}, error: {}", path, e.getMessage());
+        }
+        return envelopes;
+    }
+
+    /**
+     * 获取快照文件路径
+     *
+     * @return 快照文件路径
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 解析token, 仅允许{@link Token}的实现类
+     *
+     * @param type  token类名
+     * @param token token(JSON)
+     * @return token, 无法解析时返回null
+     */
+    private Token parse(String type, String token) {
+        try {
+            Class<?> tokenClass = Class.forName(type, false, Thread.currentThread().getContextClassLoader());
+            if (!Token.class.isAssignableFrom(tokenClass)) {
+                log.warn("TokenSnapshotFile: not a token class, skip it, class: {}", type);
+                return null;
+            }
+            return (Token) JsonParser.parse(token, tokenClass);
+        } catch (Exception e) {
+            log.warn("TokenSnapshotFile: parse token error, skip it, class: {}, error: {}", type, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] longs(long first, long second) {
+        return ByteBuffer.allocate(16).putLong(first).putLong(second).array();
+    }
+
+    private static void restrictPermissions(Path file) {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException e) {
+            log.debug("TokenSnapshotFile: posix file permissions not supported, path: {}", file);
+        }
+    }
+}
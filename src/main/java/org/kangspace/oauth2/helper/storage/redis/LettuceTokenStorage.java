@@ -0,0 +1,245 @@
+package org.kangspace.oauth2.helper.storage.redis;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.devhelper.json.JsonParser;
+import org.kangspace.oauth2.helper.storage.AsyncTokenStorage;
+import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 使用Lettuce实现TokenStorage <br>
+ * <p>
+ * 1. 以JSON字符串存储, 与{@link RedisTemplateTokenStorage}默认存储格式一致 <br>
+ * 2. 实现{@link AsyncTokenStorage}, 异步操作基于Lettuce异步命令, 不阻塞调用线程 <br>
+ * 3. 可重写{@link #getKeyPrefix()}方法，自定义key前缀 <br>
+ * 4. 可开启{@link #setDistributedRefresh(boolean)}分布式刷新模式, 基于SET NX租约key保证集群内仅一个节点请求新token
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public abstract class LettuceTokenStorage<T extends Token> implements TokenStorage<T>, AsyncTokenStorage<T> {
+    private final StatefulRedisConnection<String, String> connection;
+
+    /**
+     * token刷新锁
+     */
+    private final RedisRefreshLock refreshLock;
+
+    /**
+     * 是否开启分布式刷新模式, 默认不开启
+     */
+    @Getter
+    @Setter
+    private boolean distributedRefresh = false;
+
+    /**
+     * token刷新锁等待时间(毫秒)
+     */
+    @Getter
+    @Setter
+    private long refreshLockWaitMillis = DEFAULT_REFRESH_LOCK_WAIT_MILLIS;
+
+    /**
+     * token刷新锁租约时间(毫秒)
+     */
+    @Getter
+    @Setter
+    private long refreshLockLeaseMillis = DEFAULT_REFRESH_LOCK_LEASE_MILLIS;
+
+    /**
+     * 构造方法
+     *
+     * @param connection Lettuce连接(线程安全, 可共享)
+     */
+    public LettuceTokenStorage(StatefulRedisConnection<String, String> connection) {
+        this.connection = connection;
+        this.refreshLock = new RedisRefreshLock() {
+            @Override
+            protected boolean setIfAbsent(String lockKey, String owner, long leaseMillis) {
+                return "OK".equals(connection.sync().set(lockKey, owner, SetArgs.Builder.nx().px(leaseMillis)));
+            }
+
+            @Override
+            protected void releaseIfOwner(String lockKey, String owner) {
+                connection.sync().eval(RELEASE_LOCK_SCRIPT, ScriptOutputType.INTEGER, new String[]{lockKey}, owner);
+            }
+        };
+    }
+
+    /**
+     * 获取Token的Class
+     *
+     * @return Token的Class
+     */
+    protected abstract Class<T> getTokenClass();
+
+    @Override
+    public void set(@Nonnull String identity, @Nonnull T value) {
+        set(identity, value, value.getExpiresIn());
+    }
+
+    @Override
+    public void set(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds) {
+        String key = getKey(identity);
+        connection.sync().setex(key, ttlSeconds, JsonParser.toJsonString(value));
+        log.debug("LettuceTokenStorage: set token to redis, key: {}, value: {}, ttl: {}", key, value, ttlSeconds);
+    }
+
+    @Override
+    public T get(@Nonnull String identity) {
+        String key = getKey(identity);
+        String token = connection.sync().get(key);
+        log.debug("LettuceTokenStorage: get token from redis, key: {}, value: {}", key, token);
+        return parse(token);
+    }
+
+    @Override
+    public void setAll(@Nonnull Map<String, T> values) {
+        setAll(values, Token::getExpiresIn);
+    }
+
+    @Override
+    public void setAll(@Nonnull Map<String, T> values, @Nonnull Long ttlSeconds) {
+        setAll(values, value -> ttlSeconds);
+    }
+
+    /**
+     * 批量设置令牌(异步命令在同一连接上流水线发送)
+     *
+     * @param values     令牌唯一标识 - 令牌
+     * @param ttlSeconds 令牌 - 过期时间(秒)
+     */
+    private void setAll(Map<String, T> values, Function<T, Long> ttlSeconds) {
+        if (values.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<String>> futures = new ArrayList<>(values.size());
+        values.forEach((identity, value) -> futures.add(connection.async().setex(getKey(identity),
+                ttlSeconds.apply(value), JsonParser.toJsonString(value)).toCompletableFuture()));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        log.debug("LettuceTokenStorage: set tokens to redis, size: {}", values.size());
+    }
+
+    /**
+     * 批量获取令牌(MGET, 一次网络请求)
+     *
+     * @param identities 令牌唯一标识
+     * @return 令牌唯一标识 - 令牌
+     */
+    @Override
+    public Map<String, T> getAll(@Nonnull Collection<String> identities) {
+        if (identities.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        String[] keys = identities.stream().map(this::getKey).toArray(String[]::new);
+        return toTokens(identities, connection.sync().mget(keys));
+    }
+
+    @Override
+    public CompletableFuture<T> getAsync(@Nonnull String identity) {
+        String key = getKey(identity);
+        return connection.async().get(key).toCompletableFuture().thenApply(token -> {
+            log.debug("LettuceTokenStorage: get token from redis async, key: {}, value: {}", key, token);
+            return parse(token);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> setAsync(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds) {
+        String key = getKey(identity);
+        return connection.async().setex(key, ttlSeconds, JsonParser.toJsonString(value)).toCompletableFuture()
+                .thenRun(() -> log.debug("LettuceTokenStorage: set token to redis async, key: {}, value: {}, ttl: {}",
+                        key, value, ttlSeconds));
+    }
+
+    /**
+     * 异步批量获取令牌(MGET, 一次网络请求)
+     *
+     * @param identities 令牌唯一标识
+     * @return 令牌唯一标识 - 令牌
+     */
+    @Override
+    public CompletableFuture<Map<String, T>> getAllAsync(@Nonnull Collection<String> identities) {
+        if (identities.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+        String[] keys = identities.stream().map(this::getKey).toArray(String[]::new);
+        return connection.async().mget(keys).toCompletableFuture().thenApply(tokens -> toTokens(identities, tokens));
+    }
+
+    /**
+     * 获取令牌及其过期时间(按Redis key的剩余TTL计算)
+     *
+     * @param identity 令牌唯一标识
+     * @return Token信封, 不存在时返回null
+     */
+    @Override
+    public TokenEnvelope<T> getEnvelope(@Nonnull String identity) {
+        T token = get(identity);
+        if (token == null) {
+            return null;
+        }
+        Long ttlMillis = connection.sync().pttl(getKey(identity));
+        return ttlMillis != null && ttlMillis >= 0 ? TokenEnvelope.ofRemaining(token, ttlMillis)
+                : TokenEnvelope.of(token, System.currentTimeMillis(), 0L);
+    }
+
+    @Override
+    public boolean tryRefreshLock(@Nonnull String identity) {
+        if (!distributedRefresh) {
+            return true;
+        }
+        return refreshLock.tryLock(getRefreshLockKey(identity), refreshLockWaitMillis, refreshLockLeaseMillis);
+    }
+
+    @Override
+    public void releaseRefreshLock(@Nonnull String identity) {
+        refreshLock.unlock(getRefreshLockKey(identity));
+    }
+
+    private T parse(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            return null;
+        }
+        return JsonParser.parse(token, getTokenClass());
+    }
+
+    /**
+     * 按令牌唯一标识整理MGET结果
+     *
+     * @param identities 令牌唯一标识
+     * @param tokens     MGET结果, 与identities顺序一致
+     * @return 令牌唯一标识 - 令牌
+     */
+    private Map<String, T> toTokens(Collection<String> identities, List<KeyValue<String, String>> tokens) {
+        Map<String, T> values = new LinkedHashMap<>(identities.size() * 4 / 3 + 1);
+        int i = 0;
+        for (String identity : identities) {
+            KeyValue<String, String> token = tokens.get(i++);
+            T value = token.hasValue() ? parse(token.getValue()) : null;
+            if (value != null) {
+                values.put(identity, value);
+            }
+        }
+        log.debug("LettuceTokenStorage: get tokens from redis, size: {}, found: {}", identities.size(),
+                values.size());
+        return values;
+    }
+}
@@ -0,0 +1,92 @@
+package org.kangspace.oauth2.helper.storage.redis;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于SET NX租约key的token刷新锁 <br>
+ * 以随机租约值SET NX PX获取锁, 未获取到时轮询至等待超时; 释放时通过{@link #RELEASE_LOCK_SCRIPT}仅删除本节点持有的租约key <br>
+ * 供{@link RedisTemplateTokenStorage}及{@link LettuceTokenStorage}使用, 由子类实现具体的Redis命令
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+abstract class RedisRefreshLock {
+    /**
+     * 释放刷新锁脚本: 仅持有者可删除租约key
+     */
+    static final String RELEASE_LOCK_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+
+    /**
+     * 获取刷新锁轮询间隔(毫秒)
+     */
+    private static final long POLL_MILLIS = 50L;
+
+    /**
+     * 当前节点持有的刷新锁, key: 租约key, value: 租约值
+     */
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    /**
+     * SET key value NX PX leaseMillis
+     *
+     * @param lockKey     租约key
+     * @param owner       租约值
+     * @param leaseMillis 租约时间(毫秒)
+     * @return 是否设置成功
+     */
+    protected abstract boolean setIfAbsent(String lockKey, String owner, long leaseMillis);
+
+    /**
+     * 执行{@link #RELEASE_LOCK_SCRIPT}, 租约值一致时删除租约key
+     *
+     * @param lockKey 租约key
+     * @param owner   租约值
+     */
+    protected abstract void releaseIfOwner(String lockKey, String owner);
+
+    /**
+     * 获取刷新锁
+     *
+     * @param lockKey     租约key
+     * @param waitMillis  等待时间(毫秒)
+     * @param leaseMillis 租约时间(毫秒)
+     * @return 是否获取成功, 等待超时或线程中断时返回false
+     */
+    boolean tryLock(String lockKey, long waitMillis, long leaseMillis) {
+        String owner = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + waitMillis;
+        do {
+            if (setIfAbsent(lockKey, owner, leaseMillis)) {
+                owners.put(lockKey, owner);
+                log.debug("RedisRefreshLock: refresh lock acquired, key: {}", lockKey);
+                return true;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        } while (System.currentTimeMillis() < deadline);
+        return false;
+    }
+
+    /**
+     * 释放当前节点持有的刷新锁, 未持有时忽略
+     *
+     * @param lockKey 租约key
+     */
+    void unlock(String lockKey) {
+        String owner = owners.remove(lockKey);
+        if (owner == null) {
+            return;
+        }
+        releaseIfOwner(lockKey, owner);
+    }
+}
@@ -0,0 +1,133 @@
+package org.kangspace.oauth2.helper.storage.redis;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.devhelper.json.JsonParser;
+import org.kangspace.oauth2.helper.storage.CachingTokenStorage;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.util.UUID;
+
+/**
+ * 使用RedisTemplate实现的两级Token存储 <br>
+ * 本地近端缓存 + Redis共享存储, 节点写入新token时通过Redis发布订阅通知其他节点直接更新本地缓存, 读取token无需访问Redis <br>
+ * 1. 需提供已启动的{@link RedisMessageListenerContainer} <br>
+ * 2. 不再使用时调用{@link #close()}取消订阅
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class RedisTemplateNearCacheTokenStorage<T extends Token> extends CachingTokenStorage<T> implements Closeable {
+    /**
+     * 默认Token更新通知频道
+     */
+    public static final String DEFAULT_CHANNEL = "oauth2-helper:token-update";
+
+    /**
+     * 默认从Redis读取的令牌本地最长缓存时间(毫秒), 更新通过消息推送, 该时间仅用于消息丢失时的兜底
+     */
+    public static final long DEFAULT_MAX_LOADED_TTL_MILLIS = 300_000L;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisTemplateTokenStorage<T> sharedStorage;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String channel;
+    private final MessageListener messageListener = this::onMessage;
+
+    public RedisTemplateNearCacheTokenStorage(@NonNull RedisTemplate<String, String> redisTemplate,
+                                              @NonNull RedisTemplateTokenStorage<T> sharedStorage,
+                                              @NonNull RedisMessageListenerContainer listenerContainer) {
+        this(redisTemplate, sharedStorage, listenerContainer, DEFAULT_CHANNEL);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param redisTemplate     RedisTemplate
+     * @param sharedStorage     Redis共享存储
+     * @param listenerContainer Redis消息监听容器
+     * @param channel           Token更新通知频道
+     */
+    public RedisTemplateNearCacheTokenStorage(@NonNull RedisTemplate<String, String> redisTemplate,
+                                              @NonNull RedisTemplateTokenStorage<T> sharedStorage,
+                                              @NonNull RedisMessageListenerContainer listenerContainer,
+                                              @NonNull String channel) {
+        super(sharedStorage, DEFAULT_REFRESH_MARGIN_MILLIS, DEFAULT_MAX_LOADED_TTL_MILLIS);
+        this.redisTemplate = redisTemplate;
+        this.sharedStorage = sharedStorage;
+        this.listenerContainer = listenerContainer;
+        this.channel = channel;
+        listenerContainer.addMessageListener(messageListener, new ChannelTopic(channel));
+    }
+
+    @Override
+    protected void afterSet(@Nonnull String identity, @Nonnull TokenEnvelope<T> envelope) {
+        super.afterSet(identity, envelope);
+        publish(identity, envelope.getToken(), envelope.remainingTtl().toMillis());
+    }
+
+    /**
+     * 发布Token更新消息
+     *
+     * @param identity  令牌唯一标识
+     * @param value     令牌
+     * @param ttlMillis 令牌剩余有效时间(毫秒)
+     */
+    private void publish(String identity, T value, long ttlMillis) {
+        try {
+            redisTemplate.convertAndSend(channel, JsonParser.toJsonString(
+                    new TokenUpdateMessage(nodeId, identity, getKey(identity), value, ttlMillis)));
+        } catch (Exception e) {
+            // 通知失败不影响写入, 其他节点在本地缓存到期后从Redis读取
+            log.warn("RedisTemplateNearCacheTokenStorage: publish token update error, identity: {}, error: {}", identity,
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 处理其他节点的Token更新消息
+     *
+     * @param message Redis消息
+     * @param pattern 订阅模式
+     */
+    private void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            if (body == null) {
+                return;
+            }
+            TokenUpdateMessage updateMessage = JsonParser.parse(body.toString(), TokenUpdateMessage.class);
+            // 忽略本节点及共用频道的其他存储(key前缀不同)发布的消息
+            if (nodeId.equals(updateMessage.getNodeId()) || updateMessage.getIdentity() == null
+                    || !getKey(updateMessage.getIdentity()).equals(updateMessage.getKey())) {
+                return;
+            }
+            log.debug("RedisTemplateNearCacheTokenStorage: receive token update, identity: {}",
+                    updateMessage.getIdentity());
+            if (updateMessage.getToken() == null || updateMessage.getTtlMillis() == null) {
+                invalidate(updateMessage.getIdentity());
+                return;
+            }
+            T token = JsonParser.parse(JsonParser.toJsonString(updateMessage.getToken()), sharedStorage.getTokenClass());
+            cache(updateMessage.getIdentity(), TokenEnvelope.ofRemaining(token, updateMessage.getTtlMillis()),
+                    getMaxLoadedTtlMillis());
+        } catch (Exception e) {
+            log.warn("RedisTemplateNearCacheTokenStorage: handle token update error: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        listenerContainer.removeMessageListener(messageListener);
+    }
+}
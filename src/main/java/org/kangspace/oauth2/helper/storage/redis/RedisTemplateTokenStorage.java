@@ -1,28 +1,100 @@
 package org.kangspace.oauth2.helper.storage.redis;
 
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.kangspace.devhelper.json.JsonParser;
 import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.storage.codec.BinaryTokenCodec;
+import org.kangspace.oauth2.helper.storage.codec.TokenCodec;
 import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * 使用RedisTemplate实现TokenStorage <br>
  * <p>
- * 1. 可重写{@link #getKeyPrefix()}方法，自定义key前缀
+ * 1. 可重写{@link #getKeyPrefix()}方法，自定义key前缀 <br>
+ * 2. 可开启{@link #setDistributedRefresh(boolean)}分布式刷新模式, 基于SET NX租约key保证集群内仅一个节点请求新token <br>
+ * 3. 可通过{@link #setTokenCodec(TokenCodec)}指定Token编解码(如{@link BinaryTokenCodec}), 未指定时以JSON字符串存储
  *
  * @author kango2gler@gmail.com
  * @since 2024/6/12
  */
 @Slf4j
 public abstract class RedisTemplateTokenStorage<T extends Token> implements TokenStorage<T> {
+    /**
+     * 释放刷新锁脚本: 仅持有者可删除租约key
+     */
+    private static final RedisScript<Long> RELEASE_LOCK_REDIS_SCRIPT = RedisScript.of(
+            RedisRefreshLock.RELEASE_LOCK_SCRIPT, Long.class);
+
     private final RedisTemplate<String, String> redisTemplate;
 
+    /**
+     * token刷新锁
+     */
+    private final RedisRefreshLock refreshLock;
+
+    /**
+     * 是否开启分布式刷新模式, 默认不开启
+     */
+    @Getter
+    @Setter
+    private boolean distributedRefresh = false;
+
+    /**
+     * token刷新锁等待时间(毫秒)
+     */
+    @Getter
+    @Setter
+    private long refreshLockWaitMillis = DEFAULT_REFRESH_LOCK_WAIT_MILLIS;
+
+    /**
+     * token刷新锁租约时间(毫秒)
+     */
+    @Getter
+    @Setter
+    private long refreshLockLeaseMillis = DEFAULT_REFRESH_LOCK_LEASE_MILLIS;
+
+    /**
+     * Token编解码, 为null时以JSON字符串存储 <br>
+     * 使用{@link BinaryTokenCodec}时仍可读取此前以JSON字符串写入的令牌
+     */
+    @Getter
+    @Setter
+    private TokenCodec<T> tokenCodec;
+
     public RedisTemplateTokenStorage(RedisTemplate<String, String> redisTemplate) {
         this.redisTemplate = redisTemplate;
+        this.refreshLock = new RedisRefreshLock() {
+            @Override
+            protected boolean setIfAbsent(String lockKey, String owner, long leaseMillis) {
+                return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, owner, leaseMillis,
+                        TimeUnit.MILLISECONDS));
+            }
+
+            @Override
+            protected void releaseIfOwner(String lockKey, String owner) {
+                redisTemplate.execute(RELEASE_LOCK_REDIS_SCRIPT, Collections.singletonList(lockKey), owner);
+            }
+        };
     }
 
     /**
@@ -34,14 +106,32 @@ public abstract class RedisTemplateTokenStorage<T extends Token> implements Toke
 
     @Override
     public void set(@Nonnull String identity, @Nonnull T value) {
+        set(identity, value, value.getExpiresIn());
+    }
+
+    @Override
+    public void set(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds) {
         String key = getKey(identity);
-        redisTemplate.opsForValue().set(key, JsonParser.toJsonString(value), value.getExpiresIn(), TimeUnit.SECONDS);
-        log.debug("RedisTemplateTokenStorage: set token to redis, key: {}, value: {}", key, value);
+        if (tokenCodec != null) {
+            byte[] bytes = tokenCodec.encode(value);
+            redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                    .setEx(rawKey(key), ttlSeconds, bytes));
+        } else {
+            redisTemplate.opsForValue().set(key, JsonParser.toJsonString(value), ttlSeconds, TimeUnit.SECONDS);
+        }
+        log.debug("RedisTemplateTokenStorage: set token to redis, key: {}, value: {}, ttl: {}", key, value, ttlSeconds);
     }
 
     @Override
     public T get(@Nonnull String identity) {
         String key = getKey(identity);
+        if (tokenCodec != null) {
+            byte[] bytes = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands()
+                    .get(rawKey(key)));
+            log.debug("RedisTemplateTokenStorage: get token from redis, key: {}, bytes: {}", key,
+                    bytes == null ? null : bytes.length);
+            return decode(bytes);
+        }
         String token = redisTemplate.opsForValue().get(key);
         log.debug("RedisTemplateTokenStorage: get token from redis, key: {}, value: {}", key, token);
         if (token == null || token.trim().isEmpty()) {
@@ -49,4 +139,155 @@ public abstract class RedisTemplateTokenStorage<T extends Token> implements Toke
         }
         return JsonParser.parse(token, getTokenClass());
     }
+
+    @Override
+    public void setAll(@Nonnull Map<String, T> values) {
+        setAll(values, Token::getExpiresIn);
+    }
+
+    @Override
+    public void setAll(@Nonnull Map<String, T> values, @Nonnull Long ttlSeconds) {
+        setAll(values, value -> ttlSeconds);
+    }
+
+    /**
+     * 批量设置令牌(管道, 一次网络请求)
+     *
+     * @param values     令牌唯一标识 - 令牌
+     * @param ttlSeconds 令牌 - 过期时间(秒)
+     */
+    private void setAll(Map<String, T> values, Function<T, Long> ttlSeconds) {
+        if (values.isEmpty()) {
+            return;
+        }
+        if (tokenCodec != null) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                RedisStringCommands commands = connection.stringCommands();
+                values.forEach((identity, value) -> commands.setEx(rawKey(getKey(identity)),
+                        ttlSeconds.apply(value), tokenCodec.encode(value)));
+                return null;
+            });
+            log.debug("RedisTemplateTokenStorage: set tokens to redis, size: {}", values.size());
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                values.forEach((identity, value) -> ops.opsForValue().set(getKey(identity),
+                        JsonParser.toJsonString(value), ttlSeconds.apply(value), TimeUnit.SECONDS));
+                return null;
+            }
+        });
+        log.debug("RedisTemplateTokenStorage: set tokens to redis, size: {}", values.size());
+    }
+
+    /**
+     * 批量获取令牌(MGET, 一次网络请求)
+     *
+     * @param identities 令牌唯一标识
+     * @return 令牌唯一标识 - 令牌
+     */
+    @Override
+    public Map<String, T> getAll(@Nonnull Collection<String> identities) {
+        Map<String, T> values = new LinkedHashMap<>(identities.size() * 4 / 3 + 1);
+        if (identities.isEmpty()) {
+            return values;
+        }
+        List<String> keys = new ArrayList<>(identities.size());
+        identities.forEach(identity -> keys.add(getKey(identity)));
+        if (tokenCodec != null) {
+            byte[][] rawKeys = new byte[keys.size()][];
+            for (int i = 0; i < rawKeys.length; i++) {
+                rawKeys[i] = rawKey(keys.get(i));
+            }
+            List<byte[]> tokens = redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection
+                    .stringCommands().mGet(rawKeys));
+            if (tokens != null) {
+                int i = 0;
+                for (String identity : identities) {
+                    T token = decode(tokens.get(i++));
+                    if (token != null) {
+                        values.put(identity, token);
+                    }
+                }
+            }
+            log.debug("RedisTemplateTokenStorage: get tokens from redis, size: {}, found: {}", keys.size(),
+                    values.size());
+            return values;
+        }
+        List<String> tokens = redisTemplate.opsForValue().multiGet(keys);
+        if (tokens == null) {
+            return values;
+        }
+        int i = 0;
+        for (String identity : identities) {
+            String token = tokens.get(i++);
+            if (token != null && !token.trim().isEmpty()) {
+                values.put(identity, JsonParser.parse(token, getTokenClass()));
+            }
+        }
+        log.debug("RedisTemplateTokenStorage: get tokens from redis, size: {}, found: {}", keys.size(), values.size());
+        return values;
+    }
+
+    /**
+     * 序列化key
+     *
+     * @param key key
+     * @return key字节数组
+     */
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    /**
+     * 解码令牌, 使用{@link BinaryTokenCodec}时非二进制格式的数据按JSON字符串解析
+     *
+     * @param bytes 字节数组
+     * @return 令牌, bytes为空时返回null
+     */
+    @SuppressWarnings("unchecked")
+    private T decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (tokenCodec instanceof BinaryTokenCodec && !BinaryTokenCodec.isEncoded(bytes)) {
+            String token = ((RedisSerializer<String>) redisTemplate.getValueSerializer()).deserialize(bytes);
+            return token == null || token.trim().isEmpty() ? null : JsonParser.parse(token, getTokenClass());
+        }
+        return tokenCodec.decode(bytes);
+    }
+
+    /**
+     * 获取令牌及其过期时间(按Redis key的剩余TTL计算)
+     *
+     * @param identity 令牌唯一标识
+     * @return Token信封, 不存在时返回null
+     */
+    @Override
+    public TokenEnvelope<T> getEnvelope(@Nonnull String identity) {
+        T token = get(identity);
+        if (token == null) {
+            return null;
+        }
+        Long ttlMillis = redisTemplate.getExpire(getKey(identity), TimeUnit.MILLISECONDS);
+        return ttlMillis != null && ttlMillis >= 0 ? TokenEnvelope.ofRemaining(token, ttlMillis)
+                : TokenEnvelope.of(token, System.currentTimeMillis(), 0L);
+    }
+
+    @Override
+    public boolean tryRefreshLock(@Nonnull String identity) {
+        if (!distributedRefresh) {
+            return true;
+        }
+        return refreshLock.tryLock(getRefreshLockKey(identity), refreshLockWaitMillis, refreshLockLeaseMillis);
+    }
+
+    @Override
+    public void releaseRefreshLock(@Nonnull String identity) {
+        refreshLock.unlock(getRefreshLockKey(identity));
+    }
 }
@@ -0,0 +1,112 @@
+package org.kangspace.oauth2.helper.storage.redis;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.storage.CachingTokenStorage;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.JsonJacksonCodec;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.util.UUID;
+
+/**
+ * 使用Redisson实现的两级Token存储 <br>
+ * 本地近端缓存 + Redis共享存储, 节点写入新token时通过Redisson Topic通知其他节点直接更新本地缓存, 读取token无需访问Redis <br>
+ * 1. 共享存储可使用自定义的{@link RedissonTokenStorage}(如自定义key前缀、开启分布式刷新) <br>
+ * 2. 不再使用时调用{@link #close()}取消订阅
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class RedissonNearCacheTokenStorage<T extends Token> extends CachingTokenStorage<T> implements Closeable {
+    /**
+     * 默认Token更新通知频道
+     */
+    public static final String DEFAULT_CHANNEL = "oauth2-helper:token-update";
+
+    /**
+     * 默认从Redis读取的令牌本地最长缓存时间(毫秒), 更新通过消息推送, 该时间仅用于消息丢失时的兜底
+     */
+    public static final long DEFAULT_MAX_LOADED_TTL_MILLIS = 300_000L;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RTopic topic;
+    private final int listenerId;
+
+    public RedissonNearCacheTokenStorage(@NonNull RedissonClient redissonClient) {
+        this(redissonClient, new RedissonTokenStorage<>(redissonClient));
+    }
+
+    public RedissonNearCacheTokenStorage(@NonNull RedissonClient redissonClient,
+                                         @NonNull RedissonTokenStorage<T> sharedStorage) {
+        this(redissonClient, sharedStorage, DEFAULT_CHANNEL);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param redissonClient RedissonClient
+     * @param sharedStorage  Redis共享存储
+     * @param channel        Token更新通知频道
+     */
+    public RedissonNearCacheTokenStorage(@NonNull RedissonClient redissonClient,
+                                         @NonNull RedissonTokenStorage<T> sharedStorage, @NonNull String channel) {
+        super(sharedStorage, DEFAULT_REFRESH_MARGIN_MILLIS, DEFAULT_MAX_LOADED_TTL_MILLIS);
+        this.topic = redissonClient.getTopic(channel, JsonJacksonCodec.INSTANCE);
+        this.listenerId = topic.addListener(TokenUpdateMessage.class, (ch, message) -> onMessage(message));
+    }
+
+    @Override
+    protected void afterSet(@Nonnull String identity, @Nonnull TokenEnvelope<T> envelope) {
+        super.afterSet(identity, envelope);
+        publish(identity, envelope.getToken(), envelope.remainingTtl().toMillis());
+    }
+
+    /**
+     * 发布Token更新消息
+     *
+     * @param identity  令牌唯一标识
+     * @param value     令牌
+     * @param ttlMillis 令牌剩余有效时间(毫秒)
+     */
+    private void publish(String identity, T value, long ttlMillis) {
+        try {
+            topic.publish(new TokenUpdateMessage(nodeId, identity, getKey(identity), value, ttlMillis));
+        } catch (Exception e) {
+            // 通知失败不影响写入, 其他节点在本地缓存到期后从Redis读取
+            log.warn("RedissonNearCacheTokenStorage: publish token update error, identity: {}, error: {}", identity,
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 处理其他节点的Token更新消息
+     *
+     * @param message Token更新消息
+     */
+    @SuppressWarnings("unchecked")
+    private void onMessage(TokenUpdateMessage message) {
+        // 忽略本节点及共用频道的其他存储(key前缀不同)发布的消息
+        if (nodeId.equals(message.getNodeId()) || message.getIdentity() == null
+                || !getKey(message.getIdentity()).equals(message.getKey())) {
+            return;
+        }
+        log.debug("RedissonNearCacheTokenStorage: receive token update, identity: {}", message.getIdentity());
+        if (message.getToken() == null || message.getTtlMillis() == null) {
+            invalidate(message.getIdentity());
+            return;
+        }
+        cache(message.getIdentity(), TokenEnvelope.ofRemaining((T) message.getToken(), message.getTtlMillis()),
+                getMaxLoadedTtlMillis());
+    }
+
+    @Override
+    public void close() {
+        topic.removeListener(listenerId);
+    }
+}
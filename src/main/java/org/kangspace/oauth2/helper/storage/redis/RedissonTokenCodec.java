@@ -0,0 +1,83 @@
+package org.kangspace.oauth2.helper.storage.redis;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.NonNull;
+import org.kangspace.oauth2.helper.storage.codec.BinaryTokenCodec;
+import org.kangspace.oauth2.helper.storage.codec.TokenCodec;
+import org.kangspace.oauth2.helper.token.Token;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.handler.State;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+import org.redisson.codec.JsonJacksonCodec;
+
+import java.io.IOException;
+
+/**
+ * 基于{@link TokenCodec}的Redisson编解码器 <br>
+ * 使用{@link BinaryTokenCodec}时, 读取到的非二进制格式数据(迁移前写入的数据)交由legacyCodec(默认{@link JsonJacksonCodec})解码
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public class RedissonTokenCodec<T extends Token> extends BaseCodec {
+    private final TokenCodec<T> tokenCodec;
+    private final Codec legacyCodec;
+
+    private final Encoder encoder = this::encode;
+    private final Decoder<Object> decoder = this::decode;
+
+    public RedissonTokenCodec(@NonNull TokenCodec<T> tokenCodec) {
+        this(tokenCodec, JsonJacksonCodec.INSTANCE);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param tokenCodec  Token编解码
+     * @param legacyCodec 迁移前使用的编解码器
+     */
+    public RedissonTokenCodec(@NonNull TokenCodec<T> tokenCodec, @NonNull Codec legacyCodec) {
+        this.tokenCodec = tokenCodec;
+        this.legacyCodec = legacyCodec;
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return encoder;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ByteBuf encode(Object in) {
+        byte[] bytes = tokenCodec.encode((T) in);
+        ByteBuf out = ByteBufAllocator.DEFAULT.buffer(bytes.length);
+        out.writeBytes(bytes);
+        return out;
+    }
+
+    private Object decode(ByteBuf buf, State state) throws IOException {
+        if (tokenCodec instanceof BinaryTokenCodec && buf.readableBytes() > 0
+                && buf.getByte(buf.readerIndex()) != BinaryTokenCodec.MAGIC) {
+            return legacyCodec.getValueDecoder().decode(buf, state);
+        }
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return tokenCodec.decode(bytes);
+    }
+
+    /**
+     * 获取迁移前使用的编解码器
+     *
+     * @return 编解码器
+     */
+    public Codec getLegacyCodec() {
+        return legacyCodec;
+    }
+}
@@ -1,43 +1,251 @@
 package org.kangspace.oauth2.helper.storage.redis;
 
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.kangspace.oauth2.helper.storage.AsyncTokenStorage;
 import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.storage.codec.TokenCodec;
 import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucket;
+import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
 import org.redisson.codec.JsonJacksonCodec;
 
 import javax.annotation.Nonnull;
 import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * 使用Redisson实现TokenStorage <br>
  * <p>
- * 1. 可重写{@link #getKeyPrefix()}方法，自定义key前缀
+ * 1. 可重写{@link #getKeyPrefix()}方法，自定义key前缀 <br>
+ * 2. 可开启{@link #setDistributedRefresh(boolean)}分布式刷新模式, 基于Redisson锁保证集群内仅一个节点请求新token <br>
+ * 3. 可通过{@link #setTokenCodec(TokenCodec)}指定Token编解码(如{@link org.kangspace.oauth2.helper.storage.codec.BinaryTokenCodec}),
+ * 默认使用{@link JsonJacksonCodec} <br>
+ * 4. 实现{@link AsyncTokenStorage}, 异步操作基于Redisson异步命令, 不阻塞调用线程
  *
  * @author kango2gler@gmail.com
  * @since 2024/6/12
  */
 @Slf4j
-public class RedissonTokenStorage<T extends Token> implements TokenStorage<T> {
+public class RedissonTokenStorage<T extends Token> implements TokenStorage<T>, AsyncTokenStorage<T> {
     private final RedissonClient redissonClient;
 
+    /**
+     * 是否开启分布式刷新模式, 默认不开启
+     */
+    @Getter
+    @Setter
+    private boolean distributedRefresh = false;
+
+    /**
+     * token刷新锁等待时间(毫秒)
+     */
+    @Getter
+    @Setter
+    private long refreshLockWaitMillis = DEFAULT_REFRESH_LOCK_WAIT_MILLIS;
+
+    /**
+     * token刷新锁租约时间(毫秒)
+     */
+    @Getter
+    @Setter
+    private long refreshLockLeaseMillis = DEFAULT_REFRESH_LOCK_LEASE_MILLIS;
+
+    /**
+     * 令牌编解码器
+     */
+    @Getter
+    private Codec codec = JsonJacksonCodec.INSTANCE;
+
     public RedissonTokenStorage(RedissonClient redissonClient) {
         this.redissonClient = redissonClient;
     }
 
+    /**
+     * 设置Token编解码 <br>
+     * 使用{@link org.kangspace.oauth2.helper.storage.codec.BinaryTokenCodec}时仍可读取此前以{@link JsonJacksonCodec}写入的令牌
+     *
+     * @param tokenCodec Token编解码
+     */
+    public void setTokenCodec(@Nonnull TokenCodec<T> tokenCodec) {
+        this.codec = new RedissonTokenCodec<>(tokenCodec);
+    }
+
     @Override
     public void set(@Nonnull String identity, @Nonnull T value) {
+        set(identity, value, value.getExpiresIn());
+    }
+
+    @Override
+    public void set(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds) {
         String key = getKey(identity);
-        redissonClient.getBucket(key, JsonJacksonCodec.INSTANCE).set(value, Duration.ofSeconds(value.getExpiresIn()));
-        log.debug("RedissonTokenStorage: set token to redis, key: {}, value: {}", key, value);
+        redissonClient.getBucket(key, codec).set(value, Duration.ofSeconds(ttlSeconds));
+        log.debug("RedissonTokenStorage: set token to redis, key: {}, value: {}, ttl: {}", key, value, ttlSeconds);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public T get(@Nonnull String identity) {
         String key = getKey(identity);
-        T token = (T) redissonClient.getBucket(key, JsonJacksonCodec.INSTANCE).get();
+        T token = (T) redissonClient.getBucket(key, codec).get();
         log.debug("RedissonTokenStorage: get token from redis, key: {}, value: {}", key, token);
         return token;
     }
+
+    @Override
+    public void setAll(@Nonnull Map<String, T> values) {
+        setAll(values, Token::getExpiresIn);
+    }
+
+    @Override
+    public void setAll(@Nonnull Map<String, T> values, @Nonnull Long ttlSeconds) {
+        setAll(values, value -> ttlSeconds);
+    }
+
+    /**
+     * 批量设置令牌(Redisson批量命令, 一次网络请求)
+     *
+     * @param values     令牌唯一标识 - 令牌
+     * @param ttlSeconds 令牌 - 过期时间(秒)
+     */
+    private void setAll(Map<String, T> values, Function<T, Long> ttlSeconds) {
+        if (values.isEmpty()) {
+            return;
+        }
+        RBatch batch = redissonClient.createBatch();
+        values.forEach((identity, value) -> batch.getBucket(getKey(identity), codec)
+                .setAsync(value, Duration.ofSeconds(ttlSeconds.apply(value))));
+        batch.execute();
+        log.debug("RedissonTokenStorage: set tokens to redis, size: {}", values.size());
+    }
+
+    /**
+     * 批量获取令牌(MGET, 一次网络请求)
+     *
+     * @param identities 令牌唯一标识
+     * @return 令牌唯一标识 - 令牌
+     */
+    @Override
+    public Map<String, T> getAll(@Nonnull Collection<String> identities) {
+        if (identities.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        String[] keys = identities.stream().map(this::getKey).toArray(String[]::new);
+        Map<String, Object> tokens = redissonClient.getBuckets(codec).get(keys);
+        return toTokens(identities, keys, tokens);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<T> getAsync(@Nonnull String identity) {
+        String key = getKey(identity);
+        return redissonClient.getBucket(key, codec).getAsync().toCompletableFuture().thenApply(token -> {
+            log.debug("RedissonTokenStorage: get token from redis async, key: {}, value: {}", key, token);
+            return (T) token;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> setAsync(@Nonnull String identity, @Nonnull T value, @Nonnull Long ttlSeconds) {
+        String key = getKey(identity);
+        return redissonClient.getBucket(key, codec).setAsync(value, Duration.ofSeconds(ttlSeconds))
+                .toCompletableFuture().thenRun(() -> log.debug(
+                        "RedissonTokenStorage: set token to redis async, key: {}, value: {}, ttl: {}", key, value,
+                        ttlSeconds));
+    }
+
+    /**
+     * 异步批量获取令牌(MGET, 一次网络请求)
+     *
+     * @param identities 令牌唯一标识
+     * @return 令牌唯一标识 - 令牌
+     */
+    @Override
+    public CompletableFuture<Map<String, T>> getAllAsync(@Nonnull Collection<String> identities) {
+        if (identities.isEmpty()) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<>());
+        }
+        String[] keys = identities.stream().map(this::getKey).toArray(String[]::new);
+        return redissonClient.getBuckets(codec).getAsync(keys).toCompletableFuture()
+                .thenApply(tokens -> toTokens(identities, keys, tokens));
+    }
+
+    /**
+     * 按令牌唯一标识整理批量获取结果
+     *
+     * @param identities 令牌唯一标识
+     * @param keys       与identities顺序一致的存储key
+     * @param tokens     存储key - 令牌
+     * @return 令牌唯一标识 - 令牌
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, T> toTokens(Collection<String> identities, String[] keys, Map<String, Object> tokens) {
+        Map<String, T> values = new LinkedHashMap<>(identities.size() * 4 / 3 + 1);
+        int i = 0;
+        for (String identity : identities) {
+            Object token = tokens.get(keys[i++]);
+            if (token != null) {
+                values.put(identity, (T) token);
+            }
+        }
+        log.debug("RedissonTokenStorage: get tokens from redis, size: {}, found: {}", keys.length, values.size());
+        return values;
+    }
+
+    /**
+     * 获取令牌及其过期时间(按Redis key的剩余TTL计算)
+     *
+     * @param identity 令牌唯一标识
+     * @return Token信封, 不存在时返回null
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public TokenEnvelope<T> getEnvelope(@Nonnull String identity) {
+        String key = getKey(identity);
+        RBucket<Object> bucket = redissonClient.getBucket(key, codec);
+        T token = (T) bucket.get();
+        if (token == null) {
+            return null;
+        }
+        long ttlMillis = bucket.remainTimeToLive();
+        return ttlMillis >= 0 ? TokenEnvelope.ofRemaining(token, ttlMillis)
+                : TokenEnvelope.of(token, System.currentTimeMillis(), 0L);
+    }
+
+    @Override
+    public boolean tryRefreshLock(@Nonnull String identity) {
+        if (!distributedRefresh) {
+            return true;
+        }
+        RLock lock = redissonClient.getLock(getRefreshLockKey(identity));
+        try {
+            boolean locked = lock.tryLock(refreshLockWaitMillis, refreshLockLeaseMillis, TimeUnit.MILLISECONDS);
+            log.debug("RedissonTokenStorage: try refresh lock, key: {}, locked: {}", getRefreshLockKey(identity), locked);
+            return locked;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void releaseRefreshLock(@Nonnull String identity) {
+        if (!distributedRefresh) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(getRefreshLockKey(identity));
+        if (lock.isHeldByCurrentThread()) {
+            lock.unlock();
+        }
+    }
 }
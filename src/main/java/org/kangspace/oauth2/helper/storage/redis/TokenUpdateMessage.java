@@ -0,0 +1,42 @@
+package org.kangspace.oauth2.helper.storage.redis;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 近端缓存Token更新消息 <br>
+ * 节点写入新token后通过Redis发布订阅通知其他节点更新本地缓存; 多个存储共用同一频道时, 接收方仅处理存储key与本存储一致的消息
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenUpdateMessage {
+    /**
+     * 发布节点标识, 用于忽略本节点发布的消息
+     */
+    private String nodeId;
+
+    /**
+     * 令牌唯一标识
+     */
+    private String identity;
+
+    /**
+     * 令牌存储key(含key前缀), 用于区分共用同一频道的不同存储
+     */
+    private String key;
+
+    /**
+     * 令牌
+     */
+    private Object token;
+
+    /**
+     * 令牌剩余有效时间(毫秒), 使用相对时间避免节点间时钟偏差
+     */
+    private Long ttlMillis;
+}
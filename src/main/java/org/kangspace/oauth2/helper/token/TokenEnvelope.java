@@ -0,0 +1,108 @@
+package org.kangspace.oauth2.helper.token;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token信封 <br>
+ * 记录token的获取时间及绝对过期时间(已扣除安全余量), 避免将相对的{@link Token#getExpiresIn()}在写入/读取时当作刚获取的token使用
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class TokenEnvelope<T extends Token> {
+    /**
+     * 默认安全余量(秒): 在token服务器过期时间之前提前视为过期, 抵消网络耗时及时钟偏差
+     */
+    public static final long DEFAULT_SAFETY_MARGIN_SECONDS = 60L;
+
+    /**
+     * 令牌
+     */
+    private final T token;
+
+    /**
+     * 获取时间(毫秒时间戳)
+     */
+    private final long issuedAtMillis;
+
+    /**
+     * 过期时间(毫秒时间戳), 已扣除安全余量
+     */
+    private final long expiresAtMillis;
+
+    public TokenEnvelope(@NonNull T token, long issuedAtMillis, long expiresAtMillis) {
+        this.token = token;
+        this.issuedAtMillis = issuedAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    /**
+     * 根据获取时间创建Token信封 <br>
+     * 安全余量不超过token有效时间的一半
+     *
+     * @param token               令牌
+     * @param issuedAtMillis      获取时间(毫秒时间戳), 建议使用发起token请求的时间
+     * @param safetyMarginSeconds 安全余量(秒)
+     * @param <T>                 Token类型
+     * @return Token信封
+     */
+    public static <T extends Token> TokenEnvelope<T> of(@NonNull T token, long issuedAtMillis, long safetyMarginSeconds) {
+        long lifetimeMillis = TimeUnit.SECONDS.toMillis(Objects.requireNonNull(token.getExpiresIn()));
+        long marginMillis = Math.min(TimeUnit.SECONDS.toMillis(safetyMarginSeconds), lifetimeMillis / 2);
+        return new TokenEnvelope<>(token, issuedAtMillis, issuedAtMillis + lifetimeMillis - marginMillis);
+    }
+
+    /**
+     * 根据剩余有效时间创建Token信封(如存储中key的剩余TTL) <br>
+     * 使用相对时间, 不受节点间时钟偏差影响
+     *
+     * @param token           令牌
+     * @param remainingMillis 剩余有效时间(毫秒)
+     * @param <T>             Token类型
+     * @return Token信封
+     */
+    public static <T extends Token> TokenEnvelope<T> ofRemaining(@NonNull T token, long remainingMillis) {
+        long now = System.currentTimeMillis();
+        long expiresAtMillis = now + remainingMillis;
+        long issuedAtMillis = token.getExpiresIn() == null ? now
+                : Math.min(now, expiresAtMillis - TimeUnit.SECONDS.toMillis(token.getExpiresIn()));
+        return new TokenEnvelope<>(token, issuedAtMillis, expiresAtMillis);
+    }
+
+    /**
+     * 获取剩余有效时间
+     *
+     * @return 剩余有效时间, 已过期时为0
+     */
+    public Duration remainingTtl() {
+        return Duration.ofMillis(Math.max(0L, expiresAtMillis - System.currentTimeMillis()));
+    }
+
+    /**
+     * 是否已过期
+     *
+     * @return 是否已过期
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAtMillis;
+    }
+
+    /**
+     * 获取有效时长(毫秒), 已扣除安全余量
+     *
+     * @return 有效时长(毫秒)
+     */
+    public long getLifetimeMillis() {
+        return expiresAtMillis - issuedAtMillis;
+    }
+}
@@ -0,0 +1,258 @@
+package org.kangspace.oauth2.helper.transport;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.nio.client.HttpAsyncClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * 基于Apache HttpClient 4的{@link HttpTransport}实现(默认实现) <br>
+ * 同步请求使用{@link HttpClient}, 异步请求使用{@link HttpAsyncClient}(首次异步请求时获取)
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class ApacheHttpTransport implements HttpTransport {
+    private final HttpClient httpClient;
+    private final Supplier<HttpAsyncClient> httpAsyncClientSupplier;
+
+    /**
+     * 构造方法(仅支持同步请求)
+     *
+     * @param httpClient HttpClient
+     */
+    public ApacheHttpTransport(@NonNull HttpClient httpClient) {
+        this(httpClient, () -> {
+            throw new UnsupportedOperationException("未指定异步HttpClient");
+        });
+    }
+
+    public ApacheHttpTransport(@NonNull HttpClient httpClient, @NonNull HttpAsyncClient httpAsyncClient) {
+        this(httpClient, () -> httpAsyncClient);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param httpClient              HttpClient
+     * @param httpAsyncClientSupplier 异步HttpClient(需已启动), 首次异步请求时获取
+     */
+    public ApacheHttpTransport(@NonNull HttpClient httpClient,
+                               @NonNull Supplier<HttpAsyncClient> httpAsyncClientSupplier) {
+        this.httpClient = httpClient;
+        this.httpAsyncClientSupplier = httpAsyncClientSupplier;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public HttpAsyncClient getHttpAsyncClient() {
+        return httpAsyncClientSupplier.get();
+    }
+
+    @Override
+    public HttpTransportResponse execute(@NonNull HttpTransportRequest request) throws IOException {
+        return execute(toHttpRequest(request));
+    }
+
+    /**
+     * 同步发送请求, 中止信号完成时通过{@link HttpRequestBase#abort()}中止请求
+     *
+     * @param request     请求
+     * @param abortSignal 中止信号
+     * @return 响应
+     * @throws IOException 请求异常或已中止
+     */
+    @Override
+    public HttpTransportResponse execute(@NonNull HttpTransportRequest request,
+                                         @NonNull CompletionStage<?> abortSignal) throws IOException {
+        HttpRequestBase httpRequest = toHttpRequest(request);
+        abortSignal.whenComplete((value, e) -> httpRequest.abort());
+        return execute(httpRequest);
+    }
+
+    private HttpTransportResponse execute(HttpRequestBase httpRequest) throws IOException {
+        HttpResponse response = httpClient.execute(httpRequest);
+        HttpEntity entity = response.getEntity();
+        InputStream body = entity != null ? entity.getContent() : null;
+        if (body == null && response instanceof CloseableHttpResponse) {
+            ((CloseableHttpResponse) response).close();
+        }
+        return new HttpTransportResponse(response.getStatusLine().getStatusCode(), toHeaders(response),
+                body == null ? null : new FilterInputStream(body) {
+                    @Override
+                    public void close() throws IOException {
+                        // 关闭响应体流时读完剩余内容并释放连接, 使连接可复用
+                        try {
+                            super.close();
+                        } finally {
+                            if (response instanceof CloseableHttpResponse) {
+                                ((CloseableHttpResponse) response).close();
+                            }
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public CompletableFuture<HttpTransportResponse> executeAsync(@NonNull HttpTransportRequest request) {
+        CompletableFuture<HttpTransportResponse> future = new CompletableFuture<>();
+        Future<HttpResponse> exchange;
+        try {
+            exchange = getHttpAsyncClient().execute(toHttpRequest(request), new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse response) {
+                    try {
+                        HttpEntity entity = response.getEntity();
+                        future.complete(new HttpTransportResponse(response.getStatusLine().getStatusCode(),
+                                toHeaders(response), entity != null ? entity.getContent() : null));
+                    } catch (IOException | RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+
+                @Override
+                public void failed(Exception e) {
+                    future.completeExceptionally(e);
+                }
+
+                @Override
+                public void cancelled() {
+                    future.cancel(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        future.whenComplete((response, e) -> {
+            if (future.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 转换为Apache HttpClient请求
+     *
+     * @param request 请求
+     * @return Apache HttpClient请求
+     */
+    public static HttpRequestBase toHttpRequest(@NonNull HttpTransportRequest request) {
+        String url = request.getUrl();
+        HttpRequestBase httpRequest;
+        switch (request.getMethod()) {
+            case GET:
+                httpRequest = new HttpGet(url);
+                break;
+            case DELETE:
+                httpRequest = new HttpDelete(url);
+                break;
+            case POST:
+                httpRequest = new HttpPost(url);
+                break;
+            case PUT:
+                httpRequest = new HttpPut(url);
+                break;
+            default:
+                throw new UnsupportedOperationException("不支持的请求方法: " + request.getMethod());
+        }
+        if (request.getBody() != null && httpRequest instanceof HttpEntityEnclosingRequestBase) {
+            ((HttpEntityEnclosingRequestBase) httpRequest).setEntity(new RequestBodyEntity(request.getBody()));
+        }
+        request.getHeaders().forEach(httpRequest::addHeader);
+        return httpRequest;
+    }
+
+    /**
+     * 将Apache HttpClient请求的URL及请求头同步到请求, 用于兼容基于{@link HttpRequestBase}的Token设置方式
+     *
+     * @param httpRequest Apache HttpClient请求
+     * @param request     请求
+     */
+    public static void copyTo(@NonNull HttpRequestBase httpRequest, @NonNull HttpTransportRequest request) {
+        request.setUrl(httpRequest.getURI().toString());
+        request.getHeaders().clear();
+        for (Header header : httpRequest.getAllHeaders()) {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getName())) {
+                request.getHeaders().put(header.getName(), header.getValue());
+            }
+        }
+    }
+
+    private static Map<String, List<String>> toHeaders(HttpResponse response) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (Header header : response.getAllHeaders()) {
+            headers.computeIfAbsent(header.getName(), name -> new ArrayList<>(1)).add(header.getValue());
+        }
+        return headers;
+    }
+
+    /**
+     * 请求体实体, 发送时将请求体直接写入连接输出流
+     */
+    private static final class RequestBodyEntity extends AbstractHttpEntity {
+        private final RequestBody body;
+
+        private RequestBodyEntity(RequestBody body) {
+            this.body = body;
+            setContentType(body.getContentType());
+            setChunked(body.getContentLength() < 0);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return body.getContentLength();
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new ByteArrayInputStream(body.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            body.writeTo(out);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
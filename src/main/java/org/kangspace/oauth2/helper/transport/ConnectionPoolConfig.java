@@ -0,0 +1,102 @@
+package org.kangspace.oauth2.helper.transport;
+
+import lombok.Data;
+import lombok.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HttpClient连接池配置
+ *
+ * <pre>
+ * 默认配置:
+ * 连接超时时间: 60s
+ * 从连接池获取连接超时时间: 30s
+ * 读取超时时间: 60s
+ * 最大连接数: 200
+ * 每个路由的最大连接数: 20(可按路由单独设置)
+ * 空闲连接复用前检查间隔: 2s(避免使用已被服务端关闭的连接, NoHttpResponseException)
+ * 空闲连接回收: 空闲30s(后台线程定期回收空闲及过期连接)
+ * 连接保持时间: 服务端Keep-Alive响应头指定的时间, 最长60s
+ * </pre>
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Data
+public class ConnectionPoolConfig {
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 60000;
+    public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS = 30000;
+    public static final int DEFAULT_SOCKET_TIMEOUT_MILLIS = 60000;
+    public static final int DEFAULT_MAX_TOTAL = 200;
+    public static final int DEFAULT_MAX_PER_ROUTE = 20;
+    public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+    public static final long DEFAULT_MAX_IDLE_MILLIS = 30000L;
+    public static final long DEFAULT_MAX_KEEP_ALIVE_MILLIS = 60000L;
+
+    /**
+     * 连接超时时间(毫秒)
+     */
+    private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+
+    /**
+     * 从连接池获取连接超时时间(毫秒)
+     */
+    private int connectionRequestTimeoutMillis = DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS;
+
+    /**
+     * 读取超时时间(毫秒)
+     */
+    private int socketTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+
+    /**
+     * 最大连接数
+     */
+    private int maxTotal = DEFAULT_MAX_TOTAL;
+
+    /**
+     * 每个路由的默认最大连接数
+     */
+    private int defaultMaxPerRoute = DEFAULT_MAX_PER_ROUTE;
+
+    /**
+     * 按路由设置的最大连接数, key: scheme://host[:port], 如https://api.weixin.qq.com
+     */
+    private Map<String, Integer> maxPerRoute = new LinkedHashMap<>();
+
+    /**
+     * 空闲超过该时间的连接在复用前检查是否可用(毫秒), 小于等于0时不检查
+     */
+    private int validateAfterInactivityMillis = DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS;
+
+    /**
+     * 空闲超过该时间的连接由后台线程回收(毫秒), 小于等于0时不回收空闲连接(仍回收过期连接)
+     */
+    private long maxIdleMillis = DEFAULT_MAX_IDLE_MILLIS;
+
+    /**
+     * 连接最长保持时间(毫秒): 服务端Keep-Alive响应头未指定或超过该时间时使用该时间
+     */
+    private long maxKeepAliveMillis = DEFAULT_MAX_KEEP_ALIVE_MILLIS;
+
+    /**
+     * 连接最长存活时间(毫秒), 小于等于0时不限制
+     */
+    private long timeToLiveMillis = -1L;
+
+    /**
+     * 设置路由的最大连接数
+     *
+     * @param route scheme://host[:port], 如https://api.weixin.qq.com
+     * @param max   最大连接数
+     * @return this
+     */
+    public ConnectionPoolConfig maxPerRoute(@NonNull String route, int max) {
+        if (max <= 0) {
+            throw new IllegalArgumentException("max must be greater than 0");
+        }
+        maxPerRoute.put(route, max);
+        return this;
+    }
+}
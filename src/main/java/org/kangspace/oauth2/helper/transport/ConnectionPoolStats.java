@@ -0,0 +1,50 @@
+package org.kangspace.oauth2.helper.transport;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 连接池统计
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Getter
+@ToString
+public class ConnectionPoolStats {
+    /**
+     * 已租用(使用中)的连接数
+     */
+    private final int leased;
+
+    /**
+     * 等待获取连接的请求数
+     */
+    private final int pending;
+
+    /**
+     * 空闲可用的连接数
+     */
+    private final int available;
+
+    /**
+     * 最大连接数
+     */
+    private final int max;
+
+    public ConnectionPoolStats(int leased, int pending, int available, int max) {
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.max = max;
+    }
+
+    /**
+     * 连接池是否已耗尽: 连接均已租用且有请求在等待
+     *
+     * @return 是否已耗尽
+     */
+    public boolean isExhausted() {
+        return pending > 0 && leased >= max;
+    }
+}
@@ -0,0 +1,151 @@
+package org.kangspace.oauth2.helper.transport;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HttpClient连接池 <br>
+ * 按{@link ConnectionPoolConfig}创建连接池及HttpClient: 支持按路由设置最大连接数, 后台线程回收空闲及过期连接,
+ * 遵循服务端Keep-Alive响应头(不超过最长保持时间), 并提供按路由的连接池统计
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class HttpConnectionPool implements Closeable {
+    private final ConnectionPoolConfig config;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * 构造方法
+     *
+     * @param config 连接池配置
+     */
+    public HttpConnectionPool(@NonNull ConnectionPoolConfig config) {
+        this.config = config;
+        this.connectionManager = new PoolingHttpClientConnectionManager(
+                config.getTimeToLiveMillis() > 0 ? config.getTimeToLiveMillis() : -1L, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(config.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(config.getDefaultMaxPerRoute());
+        connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivityMillis());
+        config.getMaxPerRoute().forEach((route, max) -> connectionManager.setMaxPerRoute(toRoute(route), max));
+
+        HttpClientBuilder builder = HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(toRequestConfig(config))
+                .setKeepAliveStrategy(keepAliveStrategy(config.getMaxKeepAliveMillis()))
+                .evictExpiredConnections();
+        if (config.getMaxIdleMillis() > 0) {
+            builder.evictIdleConnections(config.getMaxIdleMillis(), TimeUnit.MILLISECONDS);
+        }
+        // 重试由请求的RetryPolicy处理(区分幂等方法、退避、重试预算), 关闭HttpClient自动重试
+        builder.disableAutomaticRetries();
+        this.httpClient = builder.build();
+    }
+
+    public ConnectionPoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 获取使用该连接池的HttpClient
+     *
+     * @return HttpClient
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * 获取连接池整体统计
+     *
+     * @return 连接池统计
+     */
+    public ConnectionPoolStats getTotalStats() {
+        return toStats(connectionManager.getTotalStats());
+    }
+
+    /**
+     * 获取按路由的连接池统计(仅包含已建立过连接的路由)
+     *
+     * @return scheme://host:port - 连接池统计
+     */
+    public Map<String, ConnectionPoolStats> getRouteStats() {
+        Map<String, ConnectionPoolStats> stats = new LinkedHashMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            stats.put(route.getTargetHost().toURI(), toStats(connectionManager.getStats(route)));
+        }
+        return stats;
+    }
+
+    /**
+     * 关闭HttpClient及连接池(含回收线程)
+     */
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * 创建请求配置
+     *
+     * @param config 连接池配置
+     * @return 请求配置
+     */
+    public static RequestConfig toRequestConfig(ConnectionPoolConfig config) {
+        return RequestConfig.custom()
+                .setConnectTimeout(config.getConnectTimeoutMillis())
+                .setConnectionRequestTimeout(config.getConnectionRequestTimeoutMillis())
+                .setSocketTimeout(config.getSocketTimeoutMillis())
+                .build();
+    }
+
+    /**
+     * 连接保持策略: 使用服务端Keep-Alive响应头指定的时间, 未指定或超过最长保持时间时使用最长保持时间
+     *
+     * @param maxKeepAliveMillis 最长保持时间(毫秒), 小于等于0时不限制
+     * @return 连接保持策略
+     */
+    public static ConnectionKeepAliveStrategy keepAliveStrategy(long maxKeepAliveMillis) {
+        return (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            if (maxKeepAliveMillis <= 0) {
+                return keepAlive;
+            }
+            return keepAlive > 0 ? Math.min(keepAlive, maxKeepAliveMillis) : maxKeepAliveMillis;
+        };
+    }
+
+    /**
+     * 转换为路由, 与请求时的路由一致(默认端口, https为安全路由)
+     *
+     * @param route scheme://host[:port]
+     * @return 路由
+     */
+    private static HttpRoute toRoute(String route) {
+        HttpHost host = HttpHost.create(route);
+        boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+        int port = host.getPort() > 0 ? host.getPort() : secure ? 443 : 80;
+        return new HttpRoute(new HttpHost(host.getHostName(), port, host.getSchemeName()), null, secure);
+    }
+
+    private static ConnectionPoolStats toStats(PoolStats stats) {
+        return new ConnectionPoolStats(stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+    }
+}
@@ -0,0 +1,48 @@
+package org.kangspace.oauth2.helper.transport;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * HTTP传输层SPI <br>
+ * 负责构建实际的HTTP请求、发送请求及提供响应体访问, 与具体HTTP客户端解耦 <br>
+ * 内置实现: {@link ApacheHttpTransport}(默认), {@link JdkHttpTransport}(Java 11+)
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public interface HttpTransport {
+    /**
+     * 同步发送请求 <br>
+     * 调用方需关闭返回的响应, 以释放连接
+     *
+     * @param request 请求
+     * @return 响应
+     * @throws IOException 请求异常
+     */
+    HttpTransportResponse execute(HttpTransportRequest request) throws IOException;
+
+    /**
+     * 同步发送请求, 中止信号完成时中止请求(请求抛出IOException) <br>
+     * 默认实现不支持中止, 等待请求返回; 调用方需关闭返回的响应
+     *
+     * @param request     请求
+     * @param abortSignal 中止信号
+     * @return 响应
+     * @throws IOException 请求异常或已中止
+     */
+    default HttpTransportResponse execute(HttpTransportRequest request, CompletionStage<?> abortSignal)
+            throws IOException {
+        return execute(request);
+    }
+
+    /**
+     * 异步发送请求, 不阻塞调用线程 <br>
+     * 取消返回结果时中止请求; 调用方需关闭返回的响应
+     *
+     * @param request 请求
+     * @return 响应
+     */
+    CompletableFuture<HttpTransportResponse> executeAsync(HttpTransportRequest request);
+}
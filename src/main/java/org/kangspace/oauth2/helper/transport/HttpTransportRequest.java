@@ -0,0 +1,123 @@
+package org.kangspace.oauth2.helper.transport;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.kangspace.oauth2.helper.request.HttpMethod;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 与HTTP客户端无关的请求
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Getter
+public class HttpTransportRequest {
+    /**
+     * 请求方法
+     */
+    private final HttpMethod method;
+
+    /**
+     * 请求URL, 可在设置Token时修改(如添加token参数)
+     */
+    @Setter
+    @NonNull
+    private String url;
+
+    /**
+     * 请求头
+     */
+    private final Map<String, String> headers = new LinkedHashMap<>();
+
+    /**
+     * 请求体, 无请求体时为null
+     */
+    private RequestBody body;
+
+    public HttpTransportRequest(@NonNull HttpMethod method, @NonNull String url) {
+        this.method = method;
+        this.url = url;
+    }
+
+    /**
+     * 获取请求头(名称不区分大小写)
+     *
+     * @param name 名称
+     * @return 值, 不存在时返回null
+     */
+    public String getHeader(@NonNull String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 设置请求头, 替换同名(不区分大小写)请求头
+     *
+     * @param name  名称
+     * @param value 值
+     * @return this
+     */
+    public HttpTransportRequest setHeader(@NonNull String name, @NonNull String value) {
+        removeHeader(name);
+        headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * 删除请求头(名称不区分大小写)
+     *
+     * @param name 名称
+     * @return this
+     */
+    public HttpTransportRequest removeHeader(@NonNull String name) {
+        Iterator<String> names = headers.keySet().iterator();
+        while (names.hasNext()) {
+            if (names.next().equalsIgnoreCase(name)) {
+                names.remove();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 设置请求体
+     *
+     * @param body 请求体, 为null时无请求体
+     * @return this
+     */
+    public HttpTransportRequest setBody(RequestBody body) {
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * 设置请求体
+     *
+     * @param body        请求体
+     * @param contentType 请求体类型
+     * @return this
+     */
+    public HttpTransportRequest setBody(@NonNull byte[] body, String contentType) {
+        this.body = RequestBody.of(body, contentType);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "HttpTransportRequest{" +
+                "method=" + method +
+                ", url='" + url + '\'' +
+                ", headers=" + headers.keySet() +
+                ", bodyLength=" + (body != null ? body.getContentLength() : -1) +
+                '}';
+    }
+}
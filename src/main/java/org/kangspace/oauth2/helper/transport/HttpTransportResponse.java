@@ -0,0 +1,88 @@
+package org.kangspace.oauth2.helper.transport;
+
+import lombok.NonNull;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 与HTTP客户端无关的响应 <br>
+ * 响应体以流的形式提供, 关闭响应时释放底层连接
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public class HttpTransportResponse implements Closeable {
+    private static final InputStream EMPTY_BODY = new ByteArrayInputStream(new byte[0]);
+
+    private final int statusCode;
+    private final Map<String, List<String>> headers;
+    private final InputStream body;
+
+    /**
+     * 构造方法
+     *
+     * @param statusCode 状态码
+     * @param headers    响应头
+     * @param body       响应体, 无响应体时为null
+     */
+    public HttpTransportResponse(int statusCode, @NonNull Map<String, List<String>> headers, InputStream body) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body != null ? body : EMPTY_BODY;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * 获取响应头的第一个值(名称不区分大小写)
+     *
+     * @param name 名称
+     * @return 值, 不存在时返回null
+     */
+    public String getHeader(@NonNull String name) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取响应体流, 只能读取一次
+     *
+     * @return 响应体流
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * 以UTF-8读取全部响应体
+     *
+     * @return 响应体
+     * @throws IOException 读取异常
+     */
+    public String getBodyAsString() throws IOException {
+        return IOUtils.toString(body, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
@@ -0,0 +1,56 @@
+package org.kangspace.oauth2.helper.transport;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基于JDK {@code java.net.http.HttpClient}的{@link HttpTransport}实现 <br>
+ * 需Java 11及以上版本: 实际实现位于多版本jar的{@code META-INF/versions/11}中, 低版本JDK下构造时抛出{@link UnsupportedOperationException}
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public class JdkHttpTransport implements HttpTransport {
+    /**
+     * 默认连接超时时间(毫秒)
+     */
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 60000L;
+
+    /**
+     * 默认请求超时时间(毫秒)
+     */
+    public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 60000L;
+
+    public JdkHttpTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_REQUEST_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param connectTimeoutMillis 连接超时时间(毫秒)
+     * @param requestTimeoutMillis 请求超时时间(毫秒)
+     */
+    public JdkHttpTransport(long connectTimeoutMillis, long requestTimeoutMillis) {
+        throw new UnsupportedOperationException("JdkHttpTransport需Java 11及以上版本, 当前版本: "
+                + System.getProperty("java.version"));
+    }
+
+    /**
+     * 当前运行环境是否支持
+     *
+     * @return 是否支持
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    @Override
+    public HttpTransportResponse execute(HttpTransportRequest request) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<HttpTransportResponse> executeAsync(HttpTransportRequest request) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,162 @@
+package org.kangspace.oauth2.helper.transport;
+
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 请求体 <br>
+ * 由传输层在发送时写入连接输出流; 内置实现均可重复写入(重试时重新发送)
+ *
+ * <pre>
+ * {@link #of(byte[], String)}: 字节数组
+ * {@link #json(Object, String)}: 流式JSON, 每次发送时直接序列化至输出流, 不生成中间字符串/字节数组, 长度未知(分块传输)
+ * {@link #bufferedJson(Object, String)}: 首次发送时序列化为字节数组并缓存, 重试时复用, 长度已知
+ * </pre>
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public abstract class RequestBody {
+    private final String contentType;
+
+    protected RequestBody(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * 请求体类型, 请求头中未指定Content-Type时使用
+     *
+     * @return 请求体类型
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 请求体长度
+     *
+     * @return 请求体长度, 未知时返回-1
+     */
+    public abstract long getContentLength();
+
+    /**
+     * 写入请求体, 不关闭输出流
+     *
+     * @param out 输出流
+     * @throws IOException 写入异常
+     */
+    public abstract void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * 获取请求体字节数组, 用于不支持流式写入的传输层
+     *
+     * @return 请求体字节数组
+     * @throws IOException 序列化异常
+     */
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        writeTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 字节数组请求体
+     *
+     * @param bytes       请求体
+     * @param contentType 请求体类型
+     * @return 请求体
+     */
+    public static RequestBody of(@NonNull byte[] bytes, String contentType) {
+        return new ByteArrayBody(bytes, contentType);
+    }
+
+    /**
+     * 流式JSON请求体, 每次发送时直接序列化至输出流
+     *
+     * @param value       请求对象
+     * @param contentType 请求体类型
+     * @return 请求体
+     */
+    public static RequestBody json(@NonNull Object value, String contentType) {
+        return new RequestBody(contentType) {
+            @Override
+            public long getContentLength() {
+                return -1L;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                StreamingJsonParser.write(out, value);
+            }
+        };
+    }
+
+    /**
+     * 缓存的JSON请求体, 首次发送(或获取长度)时序列化一次, 重试时复用
+     *
+     * @param value       请求对象
+     * @param contentType 请求体类型
+     * @return 请求体
+     */
+    public static RequestBody bufferedJson(@NonNull Object value, String contentType) {
+        return new RequestBody(contentType) {
+            private volatile byte[] bytes;
+
+            @Override
+            public long getContentLength() {
+                try {
+                    return toByteArray().length;
+                } catch (IOException e) {
+                    // 序列化异常在写入时抛出
+                    return -1L;
+                }
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(toByteArray());
+            }
+
+            @Override
+            public byte[] toByteArray() throws IOException {
+                byte[] serialized = bytes;
+                if (serialized == null) {
+                    synchronized (this) {
+                        if (bytes == null) {
+                            bytes = StreamingJsonParser.toBytes(value);
+                        }
+                        serialized = bytes;
+                    }
+                }
+                return serialized;
+            }
+        };
+    }
+
+    private static final class ByteArrayBody extends RequestBody {
+        private final byte[] bytes;
+
+        private ByteArrayBody(byte[] bytes, String contentType) {
+            super(contentType);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long getContentLength() {
+            return bytes.length;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(bytes);
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.kangspace.oauth2.helper.transport;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流式JSON解析 <br>
+ * 直接从输入流绑定对象或将对象序列化至输出流, 不生成中间字符串; 忽略未知属性 <br>
+ * 请求层(请求体、响应体、日志及异常信息)统一使用该类的ObjectMapper, 序列化结果与实际发送的内容一致
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public final class StreamingJsonParser {
+    /**
+     * 序列化/反序列化配置与dev-helper的{@code org.kangspace.devhelper.json.JsonParser}一致(输出包含null属性, 忽略未知属性,
+     * 日期输出为时间戳), 请求体与此前通过JsonParser发送的内容相同; 仅流的关闭方式不同
+     */
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.ALWAYS)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, true)
+            // 由调用方关闭输入/输出流(释放连接)
+            .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false)
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    /**
+     * 按类型缓存的ObjectReader(线程安全)
+     */
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    private StreamingJsonParser() {
+    }
+
+    /**
+     * 从输入流解析对象, 不关闭输入流
+     *
+     * @param in    输入流
+     * @param clazz 对象类型
+     * @param <T>   对象类型
+     * @return 对象, 输入流为空时返回null
+     * @throws IOException 读取或解析异常
+     */
+    public static <T> T parse(@NonNull InputStream in, @NonNull Class<T> clazz) throws IOException {
+        PushbackInputStream body = new PushbackInputStream(in, 1);
+        int first = body.read();
+        if (first < 0) {
+            return null;
+        }
+        body.unread(first);
+        return READERS.computeIfAbsent(clazz, OBJECT_MAPPER::readerFor).readValue(body);
+    }
+
+    /**
+     * 将对象以UTF-8序列化至输出流, 不关闭输出流
+     *
+     * @param out   输出流
+     * @param value 对象
+     * @throws IOException 写入或序列化异常
+     */
+    public static void write(@NonNull OutputStream out, Object value) throws IOException {
+        OBJECT_MAPPER.writeValue(out, value);
+    }
+
+    /**
+     * 将对象以UTF-8序列化为字节数组
+     *
+     * @param value 对象
+     * @return 字节数组
+     * @throws IOException 序列化异常
+     */
+    public static byte[] toBytes(Object value) throws IOException {
+        return OBJECT_MAPPER.writeValueAsBytes(value);
+    }
+
+    /**
+     * 将对象序列化为JSON字符串, 用于日志及异常信息
+     *
+     * @param value 对象
+     * @return JSON字符串
+     * @throws UncheckedIOException 序列化异常
+     */
+    public static String toJsonString(Object value) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
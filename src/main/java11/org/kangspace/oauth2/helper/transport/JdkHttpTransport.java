@@ -0,0 +1,135 @@
+package org.kangspace.oauth2.helper.transport;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基于JDK {@code java.net.http.HttpClient}的{@link HttpTransport}实现(Java 11+) <br>
+ * 同步请求以流的形式读取响应体, 异步请求在I/O线程中读取完整响应体, 不阻塞调用线程 <br>
+ * JDK HttpClient不支持基于输出流写入请求体, 请求体在发送前序列化为字节数组
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+public class JdkHttpTransport implements HttpTransport {
+    /**
+     * 默认连接超时时间(毫秒)
+     */
+    public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 60000L;
+
+    /**
+     * 默认请求超时时间(毫秒)
+     */
+    public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 60000L;
+
+    /**
+     * 由HttpClient自行管理, 不允许手动设置的请求头
+     */
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        RESTRICTED_HEADERS.addAll(Arrays.asList("Connection", "Content-Length", "Expect", "Host", "Upgrade"));
+    }
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+
+    public JdkHttpTransport() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_REQUEST_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param connectTimeoutMillis 连接超时时间(毫秒)
+     * @param requestTimeoutMillis 请求超时时间(毫秒)
+     */
+    public JdkHttpTransport(long connectTimeoutMillis, long requestTimeoutMillis) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+    }
+
+    /**
+     * 当前运行环境是否支持
+     *
+     * @return 是否支持
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    @Override
+    public HttpTransportResponse execute(@NonNull HttpTransportRequest request) throws IOException {
+        try {
+            HttpResponse<InputStream> response = httpClient.send(toHttpRequest(request),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            return new HttpTransportResponse(response.statusCode(), response.headers().map(),
+                    new FilterInputStream(response.body()) {
+                        @Override
+                        public void close() throws IOException {
+                            // 读完剩余内容后关闭, 使连接可复用
+                            try {
+                                in.transferTo(OutputStream.nullOutputStream());
+                            } finally {
+                                super.close();
+                            }
+                        }
+                    });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("请求被中断, url: " + request.getUrl());
+        }
+    }
+
+    @Override
+    public CompletableFuture<HttpTransportResponse> executeAsync(@NonNull HttpTransportRequest request) {
+        try {
+            return httpClient.sendAsync(toHttpRequest(request), HttpResponse.BodyHandlers.ofByteArray())
+                    .thenApply(response -> new HttpTransportResponse(response.statusCode(),
+                            response.headers().map(), new ByteArrayInputStream(response.body())));
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private HttpRequest toHttpRequest(HttpTransportRequest request) throws IOException {
+        RequestBody body = request.getBody();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.getUrl()))
+                .timeout(requestTimeout)
+                .method(request.getMethod().name(), body != null
+                        ? HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())
+                        : HttpRequest.BodyPublishers.noBody());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (RESTRICTED_HEADERS.contains(header.getKey())) {
+                log.debug("JdkHttpTransport: skip restricted header: {}", header.getKey());
+                continue;
+            }
+            builder.header(header.getKey(), header.getValue());
+        }
+        if (body != null && body.getContentType() != null && request.getHeader("Content-Type") == null) {
+            builder.header("Content-Type", body.getContentType());
+        }
+        return builder.build();
+    }
+}
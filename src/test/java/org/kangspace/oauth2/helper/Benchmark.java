@@ -0,0 +1,11 @@
+package org.kangspace.oauth2.helper;
+
+/**
+ * 性能对比测试分类 <br>
+ * 默认测试中排除, 通过 mvn test -P benchmark 执行
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+public interface Benchmark {
+}
@@ -0,0 +1,387 @@
+package org.kangspace.oauth2.helper;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.devhelper.thread.ThreadUtil;
+import org.kangspace.oauth2.helper.concurrent.CircuitBreaker;
+import org.kangspace.oauth2.helper.concurrent.SingleFlight;
+import org.kangspace.oauth2.helper.exception.TokenEndpointUnavailableException;
+import org.kangspace.oauth2.helper.exception.UnOKResponseException;
+import org.kangspace.oauth2.helper.storage.CachingTokenStorage;
+import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.storage.local.InMemoryTokenStorage;
+import org.kangspace.oauth2.helper.storage.local.TokenRegistry;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+import org.kangspace.oauth2.helper.token.TokenResponse;
+
+import javax.annotation.Nonnull;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TokenLoaderTest <br>
+ * 使用本地模拟的token服务器, 无需网络
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class TokenLoaderTest {
+    /**
+     * 多个用户共享的密码模式token池
+     */
+    private static final TokenStorage<MockToken> SHARED_PASSWORD_STORAGE = new TokenRegistry(100, 60_000L)
+            .storage(TokenRegistry.GRANT_TYPE_PASSWORD, null);
+
+    private MockClientCredentialsService service;
+
+    @Before
+    public void setUp() {
+        service = new MockClientCredentialsService();
+    }
+
+    @Test
+    public void testConcurrentGetTokenFetchesOnce() throws Exception {
+        int threads = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<MockToken>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return service.getToken(false);
+            }));
+        }
+        start.countDown();
+        for (Future<MockToken> result : results) {
+            Assert.assertEquals("token-1", result.get(5, TimeUnit.SECONDS).getAccessToken());
+        }
+        executor.shutdown();
+        Assert.assertEquals(1, service.fetches.get());
+    }
+
+    @Test
+    public void testRefreshReusesRenewedToken() {
+        MockToken token = service.getToken(false);
+        MockToken refreshed = service.getToken(true);
+        Assert.assertNotEquals(token.getAccessToken(), refreshed.getAccessToken());
+        Assert.assertEquals(2, service.fetches.get());
+        // 缓存中的token已更新, 按旧token刷新时直接使用新token
+        service.tokenStorage.invalidate("clientId");
+        Assert.assertEquals(refreshed.getAccessToken(), service.getToken(false).getAccessToken());
+        Assert.assertEquals(2, service.fetches.get());
+    }
+
+    @Test
+    public void testGetTokenAsyncNotBlocking() throws Exception {
+        List<CompletableFuture<MockToken>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < 8; i++) {
+            results.add(service.getTokenAsync(false));
+        }
+        // 获取token耗时100ms, 不在调用线程中执行
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 50);
+        for (CompletableFuture<MockToken> result : results) {
+            Assert.assertEquals("token-1", result.get(5, TimeUnit.SECONDS).getAccessToken());
+        }
+        Assert.assertEquals(1, service.fetches.get());
+        // 存储中存在token时直接返回
+        CompletableFuture<MockToken> cached = service.getTokenAsync(false);
+        Assert.assertTrue(cached.isDone());
+        Assert.assertEquals("token-1", cached.get().getAccessToken());
+        Assert.assertEquals("token-2", service.getTokenAsync(true).get(5, TimeUnit.SECONDS).getAccessToken());
+    }
+
+    @Test
+    public void testStaleWhileRevalidate() {
+        service.staleWhileRevalidateSeconds = 600L;
+        // 剩余有效时间在宽限时间内的token
+        MockToken stale = new MockToken("stale", 7200L);
+        service.tokenStorage.setEnvelope("clientId", TokenEnvelope.ofRemaining(stale, TimeUnit.MINUTES.toMillis(5)));
+        Assert.assertEquals("stale", service.getToken(false).getAccessToken());
+        for (int i = 0; i < 50 && service.fetches.get() == 0; i++) {
+            ThreadUtil.sleep(100);
+        }
+        ThreadUtil.sleep(100);
+        Assert.assertEquals(1, service.fetches.get());
+        Assert.assertEquals("token-1", service.getToken(false).getAccessToken());
+    }
+
+    @Test
+    public void testPasswordTokenPerUserAndRefreshToken() {
+        MockPasswordService alice = new MockPasswordService("alice");
+        MockPasswordService bob = new MockPasswordService("bob");
+        String aliceToken = alice.getToken(false).getAccessToken();
+        String bobToken = bob.getToken(false).getAccessToken();
+        Assert.assertNotEquals(aliceToken, bobToken);
+        Assert.assertEquals(aliceToken, alice.getToken(false).getAccessToken());
+        Assert.assertEquals(1, alice.logins.get());
+        // 续期时使用refresh token, 不重新登录
+        String renewed = alice.getToken(true).getAccessToken();
+        Assert.assertEquals("alice-refreshed-1", renewed);
+        Assert.assertEquals(1, alice.logins.get());
+        Assert.assertEquals(bobToken, bob.getToken(false).getAccessToken());
+    }
+
+    @Test
+    public void testCircuitBreakerIgnoresCredentialRejection() {
+        MockPasswordService mallory = new MockPasswordService("mallory") {
+            @Override
+            public TokenResponse<MockToken> getToken(@NonNull String clientId, @NonNull String clientSecret,
+                                                     @NonNull String username, @NonNull String password) {
+                throw new UnOKResponseException(400, "POST", "/oauth/token", "{\"error\":\"invalid_grant\"}");
+            }
+        };
+        MockPasswordService carol = new MockPasswordService("carol");
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            try {
+                mallory.getToken(false);
+                Assert.fail("login should fail");
+            } catch (UnOKResponseException e) {
+                log.info("expected: {}", e.getMessage());
+            }
+        }
+        Assert.assertSame(mallory.getTokenCircuitBreaker(), carol.getTokenCircuitBreaker());
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, mallory.getTokenCircuitBreaker().getState());
+        Assert.assertEquals("carol-1", carol.getToken(false).getAccessToken());
+    }
+
+    /**
+     * token服务不可用时同一客户端的所有用户共享熔断, 每个用户无需各自等待超时
+     */
+    @Test
+    public void testCircuitBreakerPerClient() {
+        AtomicInteger attempts = new AtomicInteger();
+        class DownService extends MockPasswordService {
+            DownService(String username) {
+                super(username);
+            }
+
+            @Override
+            public TokenResponse<MockToken> getToken(@NonNull String clientId, @NonNull String clientSecret,
+                                                     @NonNull String username, @NonNull String password) {
+                attempts.incrementAndGet();
+                throw new RuntimeException("请求异常", new SocketTimeoutException("Read timed out"));
+            }
+        }
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            try {
+                new DownService("user-" + i).getToken(false);
+                Assert.fail("login should fail");
+            } catch (RuntimeException e) {
+                log.info("expected: {}", e.getMessage());
+            }
+        }
+        DownService erin = new DownService("erin");
+        Assert.assertEquals(CircuitBreaker.State.OPEN, erin.getTokenCircuitBreaker().getState());
+        try {
+            erin.getToken(false);
+            Assert.fail("circuit breaker should be open");
+        } catch (TokenEndpointUnavailableException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+        Assert.assertEquals(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, attempts.get());
+        erin.getTokenCircuitBreaker().reset();
+    }
+
+    /**
+     * 以InMemoryTokenStorage为唯一存储时, 刷新使用当前token的refresh token, 刷新失败时当前token仍可使用
+     */
+    @Test
+    public void testInMemoryStorageRefreshToken() {
+        AtomicBoolean serverDown = new AtomicBoolean();
+        MockPasswordService dave = new MockPasswordService("dave") {
+            private final InMemoryTokenStorage<MockToken> storage = new InMemoryTokenStorage<>();
+
+            @Override
+            public TokenStorage<MockToken> getTokenStorage() {
+                return storage;
+            }
+
+            @Override
+            public TokenResponse<MockToken> getToken(@NonNull String clientId, @NonNull String clientSecret,
+                                                     @NonNull String username, @NonNull String password) {
+                if (serverDown.get()) {
+                    throw new IllegalStateException("token server down");
+                }
+                return super.getToken(clientId, clientSecret, username, password);
+            }
+
+            @Override
+            public TokenResponse<MockToken> refreshToken(@NonNull String refreshToken, @NonNull String clientId,
+                                                         @NonNull String clientSecret) {
+                if (serverDown.get()) {
+                    throw new IllegalStateException("token server down");
+                }
+                return super.refreshToken(refreshToken, clientId, clientSecret);
+            }
+        };
+        Assert.assertEquals("dave-1", dave.getToken(false).getAccessToken());
+        Assert.assertEquals("dave-refreshed-1", dave.getToken(true).getAccessToken());
+        Assert.assertEquals(1, dave.logins.get());
+        serverDown.set(true);
+        try {
+            dave.getToken(true);
+            Assert.fail("refresh should fail");
+        } catch (RuntimeException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+        Assert.assertEquals("dave-refreshed-1", dave.getToken(false).getAccessToken());
+        dave.getTokenCircuitBreaker().reset();
+    }
+
+    /**
+     * 模拟Token
+     */
+    public static class MockToken extends DefaultToken implements TokenResponse<MockToken> {
+        public MockToken(String accessToken, Long expiresIn) {
+            super(accessToken, expiresIn, null, null);
+        }
+
+        public MockToken(String accessToken, Long expiresIn, String refreshToken) {
+            super(accessToken, expiresIn, refreshToken, null);
+        }
+
+        @Override
+        public boolean isSucceed() {
+            return true;
+        }
+
+        @Override
+        public boolean isInvalidToken() {
+            return false;
+        }
+    }
+
+    /**
+     * 模拟客户端模式Service, 每次获取token耗时100ms
+     */
+    static class MockClientCredentialsService implements ClientCredentialsService<MockToken> {
+        private final AtomicInteger fetches = new AtomicInteger();
+        private final SingleFlight singleFlight = new SingleFlight();
+        private final TokenStorage<MockToken> tokenStorage = new CachingTokenStorage<>(new MapTokenStorage());
+        private long staleWhileRevalidateSeconds = 0L;
+
+        @Override
+        public String getClientId() {
+            return "clientId";
+        }
+
+        @Override
+        public String getClientSecret() {
+            return "clientSecret";
+        }
+
+        @Override
+        public TokenStorage<MockToken> getTokenStorage() {
+            return tokenStorage;
+        }
+
+        @Override
+        public SingleFlight getTokenSingleFlight() {
+            return singleFlight;
+        }
+
+        @Override
+        public long getStaleWhileRevalidateSeconds() {
+            return staleWhileRevalidateSeconds;
+        }
+
+        @Override
+        public TokenResponse<MockToken> getToken(@NonNull String clientId, @NonNull String clientSecret) {
+            ThreadUtil.sleep(100);
+            return new MockToken("token-" + fetches.incrementAndGet(), 7200L);
+        }
+    }
+
+    /**
+     * 模拟密码模式Service, 登录返回refresh token
+     */
+    static class MockPasswordService implements PasswordService<MockToken> {
+        private final AtomicInteger logins = new AtomicInteger();
+        private final AtomicInteger refreshes = new AtomicInteger();
+        private final String username;
+
+        MockPasswordService(String username) {
+            this.username = username;
+        }
+
+        @Override
+        public String getClientId() {
+            return "passwordClientId";
+        }
+
+        @Override
+        public String getClientSecret() {
+            return "clientSecret";
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public String getPassword() {
+            return "password";
+        }
+
+        @Override
+        public TokenStorage<MockToken> getTokenStorage() {
+            return SHARED_PASSWORD_STORAGE;
+        }
+
+        @Override
+        public boolean useRefreshToken() {
+            return true;
+        }
+
+        @Override
+        public TokenResponse<MockToken> getToken(@NonNull String clientId, @NonNull String clientSecret,
+                                                 @NonNull String username, @NonNull String password) {
+            return new MockToken(username + "-" + logins.incrementAndGet(), 7200L, username + "-refresh");
+        }
+
+        @Override
+        public TokenResponse<MockToken> refreshToken(@NonNull String refreshToken, @NonNull String clientId,
+                                                     @NonNull String clientSecret) {
+            Assert.assertEquals(username + "-refresh", refreshToken);
+            return new MockToken(username + "-refreshed-" + refreshes.incrementAndGet(), 7200L, refreshToken);
+        }
+    }
+
+    /**
+     * 基于Map的Token存储
+     */
+    static class MapTokenStorage implements TokenStorage<MockToken> {
+        private final Map<String, MockToken> tokens = new ConcurrentHashMap<>();
+
+        @Override
+        public void set(@Nonnull String identity, @Nonnull MockToken value) {
+            tokens.put(identity, value);
+        }
+
+        @Override
+        public MockToken get(@Nonnull String identity) {
+            return tokens.get(identity);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.kangspace.oauth2.helper.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.devhelper.thread.ThreadUtil;
+import org.kangspace.oauth2.helper.exception.TokenEndpointUnavailableException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CircuitBreakerTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpenAfterThresholdAndFailFast() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 3, 60_000L, 60_000L);
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            try {
+                circuitBreaker.execute(() -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("token server down");
+                });
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                log.info("expected failure: {}", e.getMessage());
+            }
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        try {
+            circuitBreaker.execute(calls::incrementAndGet);
+            Assert.fail();
+        } catch (TokenEndpointUnavailableException e) {
+            log.info("fail fast: {}", e.getMessage());
+            Assert.assertTrue(e.getRetryAfterMillis() > 0);
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testIgnoredFailureNotCounted() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 2, 60_000L, 60_000L);
+        circuitBreaker.addListener((cb, from, to) -> Assert.fail(from + "->" + to));
+        for (int i = 0; i < 5; i++) {
+            try {
+                circuitBreaker.execute(() -> {
+                    throw new IllegalArgumentException("invalid_grant");
+                }, e -> !(e instanceof IllegalArgumentException));
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                log.info("expected failure: {}", e.getMessage());
+            }
+        }
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Assert.assertEquals(0, circuitBreaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void testSharedEvictIdleAndRemove() {
+        CircuitBreaker idle = CircuitBreaker.shared("test-shared-idle");
+        CircuitBreaker open = CircuitBreaker.shared("test-shared-open");
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            try {
+                open.execute(() -> {
+                    throw new IllegalStateException("token server down");
+                });
+            } catch (IllegalStateException e) {
+                log.info("expected failure: {}", e.getMessage());
+            }
+        }
+        Assert.assertSame(idle, CircuitBreaker.shared("test-shared-idle"));
+        // 仅清理关闭状态的熔断器, 打开状态的熔断器保留
+        Assert.assertTrue(CircuitBreaker.evictIdleShared(0L) >= 1);
+        Assert.assertNotSame(idle, CircuitBreaker.shared("test-shared-idle"));
+        Assert.assertSame(open, CircuitBreaker.shared("test-shared-open"));
+        Assert.assertSame(open, CircuitBreaker.removeShared("test-shared-open"));
+        Assert.assertNull(CircuitBreaker.removeShared("test-shared-open"));
+        Assert.assertNotSame(open, CircuitBreaker.shared("test-shared-open"));
+        CircuitBreaker.removeShared("test-shared-idle");
+        CircuitBreaker.removeShared("test-shared-open");
+    }
+
+    @Test
+    public void testHalfOpenProbe() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, 100L, 1000L);
+        List<String> transitions = new ArrayList<>();
+        circuitBreaker.addListener((cb, from, to) -> transitions.add(from + "->" + to));
+        try {
+            circuitBreaker.execute(() -> {
+                throw new IllegalStateException("token server down");
+            });
+        } catch (IllegalStateException ignored) {
+        }
+        ThreadUtil.sleep(150);
+        // 探测请求失败, 重新打开
+        try {
+            circuitBreaker.execute(() -> {
+                throw new IllegalStateException("token server still down");
+            });
+        } catch (IllegalStateException ignored) {
+        }
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        ThreadUtil.sleep(250);
+        Assert.assertEquals("token", circuitBreaker.execute(() -> "token"));
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        Assert.assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->OPEN, OPEN->HALF_OPEN, HALF_OPEN->CLOSED]",
+                transitions.toString());
+    }
+
+    @Test
+    public void testSingleProbeInHalfOpen() throws Exception {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("test", 1, 50L, 50L);
+        try {
+            circuitBreaker.execute(() -> {
+                throw new IllegalStateException("token server down");
+            });
+        } catch (IllegalStateException ignored) {
+        }
+        ThreadUtil.sleep(100);
+        Thread probe = new Thread(() -> circuitBreaker.execute(() -> {
+            ThreadUtil.sleep(300);
+            return "token";
+        }));
+        probe.start();
+        ThreadUtil.sleep(100);
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        try {
+            circuitBreaker.execute(() -> "token");
+            Assert.fail();
+        } catch (TokenEndpointUnavailableException e) {
+            log.info("fail fast while probing: {}", e.getMessage());
+        }
+        probe.join();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+}
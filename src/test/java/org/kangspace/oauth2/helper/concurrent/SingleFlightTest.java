@@ -0,0 +1,125 @@
+package org.kangspace.oauth2.helper.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.devhelper.thread.ThreadUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SingleFlightTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class SingleFlightTest {
+    private SingleFlight singleFlight;
+
+    @Before
+    public void setUp() {
+        singleFlight = new SingleFlight();
+    }
+
+    @Test
+    public void testConcurrentCallsCoalesced() throws Exception {
+        int threads = 32;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return singleFlight.execute("test", () -> {
+                    loads.incrementAndGet();
+                    ThreadUtil.sleep(200);
+                    return "token";
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<String> result : results) {
+            Assert.assertEquals("token", result.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        log.info("executions: {}, coalesced: {}", singleFlight.getExecutionCount(), singleFlight.getCoalescedCount());
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(threads - 1, singleFlight.getCoalescedCount());
+        Assert.assertFalse(singleFlight.isInFlight("test"));
+    }
+
+    @Test
+    public void testExceptionSharedAndNotCached() {
+        try {
+            singleFlight.execute("test", () -> {
+                throw new IllegalStateException("token server down");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("token server down", e.getMessage());
+        }
+        Assert.assertEquals("token", singleFlight.execute("test", () -> "token"));
+        Assert.assertEquals(2, singleFlight.getExecutionCount());
+    }
+
+    @Test
+    public void testAsyncLoaderCoalesced() throws Exception {
+        CompletableFuture<String> loading = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> first = singleFlight.executeAsync("async", () -> {
+            loads.incrementAndGet();
+            return loading;
+        });
+        CompletableFuture<String> second = singleFlight.executeAsync("async", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        Assert.assertTrue(singleFlight.isInFlight("async"));
+        // 取消其中一个调用方不影响其他调用方
+        first.cancel(false);
+        loading.complete("value");
+        Assert.assertEquals("value", second.get());
+        Assert.assertEquals(1, loads.get());
+        Assert.assertFalse(singleFlight.isInFlight("async"));
+    }
+
+    @Test
+    public void testExecutorLoaderIsolated() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<String> first = singleFlight.executeAsync("executor", () -> {
+                try {
+                    loading.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "value";
+            }, executor);
+            CompletableFuture<String> second = singleFlight.executeAsync("executor", () -> "other", executor);
+            // 调用方完成或取消自己的结果不影响其他调用方
+            first.complete("forged");
+            second.cancel(false);
+            CompletableFuture<String> third = singleFlight.executeAsync("executor", () -> "other", executor);
+            loading.countDown();
+            Assert.assertEquals("value", third.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(1L, singleFlight.getExecutionCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
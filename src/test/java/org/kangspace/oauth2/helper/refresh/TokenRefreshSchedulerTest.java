@@ -0,0 +1,130 @@
+package org.kangspace.oauth2.helper.refresh;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.devhelper.thread.ThreadUtil;
+import org.kangspace.oauth2.helper.ClientCredentialsService;
+import org.kangspace.oauth2.helper.TokenLoaderTest.MockToken;
+import org.kangspace.oauth2.helper.token.TokenResponse;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * TokenRefreshSchedulerTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class TokenRefreshSchedulerTest {
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicInteger refreshes = new AtomicInteger();
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    /**
+     * stop后再次start, 内部线程池重新创建并继续调度
+     */
+    @Test
+    public void testRestartAfterStop() {
+        TokenRefreshScheduler<MockToken> scheduler = new TokenRefreshScheduler<>(new MockService("scheduler-restart"));
+        scheduler.start();
+        Assert.assertTrue(await(loads::get, 1));
+        scheduler.stop();
+        Assert.assertFalse(scheduler.isRunning());
+
+        scheduler.start();
+        Assert.assertTrue(scheduler.isRunning());
+        Assert.assertTrue(await(loads::get, 2));
+        scheduler.stop();
+        for (String thread : threads) {
+            Assert.assertTrue(thread, thread.startsWith("oauth2-token-refresh-"));
+        }
+    }
+
+    /**
+     * 到达刷新时间点时强制刷新token
+     */
+    @Test
+    public void testRefreshBeforeExpiry() {
+        try (TokenRefreshScheduler<MockToken> scheduler =
+                     new TokenRefreshScheduler<>(new MockService("scheduler-refresh"), 0.01, 0)) {
+            scheduler.start();
+            Assert.assertTrue(await(refreshes::get, 1));
+        }
+    }
+
+    /**
+     * 外部线程池stop时不关闭, 可再次start
+     */
+    @Test
+    public void testExternalExecutorNotShutdown() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            TokenRefreshScheduler<MockToken> scheduler = new TokenRefreshScheduler<>(
+                    new MockService("scheduler-external"), TokenRefreshScheduler.DEFAULT_REFRESH_FACTOR,
+                    TokenRefreshScheduler.DEFAULT_JITTER_FACTOR, 1L, executor);
+            scheduler.start();
+            Assert.assertTrue(await(loads::get, 1));
+            scheduler.stop();
+            Assert.assertFalse(executor.isShutdown());
+            scheduler.start();
+            Assert.assertTrue(await(loads::get, 2));
+            scheduler.stop();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean await(IntSupplier counter, int expected) {
+        for (int i = 0; i < 500 && counter.getAsInt() < expected; i++) {
+            ThreadUtil.sleep(10);
+        }
+        return counter.getAsInt() >= expected;
+    }
+
+    /**
+     * 模拟客户端模式Service, token有效期100秒
+     */
+    private class MockService implements ClientCredentialsService<MockToken> {
+        private final String clientId;
+
+        MockService(String clientId) {
+            this.clientId = clientId;
+        }
+
+        @Override
+        public String getClientId() {
+            return clientId;
+        }
+
+        @Override
+        public String getClientSecret() {
+            return "clientSecret";
+        }
+
+        @Override
+        public MockToken getToken(boolean isRefreshToken) {
+            threads.add(Thread.currentThread().getName());
+            loads.incrementAndGet();
+            if (isRefreshToken) {
+                refreshes.incrementAndGet();
+            }
+            return ClientCredentialsService.super.getToken(isRefreshToken);
+        }
+
+        @Override
+        public TokenResponse<MockToken> getToken(@NonNull String clientId, @NonNull String clientSecret) {
+            return new MockToken(clientId + "-" + System.nanoTime(), 100L);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.kangspace.oauth2.helper.refresh;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.devhelper.thread.ThreadUtil;
+import org.kangspace.oauth2.helper.ClientCredentialsService;
+import org.kangspace.oauth2.helper.TokenLoaderTest.MockToken;
+import org.kangspace.oauth2.helper.token.TokenResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TokenWarmerTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class TokenWarmerTest {
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Service数远超token后台刷新线程池容量时, 预热不被拒绝, 且同时加载数不超过并行度
+     */
+    @Test
+    public void testWarmUpManyServices() {
+        List<MockService> services = services("many", 300);
+        try (TokenWarmer warmer = new TokenWarmer(services)) {
+            Assert.assertTrue(warmer.awaitReady(30, TimeUnit.SECONDS));
+            Assert.assertTrue(warmer.getFailures().isEmpty());
+        }
+        log.info("fetches: {}, maxRunning: {}, threads: {}", fetches.get(), maxRunning.get(), threads);
+        Assert.assertEquals(300, fetches.get());
+        Assert.assertTrue(maxRunning.get() <= TokenWarmer.DEFAULT_PARALLELISM);
+        for (String thread : threads) {
+            Assert.assertTrue(thread, thread.startsWith("oauth2-token-warmer-"));
+        }
+    }
+
+    /**
+     * 指定线程池拒绝任务时在当前线程加载
+     */
+    @Test
+    public void testRejectedExecutorWarmsUpInCurrentThread() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.SECONDS, new SynchronousQueue<>());
+        try {
+            List<MockService> services = services("rejected", 50);
+            TokenWarmer warmer = new TokenWarmer(services, null, executor, 8);
+            Assert.assertTrue(warmer.awaitReady(30, TimeUnit.SECONDS));
+            Assert.assertEquals(50, fetches.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWarmUpReturnsSameFuture() {
+        TokenWarmer warmer = new TokenWarmer(services("same", 3));
+        Assert.assertSame(warmer.warmUp(), warmer.warmUp());
+        Assert.assertTrue(warmer.awaitReady(30, TimeUnit.SECONDS));
+        Assert.assertEquals(3, fetches.get());
+        warmer.close();
+    }
+
+    private List<MockService> services(String prefix, int count) {
+        List<MockService> services = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            services.add(new MockService("warmer-" + prefix + "-" + i));
+        }
+        return services;
+    }
+
+    /**
+     * 模拟客户端模式Service, 每次获取token耗时5ms
+     */
+    private class MockService implements ClientCredentialsService<MockToken> {
+        private final String clientId;
+
+        MockService(String clientId) {
+            this.clientId = clientId;
+        }
+
+        @Override
+        public String getClientId() {
+            return clientId;
+        }
+
+        @Override
+        public String getClientSecret() {
+            return "clientSecret";
+        }
+
+        @Override
+        public TokenResponse<MockToken> getToken(@NonNull String clientId, @NonNull String clientSecret) {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            threads.add(Thread.currentThread().getName());
+            try {
+                ThreadUtil.sleep(5);
+                return new MockToken(clientId + "-" + fetches.incrementAndGet(), 7200L);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.kangspace.oauth2.helper.request;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.exception.UnOKResponseException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步请求测试 <br>
+ * 使用本地HttpServer模拟资源服务器, 仅接受最新的token
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class AsyncRequestTest extends MockServerTestSupport {
+    private CloseableHttpAsyncClient httpAsyncClient;
+    private MockService service;
+
+    @Override
+    protected void createContexts(HttpServer server) {
+        server.createContext("/resource", exchange -> {
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            boolean valid = ("Bearer token-" + service.fetches.get()).equals(authorization);
+            respond(exchange, valid ? 200 : 401, valid ? "{\"value\":\"ok\"}" : "{\"value\":\"unauthorized\"}");
+        });
+        server.createContext("/error", exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+    }
+
+    @Before
+    public void setUp() {
+        service = new MockService();
+        httpAsyncClient = RequestFactory.getHttpAsyncClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpAsyncClient.close();
+    }
+
+    @Test
+    public void testRefreshTokenOnUnauthorized() throws Exception {
+        service.getToken(false);
+        // 服务端只接受第2个token, 首次请求401后刷新token重试
+        service.fetches.incrementAndGet();
+        MockResponse response = service.getWithTokenAsync(baseUrl + "/resource", null, MockResponse.class)
+                .get(10, TimeUnit.SECONDS);
+        Assert.assertEquals("ok", response.getValue());
+        Assert.assertEquals(3, service.fetches.get());
+    }
+
+    @Test
+    public void testUnOKResponse() throws Exception {
+        try {
+            service.getAsync(baseUrl + "/error", null, MockResponse.class).get(10, TimeUnit.SECONDS);
+            Assert.fail("should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof UnOKResponseException);
+        }
+    }
+
+    /**
+     * 模拟响应
+     */
+    @Data
+    public static class MockResponse implements Response {
+        private String value;
+
+        @Override
+        public boolean isSucceed() {
+            return true;
+        }
+
+        @Override
+        public boolean isInvalidToken() {
+            return false;
+        }
+    }
+
+    /**
+     * 模拟客户端模式Service, 每次获取token返回新token
+     */
+    class MockService extends MockClientService {
+        MockService() {
+            super("asyncClientId");
+        }
+
+        @Override
+        public HttpAsyncClient getHttpAsyncClient() {
+            return httpAsyncClient;
+        }
+
+        @Override
+        protected String accessToken(int fetch) {
+            return "token-" + fetch;
+        }
+    }
+}
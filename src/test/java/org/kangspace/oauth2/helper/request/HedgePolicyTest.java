@@ -0,0 +1,252 @@
+package org.kangspace.oauth2.helper.request;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.concurrent.RetryBudget;
+import org.kangspace.oauth2.helper.request.AsyncRequestTest.MockResponse;
+import org.kangspace.oauth2.helper.transport.HttpTransport;
+import org.kangspace.oauth2.helper.transport.HttpTransportRequest;
+import org.kangspace.oauth2.helper.transport.HttpTransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HedgePolicyTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class HedgePolicyTest {
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testHedgeWins() throws Exception {
+        MockTransport transport = new MockTransport(500L, 10L);
+        HedgePolicy policy = new HedgePolicy().delayMillis(20L);
+        HttpTransportResponse response = policy.execute(transport, get()).get(2, TimeUnit.SECONDS);
+        Assert.assertEquals("{\"value\":\"1\"}", response.getBodyAsString());
+        Assert.assertEquals(2, transport.exchanges.size());
+        Assert.assertTrue(transport.exchanges.get(0).isCancelled());
+        Assert.assertEquals(1L, policy.getHedgeCount());
+        Assert.assertEquals(1L, policy.getHedgeWonCount());
+    }
+
+    @Test
+    public void testNoHedgeWhenFast() throws Exception {
+        MockTransport transport = new MockTransport(5L);
+        HedgePolicy policy = new HedgePolicy().delayMillis(200L);
+        HttpTransportResponse response = policy.execute(transport, get()).get(2, TimeUnit.SECONDS);
+        Assert.assertEquals("{\"value\":\"0\"}", response.getBodyAsString());
+        Thread.sleep(250L);
+        Assert.assertEquals(1, transport.exchanges.size());
+        Assert.assertEquals(0L, policy.getHedgeCount());
+    }
+
+    @Test
+    public void testPercentileDelay() {
+        HedgePolicy policy = new HedgePolicy();
+        Assert.assertEquals(-1L, policy.getHedgeDelayMillis());
+        for (int i = 1; i <= 100; i++) {
+            policy.getLatencies().record(i);
+        }
+        Assert.assertEquals(95L, policy.getHedgeDelayMillis());
+        Assert.assertFalse(HedgePolicy.NONE.isHedgeable(HttpMethod.GET));
+        Assert.assertFalse(policy.isHedgeable(HttpMethod.POST));
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        MockTransport transport = new MockTransport(100L, 10L);
+        HedgePolicy policy = new HedgePolicy().delayMillis(10L).budget(new RetryBudget(0D, 0, 10));
+        HttpTransportResponse response = policy.execute(transport, get()).get(2, TimeUnit.SECONDS);
+        Assert.assertEquals("{\"value\":\"0\"}", response.getBodyAsString());
+        Assert.assertEquals(1, transport.exchanges.size());
+        Assert.assertEquals(0L, policy.getHedgeCount());
+    }
+
+    @Test
+    public void testAllFailed() throws Exception {
+        MockTransport transport = new MockTransport(-50L, -10L);
+        HedgePolicy policy = new HedgePolicy().delayMillis(10L);
+        try {
+            policy.execute(transport, get()).get(2, TimeUnit.SECONDS);
+            Assert.fail("should fail");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+        Assert.assertEquals(2, transport.exchanges.size());
+    }
+
+    @Test
+    public void testHedgedGet() {
+        MockTransport transport = new MockTransport(500L, 10L);
+        HedgePolicy policy = new HedgePolicy().delayMillis(20L);
+        MockResponse response = new MockService(transport, policy).get("http://127.0.0.1/hedge", null,
+                MockResponse.class);
+        Assert.assertEquals("1", response.getValue());
+        Assert.assertEquals(1L, policy.getHedgeWonCount());
+        // 同步请求通过同步HttpClient发送
+        Assert.assertEquals(2, transport.syncExchanges.get());
+    }
+
+    /**
+     * 同步对冲: 首次请求在调用线程中执行, 对冲请求先返回时中止首次请求
+     */
+    @Test
+    public void testSyncHedgeAbortsPrimary() throws Exception {
+        MockTransport transport = new MockTransport(1000L, 10L);
+        HedgePolicy policy = new HedgePolicy().delayMillis(20L);
+        long start = System.currentTimeMillis();
+        HttpTransportResponse response = policy.executeSync(transport, get());
+        Assert.assertEquals("{\"value\":\"1\"}", response.getBodyAsString());
+        Assert.assertTrue(System.currentTimeMillis() - start < 500L);
+        Assert.assertTrue(transport.exchanges.get(0).isCancelled());
+        Assert.assertSame(Thread.currentThread(), transport.syncThreads.get(0));
+        Assert.assertNotSame(Thread.currentThread(), transport.syncThreads.get(1));
+        Assert.assertEquals(1L, policy.getHedgeWonCount());
+    }
+
+    @Test
+    public void testSyncAllFailed() {
+        MockTransport transport = new MockTransport(-50L, -10L);
+        HedgePolicy policy = new HedgePolicy().delayMillis(10L);
+        try {
+            policy.executeSync(transport, get());
+            Assert.fail("should fail");
+        } catch (IOException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+        Assert.assertEquals(2, transport.exchanges.size());
+    }
+
+    @Test
+    public void testImmutable() {
+        HedgePolicy policy = HedgePolicy.NONE.methods(HttpMethod.GET).delayMillis(20L);
+        Assert.assertFalse(HedgePolicy.NONE.isHedgeable(HttpMethod.GET));
+        Assert.assertEquals(-1L, HedgePolicy.NONE.getDelayMillis());
+        Assert.assertTrue(policy.isHedgeable(HttpMethod.GET));
+        Assert.assertEquals(20L, policy.getHedgeDelayMillis());
+        try {
+            policy.percentile(0D);
+            Assert.fail("percentile should be validated");
+        } catch (IllegalArgumentException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+    }
+
+    private static HttpTransportRequest get() {
+        return new HttpTransportRequest(HttpMethod.GET, "http://127.0.0.1/hedge");
+    }
+
+    /**
+     * 按指定延迟依次返回响应的传输层, 延迟为负数时返回异常; 响应体value为请求序号
+     */
+    class MockTransport implements HttpTransport {
+        private final Queue<Long> delays;
+        private final List<CompletableFuture<HttpTransportResponse>> exchanges =
+                Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger syncExchanges = new AtomicInteger();
+        /**
+         * 发送同步请求的线程
+         */
+        private final List<Thread> syncThreads = Collections.synchronizedList(new ArrayList<>());
+
+        MockTransport(Long... delays) {
+            this.delays = new ConcurrentLinkedQueue<>(Arrays.asList(delays));
+        }
+
+        @Override
+        public HttpTransportResponse execute(@NonNull HttpTransportRequest request) throws IOException {
+            return execute(request, new CompletableFuture<>());
+        }
+
+        @Override
+        public HttpTransportResponse execute(@NonNull HttpTransportRequest request,
+                                             @NonNull CompletionStage<?> abortSignal) throws IOException {
+            syncExchanges.incrementAndGet();
+            syncThreads.add(Thread.currentThread());
+            CompletableFuture<HttpTransportResponse> exchange = executeAsync(request);
+            abortSignal.whenComplete((value, e) -> exchange.cancel(true));
+            try {
+                return exchange.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (CancellationException e) {
+                throw new IOException("request aborted", e);
+            } catch (ExecutionException e) {
+                throw (IOException) e.getCause();
+            }
+        }
+
+        @Override
+        public CompletableFuture<HttpTransportResponse> executeAsync(@NonNull HttpTransportRequest request) {
+            CompletableFuture<HttpTransportResponse> future = new CompletableFuture<>();
+            int index = exchanges.size();
+            exchanges.add(future);
+            long delay = delays.poll();
+            executor.schedule(() -> {
+                if (delay < 0) {
+                    future.completeExceptionally(new IOException("mock error " + index));
+                    return;
+                }
+                byte[] body = ("{\"value\":\"" + index + "\"}").getBytes(StandardCharsets.UTF_8);
+                future.complete(new HttpTransportResponse(200, Collections.emptyMap(),
+                        new ByteArrayInputStream(body)));
+            }, Math.abs(delay), TimeUnit.MILLISECONDS);
+            return future;
+        }
+    }
+
+    /**
+     * 模拟客户端模式Service
+     */
+    class MockService extends MockClientService {
+        private final HttpTransport httpTransport;
+        private final HedgePolicy hedgePolicy;
+
+        MockService(HttpTransport httpTransport, HedgePolicy hedgePolicy) {
+            super("hedgeClientId");
+            this.httpTransport = httpTransport;
+            this.hedgePolicy = hedgePolicy;
+        }
+
+        @Override
+        public HttpTransport getHttpTransport() {
+            return httpTransport;
+        }
+
+        @Override
+        public HedgePolicy getHedgePolicy() {
+            return hedgePolicy;
+        }
+    }
+}
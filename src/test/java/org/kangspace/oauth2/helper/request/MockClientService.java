@@ -0,0 +1,60 @@
+package org.kangspace.oauth2.helper.request;
+
+import lombok.NonNull;
+import org.kangspace.oauth2.helper.ClientCredentialsService;
+import org.kangspace.oauth2.helper.TokenLoaderTest.MockToken;
+import org.kangspace.oauth2.helper.storage.TokenStorage;
+import org.kangspace.oauth2.helper.storage.local.InMemoryTokenStorage;
+import org.kangspace.oauth2.helper.token.TokenResponse;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 请求测试用模拟客户端模式Service <br>
+ * 每个实例使用独立的内存token存储, 测试类按需继承并重写请求策略
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+class MockClientService implements ClientCredentialsService<MockToken> {
+    /**
+     * 获取token次数
+     */
+    final AtomicInteger fetches = new AtomicInteger();
+    private final TokenStorage<MockToken> tokenStorage = new InMemoryTokenStorage<>();
+    private final String clientId;
+
+    MockClientService(String clientId) {
+        this.clientId = clientId;
+    }
+
+    @Override
+    public String getClientId() {
+        return clientId;
+    }
+
+    @Override
+    public String getClientSecret() {
+        return "clientSecret";
+    }
+
+    @Override
+    public TokenStorage<MockToken> getTokenStorage() {
+        return tokenStorage;
+    }
+
+    @Override
+    public TokenResponse<MockToken> getToken(@NonNull String clientId, @NonNull String clientSecret) {
+        return new MockToken(accessToken(fetches.incrementAndGet()), 7200L);
+    }
+
+    /**
+     * 第fetch次获取token时返回的access_token
+     *
+     * @param fetch 获取token次数, 从1开始
+     * @return access_token
+     */
+    protected String accessToken(int fetch) {
+        return "token";
+    }
+}
@@ -0,0 +1,63 @@
+package org.kangspace.oauth2.helper.request;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 请求测试基类 <br>
+ * 每个测试方法前启动本地HttpServer模拟资源服务器, 子类通过{@link #createContexts(HttpServer)}注册接口
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+abstract class MockServerTestSupport {
+    protected HttpServer server;
+    protected String baseUrl;
+
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        createContexts(server);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    /**
+     * 注册模拟接口, 在HttpServer启动前调用
+     *
+     * @param server HttpServer
+     */
+    protected abstract void createContexts(HttpServer server);
+
+    /**
+     * 返回响应体并关闭交换
+     *
+     * @param exchange HttpExchange
+     * @param status   响应状态码
+     * @param body     响应体
+     * @throws IOException 写入失败
+     */
+    protected static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.kangspace.oauth2.helper.request;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.concurrent.SingleFlight;
+import org.kangspace.oauth2.helper.request.AsyncRequestTest.MockResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RequestCoalescingTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class RequestCoalescingTest extends MockServerTestSupport {
+    private final AtomicInteger hits = new AtomicInteger();
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    @Override
+    protected void createContexts(HttpServer server) {
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/config", exchange -> {
+            hits.incrementAndGet();
+            try {
+                Thread.sleep(200L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "{\"value\":\"config\"}");
+        });
+    }
+
+    @Test
+    public void testConcurrentGetCoalesced() throws Exception {
+        int threads = 8;
+        MockService service = new MockService(true);
+        List<MockResponse> responses = call(threads, () -> service.getWithToken(baseUrl + "/config",
+                Collections.singletonMap("X-Tenant", "a"), MockResponse.class));
+        Assert.assertEquals(1, hits.get());
+        for (MockResponse response : responses) {
+            Assert.assertSame(responses.get(0), response);
+        }
+        Assert.assertEquals(threads - 1, singleFlight.getCoalescedCount());
+    }
+
+    @Test
+    public void testDifferentHeadersNotCoalesced() throws Exception {
+        MockService service = new MockService(true);
+        AtomicInteger index = new AtomicInteger();
+        call(2, () -> {
+            Map<String, String> headers = new HashMap<>();
+            headers.put("X-Tenant", "t" + index.incrementAndGet());
+            return service.getWithToken(baseUrl + "/config", headers, MockResponse.class);
+        });
+        Assert.assertEquals(2, hits.get());
+    }
+
+    @Test
+    public void testDifferentResponseClassNotCoalesced() throws Exception {
+        MockService service = new MockService(true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<MockResponse> first = executor.submit(() -> {
+            start.await();
+            return service.getWithToken(baseUrl + "/config", null, MockResponse.class);
+        });
+        Future<ConfigResponse> second = executor.submit(() -> {
+            start.await();
+            return service.getWithToken(baseUrl + "/config", null, ConfigResponse.class);
+        });
+        start.countDown();
+        Assert.assertEquals("config", first.get().getValue());
+        Assert.assertEquals("config", second.get().getValue());
+        Assert.assertEquals(2, hits.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        MockService service = new MockService(false);
+        call(4, () -> service.get(baseUrl + "/config", null, MockResponse.class));
+        Assert.assertEquals(4, hits.get());
+    }
+
+    private List<MockResponse> call(int threads, Callable<MockResponse> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MockResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        List<MockResponse> responses = new ArrayList<>();
+        for (Future<MockResponse> future : futures) {
+            responses.add(future.get());
+        }
+        executor.shutdown();
+        return responses;
+    }
+
+    /**
+     * 与{@link MockResponse}结构相同的另一响应类
+     */
+    @Data
+    public static class ConfigResponse implements Response {
+        private String value;
+
+        @Override
+        public boolean isSucceed() {
+            return true;
+        }
+
+        @Override
+        public boolean isInvalidToken() {
+            return false;
+        }
+    }
+
+    /**
+     * 模拟客户端模式Service
+     */
+    class MockService extends MockClientService {
+        private final boolean coalesceRequests;
+
+        MockService(boolean coalesceRequests) {
+            super("coalescingClientId");
+            this.coalesceRequests = coalesceRequests;
+        }
+
+        @Override
+        public boolean isCoalesceRequests() {
+            return coalesceRequests;
+        }
+
+        @Override
+        public SingleFlight getRequestSingleFlight() {
+            return singleFlight;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.kangspace.oauth2.helper.request;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.TokenLoaderTest.MockToken;
+import org.kangspace.oauth2.helper.request.AsyncRequestTest.MockResponse;
+import org.kangspace.oauth2.helper.transport.HttpTransportResponse;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ResponseCacheTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class ResponseCacheTest extends MockServerTestSupport {
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final ResponseCache responseCache = new ResponseCache();
+
+    @Override
+    protected void createContexts(HttpServer server) {
+        server.createContext("/fresh", exchange -> respond(exchange, "max-age=60", null));
+        server.createContext("/etag", exchange -> respond(exchange, "no-cache", "\"v1\""));
+        server.createContext("/nostore", exchange -> respond(exchange, "no-store", "\"v1\""));
+        // 使用旧token时业务响应Token失效
+        server.createContext("/invalid", exchange -> {
+            boolean invalid = "Bearer stale".equals(exchange.getRequestHeaders().getFirst("Authorization"));
+            respond(exchange, "max-age=60", null, invalid ? "invalid" : null);
+        });
+    }
+
+    private void respond(HttpExchange exchange, String cacheControl, String etag) throws IOException {
+        respond(exchange, cacheControl, etag, null);
+    }
+
+    private void respond(HttpExchange exchange, String cacheControl, String etag, String value) throws IOException {
+        hits.incrementAndGet();
+        exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+        if (etag != null) {
+            exchange.getResponseHeaders().add("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+        }
+        if (value == null) {
+            value = exchange.getRequestHeaders().getFirst("Authorization");
+        }
+        respond(exchange, 200, "{\"value\":\"" + value + "\"}");
+    }
+
+    @Test
+    public void testFreshHit() {
+        MockService service = new MockService("clientA");
+        MockResponse first = service.getWithToken(baseUrl + "/fresh", null, MockResponse.class);
+        MockResponse second = service.getWithToken(baseUrl + "/fresh", null, MockResponse.class);
+        Assert.assertEquals(1, hits.get());
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first.getValue(), second.getValue());
+        Assert.assertEquals(1L, responseCache.getHitCount());
+        Assert.assertEquals(0.5D, responseCache.getHitRatio(), 0.0001D);
+    }
+
+    @Test
+    public void testRevalidate() {
+        MockService service = new MockService("clientA");
+        service.get(baseUrl + "/etag", null, MockResponse.class);
+        MockResponse response = service.get(baseUrl + "/etag", null, MockResponse.class);
+        Assert.assertEquals("null", response.getValue());
+        Assert.assertEquals(2, hits.get());
+        Assert.assertEquals(1, notModified.get());
+        Assert.assertEquals(1L, responseCache.getRevalidationCount());
+    }
+
+    @Test
+    public void testNoStore() {
+        MockService service = new MockService("clientA");
+        service.get(baseUrl + "/nostore", null, MockResponse.class);
+        service.get(baseUrl + "/nostore", null, MockResponse.class);
+        Assert.assertEquals(2, hits.get());
+        Assert.assertEquals(0, notModified.get());
+        Assert.assertEquals(0, responseCache.size());
+    }
+
+    @Test
+    public void testPerPrincipal() {
+        MockResponse a = new MockService("clientA").getWithToken(baseUrl + "/fresh", null, MockResponse.class);
+        MockResponse b = new MockService("clientB").getWithToken(baseUrl + "/fresh", null, MockResponse.class);
+        Assert.assertEquals(2, hits.get());
+        Assert.assertEquals("Bearer clientA-token", a.getValue());
+        Assert.assertEquals("Bearer clientB-token", b.getValue());
+    }
+
+    /**
+     * Token失效的响应不缓存, 刷新Token后的响应缓存
+     */
+    @Test
+    public void testInvalidTokenNotCached() {
+        MockService service = new RefreshingService("clientC");
+        CheckedResponse response = service.getWithToken(baseUrl + "/invalid", null, CheckedResponse.class);
+        Assert.assertEquals("Bearer fresh", response.getValue());
+        Assert.assertEquals(2, hits.get());
+        Assert.assertEquals(1, responseCache.size());
+        response = service.getWithToken(baseUrl + "/invalid", null, CheckedResponse.class);
+        Assert.assertEquals("Bearer fresh", response.getValue());
+        Assert.assertEquals(2, hits.get());
+    }
+
+    /**
+     * 刷新Token重新请求时不使用缓存, Token失效的响应删除缓存条目
+     */
+    @Test
+    public void testRefreshTokenSkipsCache() {
+        MockService service = new RefreshingService("clientD");
+        Request<Object, CheckedResponse, MockToken> request = RequestFactory.getWithToken(baseUrl + "/invalid",
+                null, CheckedResponse.class, service.getHttpClient(), service);
+        Assert.assertTrue(request.doExecute(false).isInvalidToken());
+        Assert.assertEquals(0, responseCache.size());
+        Assert.assertEquals("Bearer fresh", request.doExecute(true).getValue());
+        Assert.assertEquals(1, responseCache.size());
+        Assert.assertEquals("Bearer fresh", request.doExecute(true).getValue());
+        Assert.assertEquals(3, hits.get());
+    }
+
+    @Test
+    public void testLruEviction() {
+        ResponseCache cache = new ResponseCache(1000L, 500L);
+        HttpTransportResponse response = response("max-age=60");
+        cache.put("a", response, new byte[300]);
+        cache.put("b", response, new byte[300]);
+        cache.get("a");
+        cache.put("c", response, new byte[300]);
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("c"));
+        Assert.assertEquals(1L, cache.getEvictionCount());
+        Assert.assertTrue(cache.getBytes() <= 1000L);
+        // 超过单个条目上限不缓存
+        Assert.assertNull(cache.put("d", response, new byte[500]));
+    }
+
+    @Test
+    public void testMaxAge() {
+        Assert.assertEquals(60000L, ResponseCache.maxAgeMillis(response("public, max-age=60")));
+        Assert.assertEquals(0L, ResponseCache.maxAgeMillis(response("no-cache, max-age=60")));
+        Assert.assertEquals(-1L, ResponseCache.maxAgeMillis(response("no-store")));
+        Map<String, List<String>> headers = new HashMap<>();
+        headers.put("Cache-Control", Collections.singletonList("max-age=60"));
+        headers.put("Age", Collections.singletonList("50"));
+        Assert.assertEquals(10000L, ResponseCache.maxAgeMillis(new HttpTransportResponse(200, headers, null)));
+        Assert.assertFalse(new ResponseCache().isCacheable(response("max-age=0")));
+    }
+
+    private static HttpTransportResponse response(String cacheControl) {
+        return new HttpTransportResponse(200,
+                Collections.singletonMap("Cache-Control", Arrays.asList(cacheControl)), null);
+    }
+
+    /**
+     * 业务响应, value为invalid时Token失效
+     */
+    @Data
+    public static class CheckedResponse implements Response {
+        private String value;
+
+        @Override
+        public boolean isSucceed() {
+            return true;
+        }
+
+        @Override
+        public boolean isInvalidToken() {
+            return "invalid".equals(value);
+        }
+    }
+
+    /**
+     * 首次获取token返回stale, 之后返回fresh
+     */
+    class RefreshingService extends MockService {
+        RefreshingService(String clientId) {
+            super(clientId);
+        }
+
+        @Override
+        protected String accessToken(int fetch) {
+            return fetch == 1 ? "stale" : "fresh";
+        }
+    }
+
+    /**
+     * 模拟客户端模式Service
+     */
+    class MockService extends MockClientService {
+        MockService(String clientId) {
+            super(clientId);
+        }
+
+        @Override
+        public ResponseCache getResponseCache() {
+            return responseCache;
+        }
+
+        @Override
+        protected String accessToken(int fetch) {
+            return getClientId() + "-token";
+        }
+    }
+}
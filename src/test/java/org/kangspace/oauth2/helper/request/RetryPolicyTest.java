@@ -0,0 +1,167 @@
+package org.kangspace.oauth2.helper.request;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.NoHttpResponseException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.concurrent.RetryBudget;
+import org.kangspace.oauth2.helper.exception.UnOKResponseException;
+import org.kangspace.oauth2.helper.request.AsyncRequestTest.MockResponse;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RetryPolicyTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class RetryPolicyTest extends MockServerTestSupport {
+    private final AtomicInteger hits = new AtomicInteger();
+    private final RetryPolicy policy = new RetryPolicy().baseDelayMillis(10L);
+
+    @Override
+    protected void createContexts(HttpServer server) {
+        // 前2次返回503, 之后返回200
+        server.createContext("/flaky", exchange -> {
+            boolean ok = hits.incrementAndGet() > 2;
+            if (!ok) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+            }
+            respond(exchange, ok ? 200 : 503, "{\"value\":\"ok\"}");
+        });
+    }
+
+    @Test
+    public void testRetryIdempotentRequest() {
+        MockResponse response = new MockService().get(baseUrl + "/flaky", null, MockResponse.class);
+        Assert.assertEquals("ok", response.getValue());
+        Assert.assertEquals(3, hits.get());
+    }
+
+    @Test
+    public void testNotRetryPost() {
+        try {
+            new MockService().post(baseUrl + "/flaky", null, new MockResponse(), MockResponse.class);
+            Assert.fail("should fail");
+        } catch (UnOKResponseException e) {
+            Assert.assertEquals(503, e.getCode());
+        }
+        Assert.assertEquals(1, hits.get());
+    }
+
+    @Test
+    public void testIdempotency() {
+        IOException ambiguous = new NoHttpResponseException("no response");
+        Assert.assertTrue(policy.nextDelayMillis(HttpMethod.GET, 1, ambiguous) >= 0);
+        Assert.assertEquals(-1L, policy.nextDelayMillis(HttpMethod.POST, 1, ambiguous));
+        // 连接失败时请求未发出, POST可重试
+        Assert.assertTrue(policy.nextDelayMillis(HttpMethod.POST, 1, new ConnectException("refused")) >= 0);
+        Assert.assertTrue(policy.nextDelayMillis(HttpMethod.POST, 1, 429, null) >= 0);
+        Assert.assertEquals(-1L, policy.nextDelayMillis(HttpMethod.POST, 1, 503, null));
+        Assert.assertEquals(-1L, policy.nextDelayMillis(HttpMethod.GET, 1, 500, null));
+        Assert.assertEquals(-1L, policy.nextDelayMillis(HttpMethod.GET, policy.getMaxAttempts(), ambiguous));
+    }
+
+    @Test
+    public void testBackoffAndRetryAfter() {
+        for (int attempt = 1; attempt < 20; attempt++) {
+            long delay = policy.backoffMillis(attempt);
+            Assert.assertTrue(delay >= 0);
+            Assert.assertTrue(delay <= Math.min(policy.getMaxDelayMillis(), 10L << (attempt - 1)));
+        }
+        Assert.assertEquals(2000L, policy.nextDelayMillis(HttpMethod.GET, 1, 503, "2"));
+        // 超过最长等待时间时不重试
+        Assert.assertEquals(-1L, policy.nextDelayMillis(HttpMethod.GET, 1, 429, "3600"));
+        Assert.assertEquals(-1L, RetryPolicy.parseRetryAfter("soon"));
+        Assert.assertTrue(RetryPolicy.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT") == 0L);
+    }
+
+    @Test
+    public void testImmutable() {
+        RetryPolicy retry = RetryPolicy.NONE.maxAttempts(5);
+        Assert.assertEquals(1, RetryPolicy.NONE.getMaxAttempts());
+        Assert.assertEquals(5, retry.getMaxAttempts());
+        Assert.assertSame(RetryPolicy.NONE.getBudget(), retry.getBudget());
+        try {
+            RetryPolicy.NONE.maxAttempts(0);
+            Assert.fail("maxAttempts should be validated");
+        } catch (IllegalArgumentException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+        try {
+            retry.getRetryableStatusCodes().add(500);
+            Assert.fail("retryableStatusCodes should be unmodifiable");
+        } catch (UnsupportedOperationException e) {
+            log.info("expected: {}", e);
+        }
+    }
+
+    @Test
+    public void testBudget() {
+        RetryBudget budget = new RetryBudget(0.1D, 0, 10);
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(budget.tryAcquireRetry());
+        }
+        Assert.assertFalse(budget.tryAcquireRetry());
+        Assert.assertEquals(10L, budget.getRetryCount());
+    }
+
+    @Test
+    public void testBudgetConcurrent() throws Exception {
+        RetryBudget budget = new RetryBudget(0.5D, 0, 10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(() -> {
+                int acquired = 0;
+                for (int i = 0; i < 10000; i++) {
+                    budget.onRequest();
+                    if (i % 2 == 0 && budget.tryAcquireRetry()) {
+                        acquired++;
+                    }
+                }
+                return acquired;
+            }));
+        }
+        long acquired = 0;
+        for (Future<Integer> result : results) {
+            acquired += result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        // 计数不丢失
+        Assert.assertEquals(80000L, budget.getRequestCount());
+        Assert.assertEquals(acquired, budget.getRetryCount());
+        Assert.assertTrue(acquired <= 40000L);
+    }
+
+    /**
+     * 模拟客户端模式Service
+     */
+    class MockService extends MockClientService {
+        MockService() {
+            super("retryClientId");
+        }
+
+        @Override
+        public RetryPolicy getRetryPolicy() {
+            return policy;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.storage.local.InMemoryTokenStorage;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncTokenStorageTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class AsyncTokenStorageTest {
+
+    @Test
+    public void testAdaptSyncStorage() throws Exception {
+        InMemoryTokenStorage<DefaultToken> tokenStorage = new InMemoryTokenStorage<>();
+        AsyncTokenStorage<DefaultToken> asyncTokenStorage = AsyncTokenStorage.of(tokenStorage);
+        Assert.assertTrue(asyncTokenStorage instanceof ExecutorAsyncTokenStorage);
+        asyncTokenStorage.setAsync("test1", new DefaultToken("accessToken1", 60L, null, null))
+                .thenCompose(v -> asyncTokenStorage.setAsync("test2", new DefaultToken("accessToken2", 60L, null, null)))
+                .get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("accessToken1", asyncTokenStorage.getAsync("test1").get(5, TimeUnit.SECONDS)
+                .getAccessToken());
+        Assert.assertNull(asyncTokenStorage.getAsync("absent").get(5, TimeUnit.SECONDS));
+        Map<String, DefaultToken> tokens = asyncTokenStorage.getAllAsync(Arrays.asList("test1", "absent", "test2"))
+                .get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(Arrays.asList("test1", "test2"), Arrays.asList(tokens.keySet().toArray()));
+    }
+
+    @Test
+    public void testRejectedWhenExecutorSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryTokenStorage<DefaultToken> blockingStorage = new InMemoryTokenStorage<DefaultToken>() {
+            @Override
+            public DefaultToken get(String identity) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.get(identity);
+            }
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>());
+        AsyncTokenStorage<DefaultToken> asyncTokenStorage = new ExecutorAsyncTokenStorage<>(blockingStorage,
+                executor);
+        CompletableFuture<DefaultToken> blocked = asyncTokenStorage.getAsync("test");
+        CompletableFuture<DefaultToken> rejected = asyncTokenStorage.getAsync("test");
+        try {
+            rejected.get(5, TimeUnit.SECONDS);
+            Assert.fail("should be rejected");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        release.countDown();
+        Assert.assertNull(blocked.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
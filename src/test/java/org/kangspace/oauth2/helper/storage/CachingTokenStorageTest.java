@@ -0,0 +1,82 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CachingTokenStorageTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class CachingTokenStorageTest {
+    private CountingTokenStorage delegate;
+    private CachingTokenStorage<DefaultToken> cachingTokenStorage;
+
+    @Before
+    public void setUp() {
+        delegate = new CountingTokenStorage();
+        cachingTokenStorage = new CachingTokenStorage<>(delegate);
+    }
+
+    @Test
+    public void testReadsServedLocally() {
+        cachingTokenStorage.set("test", new DefaultToken("accessToken", 7200L, "refreshToken", "tokenType"));
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("accessToken", cachingTokenStorage.get("test").getAccessToken());
+        }
+        Assert.assertEquals(0, delegate.reads.get());
+    }
+
+    @Test
+    public void testLoadFromDelegateAndInvalidate() {
+        delegate.set("test", new DefaultToken("accessToken", 7200L, "refreshToken", "tokenType"));
+        Assert.assertEquals("accessToken", cachingTokenStorage.get("test").getAccessToken());
+        Assert.assertEquals("accessToken", cachingTokenStorage.get("test").getAccessToken());
+        Assert.assertEquals(1, delegate.reads.get());
+
+        delegate.set("test", new DefaultToken("newAccessToken", 7200L, "refreshToken", "tokenType"));
+        cachingTokenStorage.invalidate("test");
+        Assert.assertEquals("newAccessToken", cachingTokenStorage.get("test").getAccessToken());
+        Assert.assertEquals(2, delegate.reads.get());
+    }
+
+    @Test
+    public void testNearExpiryGoesToDelegate() {
+        // 有效时间小于提前回源时间, 不在本地缓存
+        cachingTokenStorage.set("test", new DefaultToken("accessToken", 30L, "refreshToken", "tokenType"));
+        Assert.assertNotNull(cachingTokenStorage.get("test"));
+        Assert.assertEquals(1, delegate.reads.get());
+    }
+
+    /**
+     * 记录读取次数的Token存储
+     */
+    static class CountingTokenStorage implements TokenStorage<DefaultToken> {
+        private final Map<String, DefaultToken> tokens = new ConcurrentHashMap<>();
+        private final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public void set(@Nonnull String identity, @Nonnull DefaultToken value) {
+            tokens.put(identity, value);
+        }
+
+        @Override
+        public DefaultToken get(@Nonnull String identity) {
+            reads.incrementAndGet();
+            return tokens.get(identity);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package org.kangspace.oauth2.helper.storage;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.devhelper.thread.ThreadUtil;
+import org.kangspace.oauth2.helper.storage.redis.LettuceTokenStorage;
+import org.kangspace.oauth2.helper.storage.redis.RedisTemplateTokenStorage;
+import org.kangspace.oauth2.helper.storage.redis.RedissonTokenStorage;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * 分布式刷新锁测试 <br>
+ * 使用内存模拟Redis客户端, 无需Redis; 两个存储实例模拟集群内的两个节点
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class DistributedRefreshLockTest {
+    private static final String IDENTITY = "client";
+    private static final long WAIT_MILLIS = 100L;
+    private static final long LEASE_MILLIS = 10_000L;
+
+    private final MockRedis redis = new MockRedis();
+    /**
+     * 节点2的操作线程, Redisson锁按线程持有
+     */
+    private final ExecutorService node2Thread = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        node2Thread.shutdownNow();
+    }
+
+    @Test
+    public void testRedisTemplateRefreshLock() throws Exception {
+        assertMutualExclusion(redisTemplateStorage(LEASE_MILLIS), redisTemplateStorage(LEASE_MILLIS));
+    }
+
+    @Test
+    public void testLettuceRefreshLock() throws Exception {
+        assertMutualExclusion(lettuceStorage(), lettuceStorage());
+    }
+
+    @Test
+    public void testRedissonRefreshLock() throws Exception {
+        Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+        assertMutualExclusion(redissonStorage(locks), redissonStorage(locks));
+    }
+
+    /**
+     * 租约过期后其他节点可获取锁, 原持有者释放时不删除其他节点的租约key
+     */
+    @Test
+    public void testLeaseExpired() {
+        TokenStorage<DefaultToken> node1 = redisTemplateStorage(100L);
+        TokenStorage<DefaultToken> node2 = redisTemplateStorage(LEASE_MILLIS);
+        TokenStorage<DefaultToken> node3 = redisTemplateStorage(LEASE_MILLIS);
+        Assert.assertTrue(node1.tryRefreshLock(IDENTITY));
+        ThreadUtil.sleep(150);
+        Assert.assertTrue(node2.tryRefreshLock(IDENTITY));
+        node1.releaseRefreshLock(IDENTITY);
+        Assert.assertEquals(1, redis.rejectedReleases.get());
+        Assert.assertFalse(node3.tryRefreshLock(IDENTITY));
+        node2.releaseRefreshLock(IDENTITY);
+        Assert.assertTrue(node3.tryRefreshLock(IDENTITY));
+    }
+
+    /**
+     * 未开启分布式刷新模式时不访问Redis
+     */
+    @Test
+    public void testDistributedRefreshDisabled() {
+        RedisTemplateTokenStorage<DefaultToken> redisTemplateStorage = new TemplateStorage(new MockRedisTemplate(null));
+        LettuceTokenStorage<DefaultToken> lettuceStorage = new LettuceStorage(proxy(StatefulRedisConnection.class,
+                (method, args) -> null));
+        RedissonTokenStorage<DefaultToken> redissonStorage = new RedissonTokenStorage<>(proxy(RedissonClient.class,
+                (method, args) -> null));
+        for (TokenStorage<DefaultToken> storage : Arrays.asList(redisTemplateStorage, lettuceStorage,
+                redissonStorage)) {
+            Assert.assertTrue(storage.tryRefreshLock(IDENTITY));
+            Assert.assertTrue(storage.tryRefreshLock(IDENTITY));
+            storage.releaseRefreshLock(IDENTITY);
+        }
+    }
+
+    /**
+     * 节点1持有锁时节点2等待超时, 节点2的释放不影响节点1, 节点1释放后节点2可获取
+     */
+    private void assertMutualExclusion(TokenStorage<DefaultToken> node1, TokenStorage<DefaultToken> node2)
+            throws Exception {
+        Assert.assertTrue(node1.tryRefreshLock(IDENTITY));
+        long start = System.currentTimeMillis();
+        Assert.assertFalse(onNode2(() -> node2.tryRefreshLock(IDENTITY)));
+        Assert.assertTrue(System.currentTimeMillis() - start >= WAIT_MILLIS);
+        onNode2(() -> {
+            node2.releaseRefreshLock(IDENTITY);
+            return null;
+        });
+        Assert.assertFalse(onNode2(() -> node2.tryRefreshLock(IDENTITY)));
+        node1.releaseRefreshLock(IDENTITY);
+        Assert.assertTrue(onNode2(() -> node2.tryRefreshLock(IDENTITY)));
+        onNode2(() -> {
+            node2.releaseRefreshLock(IDENTITY);
+            return null;
+        });
+        Assert.assertTrue(node1.tryRefreshLock(IDENTITY));
+        node1.releaseRefreshLock(IDENTITY);
+    }
+
+    private <V> V onNode2(Callable<V> task) throws Exception {
+        return node2Thread.submit(task).get(10, TimeUnit.SECONDS);
+    }
+
+    private TokenStorage<DefaultToken> redisTemplateStorage(long leaseMillis) {
+        TemplateStorage storage = new TemplateStorage(new MockRedisTemplate(redis));
+        storage.setDistributedRefresh(true);
+        storage.setRefreshLockWaitMillis(WAIT_MILLIS);
+        storage.setRefreshLockLeaseMillis(leaseMillis);
+        return storage;
+    }
+
+    private TokenStorage<DefaultToken> lettuceStorage() {
+        RedisCommands<?, ?> commands = proxy(RedisCommands.class, (method, args) -> {
+            switch (method) {
+                case "set":
+                    // SetArgs不可读取, 按LEASE_MILLIS模拟NX PX
+                    return redis.setIfAbsent((String) args[0], (String) args[1], LEASE_MILLIS) ? "OK" : null;
+                case "eval":
+                    return redis.releaseIfOwner((String) ((Object[]) args[2])[0], (String) ((Object[]) args[3])[0]);
+                default:
+                    throw new UnsupportedOperationException(method);
+            }
+        });
+        LettuceStorage storage = new LettuceStorage(proxy(StatefulRedisConnection.class,
+                (method, args) -> commands));
+        storage.setDistributedRefresh(true);
+        storage.setRefreshLockWaitMillis(WAIT_MILLIS);
+        storage.setRefreshLockLeaseMillis(LEASE_MILLIS);
+        return storage;
+    }
+
+    private TokenStorage<DefaultToken> redissonStorage(Map<String, ReentrantLock> locks) {
+        RedissonClient client = proxy(RedissonClient.class, (method, args) -> {
+            ReentrantLock lock = locks.computeIfAbsent((String) args[0], key -> new ReentrantLock());
+            return proxy(RLock.class, (lockMethod, lockArgs) -> {
+                switch (lockMethod) {
+                    case "tryLock":
+                        try {
+                            return lock.tryLock((Long) lockArgs[0], (TimeUnit) lockArgs[2]);
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    case "isHeldByCurrentThread":
+                        return lock.isHeldByCurrentThread();
+                    case "unlock":
+                        lock.unlock();
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(lockMethod);
+                }
+            });
+        });
+        RedissonTokenStorage<DefaultToken> storage = new RedissonTokenStorage<>(client);
+        storage.setDistributedRefresh(true);
+        storage.setRefreshLockWaitMillis(WAIT_MILLIS);
+        storage.setRefreshLockLeaseMillis(LEASE_MILLIS);
+        return storage;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<?> type, BiFunction<String, Object[], Object> handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.getName().equals("equals") ? proxy == args[0] : method.invoke(handler, args);
+            }
+            return handler.apply(method.getName(), args);
+        });
+    }
+
+    /**
+     * 模拟Redis租约key: SET NX PX及仅持有者可删除
+     */
+    static class MockRedis {
+        private final Map<String, Object[]> leases = new ConcurrentHashMap<>();
+        private final AtomicInteger rejectedReleases = new AtomicInteger();
+
+        synchronized boolean setIfAbsent(String key, String owner, long leaseMillis) {
+            Object[] lease = leases.get(key);
+            if (lease != null && (Long) lease[1] > System.currentTimeMillis()) {
+                return false;
+            }
+            leases.put(key, new Object[]{owner, System.currentTimeMillis() + leaseMillis});
+            return true;
+        }
+
+        synchronized long releaseIfOwner(String key, String owner) {
+            Object[] lease = leases.get(key);
+            if (lease != null && lease[0].equals(owner)) {
+                leases.remove(key);
+                return 1L;
+            }
+            rejectedReleases.incrementAndGet();
+            return 0L;
+        }
+    }
+
+    /**
+     * SET NX及释放脚本交由{@link MockRedis}执行
+     */
+    static class MockRedisTemplate extends RedisTemplate<String, String> {
+        private final MockRedis redis;
+
+        MockRedisTemplate(MockRedis redis) {
+            this.redis = redis;
+        }
+
+        @Override
+        public ValueOperations<String, String> opsForValue() {
+            return proxy(ValueOperations.class, (method, args) -> {
+                if (!"setIfAbsent".equals(method) || args.length != 4) {
+                    throw new UnsupportedOperationException(method);
+                }
+                long leaseMillis = ((TimeUnit) args[3]).toMillis((Long) args[2]);
+                return redis.setIfAbsent((String) args[0], (String) args[1], leaseMillis);
+            });
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            return (T) (Long) redis.releaseIfOwner(keys.get(0), (String) args[0]);
+        }
+    }
+
+    static class TemplateStorage extends RedisTemplateTokenStorage<DefaultToken> {
+        TemplateStorage(RedisTemplate<String, String> redisTemplate) {
+            super(redisTemplate);
+        }
+
+        @Override
+        protected Class<DefaultToken> getTokenClass() {
+            return DefaultToken.class;
+        }
+    }
+
+    static class LettuceStorage extends LettuceTokenStorage<DefaultToken> {
+        LettuceStorage(StatefulRedisConnection<String, String> connection) {
+            super(connection);
+        }
+
+        @Override
+        protected Class<DefaultToken> getTokenClass() {
+            return DefaultToken.class;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.jcs.JCS;
+import org.apache.commons.jcs.access.CacheAccess;
+import org.apache.commons.jcs.engine.ElementAttributes;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.Benchmark;
+import org.kangspace.oauth2.helper.storage.local.InMemoryTokenStorage;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 本地Token存储基准测试 <br>
+ * 多线程读为主(读写比100:1)的场景下, 对比InMemoryTokenStorage与JCS内存缓存的吞吐量 <br>
+ * 属于{@link Benchmark}分类, 默认测试中排除
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+@Category(Benchmark.class)
+public class InMemoryTokenStorageBenchmarkTest {
+    private static final int THREADS = 32;
+    private static final int TOKENS = 1000;
+    private static final int OPERATIONS = 200_000;
+
+    @Test
+    public void testGetHeavyThroughput() throws Exception {
+        InMemoryTokenStorage<DefaultToken> storage = new InMemoryTokenStorage<>();
+        long inMemoryMillis = run(i -> {
+            String identity = "client-" + i % TOKENS;
+            if (i / TOKENS % 100 == 0) {
+                storage.set(identity, newToken(i));
+            }
+            return storage.get(identity);
+        });
+
+        Properties properties = new Properties();
+        properties.setProperty("jcs.default", "");
+        properties.setProperty("jcs.default.cacheattributes.MaxObjects", "2048");
+        properties.setProperty("jcs.default.cacheattributes.MemoryCacheName",
+                "org.apache.commons.jcs.engine.memory.lru.LRUMemoryCache");
+        JCS.setConfigProperties(properties);
+        CacheAccess<String, DefaultToken> cache = JCS.getInstance("benchmark");
+        try {
+            long jcsMillis = run(i -> {
+                String key = "client-" + i % TOKENS;
+                if (i / TOKENS % 100 == 0) {
+                    ElementAttributes attributes = new ElementAttributes();
+                    attributes.setMaxLife(7200L);
+                    attributes.setIsEternal(false);
+                    cache.put(key, newToken(i), attributes);
+                }
+                return cache.get(key);
+            });
+            log.info("InMemoryTokenStorageBenchmarkTest: {} threads x {} operations, InMemoryTokenStorage: {}ms, JCS: {}ms",
+                    THREADS, OPERATIONS, inMemoryMillis, jcsMillis);
+            Assert.assertTrue(inMemoryMillis < jcsMillis);
+        } finally {
+            JCS.shutdown();
+        }
+    }
+
+    /**
+     * 多线程执行操作(含一轮预热)
+     *
+     * @param operation 操作
+     * @return 耗时(毫秒)
+     */
+    private static long run(Function<Integer, DefaultToken> operation) throws Exception {
+        for (int i = 0; i < TOKENS; i++) {
+            operation.apply(i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> results = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int hits = 0;
+                    for (int i = 0; i < OPERATIONS; i++) {
+                        if (operation.apply(i * THREADS + offset) != null) {
+                            hits++;
+                        }
+                    }
+                    return hits;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<Integer> result : results) {
+                Assert.assertEquals(OPERATIONS, result.get(5, TimeUnit.MINUTES).intValue());
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static DefaultToken newToken(int i) {
+        return new DefaultToken("accessToken-" + i, 7200L, null, "bearer");
+    }
+}
@@ -7,9 +7,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.kangspace.devhelper.thread.ThreadUtil;
+import org.kangspace.oauth2.helper.storage.local.ExpiringMap;
 import org.kangspace.oauth2.helper.storage.local.InMemoryTokenStorage;
 import org.kangspace.oauth2.helper.token.DefaultToken;
 import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
 
 /**
  * InMemoryTokenStorageTest
@@ -40,4 +42,37 @@ public class InMemoryTokenStorageTest {
         Assert.assertNull(token2);
     }
 
+    @Test
+    public void testInstancesAreIsolated() {
+        inMemoryTokenStorage.set("test", new DefaultToken("accessToken", 60L, null, null));
+        Assert.assertNull(new InMemoryTokenStorage<DefaultToken>().get("test"));
+        // 唯一存储, 失效不删除token
+        inMemoryTokenStorage.invalidate("test");
+        Assert.assertEquals("accessToken", inMemoryTokenStorage.get("test").getAccessToken());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        InMemoryTokenStorage<DefaultToken> storage = new InMemoryTokenStorage<>(10, ExpiringMap.EvictionPolicy.LRU);
+        storage.set("hot", new DefaultToken("hot", 60L, null, null));
+        for (int i = 0; i < 10; i++) {
+            ThreadUtil.sleep(2);
+            Assert.assertNotNull(storage.get("hot"));
+            storage.set("test-" + i, new DefaultToken("accessToken-" + i, 60L, null, null));
+        }
+        Assert.assertTrue(storage.size() <= 10);
+        Assert.assertNotNull(storage.get("hot"));
+        Assert.assertNull(storage.get("test-0"));
+    }
+
+    @Test
+    public void testEnvelope() {
+        TokenEnvelope<DefaultToken> envelope = TokenEnvelope.ofRemaining(new DefaultToken("accessToken", 7200L, null,
+                null), 60_000L);
+        inMemoryTokenStorage.setEnvelope("test", envelope);
+        TokenEnvelope<DefaultToken> stored = inMemoryTokenStorage.getEnvelope("test");
+        Assert.assertEquals(envelope.getIssuedAtMillis(), stored.getIssuedAtMillis());
+        Assert.assertEquals(envelope.getExpiresAtMillis(), stored.getExpiresAtMillis());
+    }
+
 }
\ No newline at end of file
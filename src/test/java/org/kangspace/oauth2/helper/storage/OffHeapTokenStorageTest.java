@@ -0,0 +1,171 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.devhelper.thread.ThreadUtil;
+import org.kangspace.oauth2.helper.exception.OAuth2HelperException;
+import org.kangspace.oauth2.helper.storage.codec.BinaryTokenCodec;
+import org.kangspace.oauth2.helper.storage.local.OffHeapTokenStorage;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OffHeapTokenStorageTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class OffHeapTokenStorageTest {
+    private static final BinaryTokenCodec<DefaultToken> CODEC = new BinaryTokenCodec<>(DefaultToken::new);
+
+    @Test
+    public void testSetAndGet() {
+        OffHeapTokenStorage<DefaultToken> storage = new OffHeapTokenStorage<>(CODEC, 100);
+        storage.set("test", new DefaultToken("accessToken", 7200L, "refreshToken", "bearer"));
+        DefaultToken token = storage.get("test");
+        Assert.assertEquals("accessToken", token.getAccessToken());
+        Assert.assertEquals("refreshToken", token.getRefreshToken());
+        storage.set("test", new DefaultToken("accessToken2", 7200L, null, "bearer"));
+        Assert.assertEquals("accessToken2", storage.get("test").getAccessToken());
+        Assert.assertEquals(1, storage.size());
+        // 唯一存储, 失效不删除token
+        storage.invalidate("test");
+        Assert.assertEquals("accessToken2", storage.get("test").getAccessToken());
+        storage.remove("test");
+        Assert.assertNull(storage.get("test"));
+        Assert.assertNull(storage.get("absent"));
+    }
+
+    @Test
+    public void testEnvelope() {
+        OffHeapTokenStorage<DefaultToken> storage = new OffHeapTokenStorage<>(CODEC, 100);
+        TokenEnvelope<DefaultToken> envelope = TokenEnvelope.ofRemaining(new DefaultToken("accessToken", 7200L, null,
+                null), 60_000L);
+        storage.setEnvelope("test", envelope);
+        TokenEnvelope<DefaultToken> stored = storage.getEnvelope("test");
+        Assert.assertEquals(envelope.getIssuedAtMillis(), stored.getIssuedAtMillis());
+        Assert.assertEquals(envelope.getExpiresAtMillis(), stored.getExpiresAtMillis());
+    }
+
+    @Test
+    public void testExpiredSlotsAreReused() {
+        OffHeapTokenStorage<DefaultToken> storage = new OffHeapTokenStorage<>(CODEC, 10, 128, 1);
+        for (int i = 0; i < 10; i++) {
+            storage.set("expiring-" + i, new DefaultToken("accessToken-" + i, 1L, null, null));
+        }
+        try {
+            storage.set("full", new DefaultToken("accessToken", 60L, null, null));
+            Assert.fail("storage should be full");
+        } catch (OAuth2HelperException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+        ThreadUtil.sleep(1100);
+        Assert.assertEquals(10, storage.getFootprint().getExpiredCount());
+        for (int i = 0; i < 10; i++) {
+            storage.set("live-" + i, new DefaultToken("accessToken-" + i, 60L, null, null));
+        }
+        for (int i = 0; i < 10; i++) {
+            Assert.assertNull(storage.get("expiring-" + i));
+            Assert.assertEquals("accessToken-" + i, storage.get("live-" + i).getAccessToken());
+        }
+        OffHeapTokenStorage.Footprint footprint = storage.getFootprint();
+        log.info("footprint: {}", footprint);
+        Assert.assertEquals(10, footprint.getLiveCount());
+        Assert.assertEquals(footprint.getSlots() * 128, footprint.getOffHeapBytes());
+    }
+
+    @Test
+    public void testFillToCapacity() {
+        int capacity = 10_000;
+        OffHeapTokenStorage<DefaultToken> storage = new OffHeapTokenStorage<>(CODEC, capacity);
+        for (int i = 0; i < capacity; i++) {
+            storage.set("token-" + i, new DefaultToken("accessToken-" + i, 60L, null, null));
+        }
+        Assert.assertEquals(capacity, storage.size());
+        try {
+            storage.set("full", new DefaultToken("accessToken", 60L, null, null));
+            Assert.fail("storage should be full");
+        } catch (OAuth2HelperException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+        // 覆盖已存在的key不受容量限制
+        storage.set("token-0", new DefaultToken("accessToken-new", 60L, null, null));
+        Assert.assertEquals("accessToken-new", storage.get("token-0").getAccessToken());
+        for (int i = 0; i < capacity; i += 2) {
+            storage.remove("token-" + i);
+        }
+        for (int i = 0; i < capacity; i++) {
+            DefaultToken token = storage.get("token-" + i);
+            if (i % 2 == 0) {
+                Assert.assertNull(token);
+            } else {
+                Assert.assertEquals("accessToken-" + i, token.getAccessToken());
+            }
+        }
+        for (int i = 0; i < capacity; i += 2) {
+            storage.set("token-" + i, new DefaultToken("accessToken-" + i, 60L, null, null));
+        }
+        Assert.assertEquals(capacity, storage.size());
+        log.info("footprint: {}", storage.getFootprint());
+    }
+
+    @Test
+    public void testTokenTooLarge() {
+        OffHeapTokenStorage<DefaultToken> storage = new OffHeapTokenStorage<>(CODEC, 10, 64, 1);
+        try {
+            storage.set("test", new DefaultToken(new String(new char[64]).replace('\0', 'a'), 60L, null, null));
+            Assert.fail("token should be too large");
+        } catch (OAuth2HelperException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testConcurrentSetAndGet() throws Exception {
+        int threads = 16;
+        int tokens = 20_000;
+        OffHeapTokenStorage<DefaultToken> storage = new OffHeapTokenStorage<>(CODEC, threads * tokens, 256, 64);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < tokens; i++) {
+                    String identity = "user-" + thread + "-" + i;
+                    storage.set(identity, new DefaultToken("accessToken-" + i, 7200L, null, "bearer"));
+                    // 删除部分token, 触发段重建
+                    if (i % 3 == 0) {
+                        storage.remove(identity);
+                    }
+                }
+                for (int i = 0; i < tokens; i++) {
+                    DefaultToken token = storage.get("user-" + thread + "-" + i);
+                    if (i % 3 == 0) {
+                        Assert.assertNull(token);
+                    } else {
+                        Assert.assertEquals("accessToken-" + i, token.getAccessToken());
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        OffHeapTokenStorage.Footprint footprint = storage.getFootprint();
+        log.info("footprint: {}", footprint);
+        Assert.assertEquals(threads * (tokens - (tokens + 2) / 3), footprint.getLiveCount());
+    }
+}
@@ -0,0 +1,117 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.Benchmark;
+import org.kangspace.oauth2.helper.storage.redis.RedisTemplateTokenStorage;
+import org.kangspace.oauth2.helper.storage.redis.RedissonTokenStorage;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis批量读写基准测试(需本地Redis: 127.0.0.1:6379) <br>
+ * 对比逐个get/set与getAll/setAll的耗时, 批量读写为一次网络请求
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+@Category(Benchmark.class)
+public class RedisBatchStorageBenchmarkTest {
+    private static final int TENANTS = 1000;
+    private static final int ROUNDS = 20;
+
+    private RedissonClient redissonClient;
+    private LettuceConnectionFactory connectionFactory;
+    private List<String> identities;
+    private Map<String, DefaultToken> tokens;
+
+    @Before
+    public void setUp() {
+        redissonClient = Redisson.create();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", 6379));
+        connectionFactory.afterPropertiesSet();
+        identities = new ArrayList<>(TENANTS);
+        tokens = new LinkedHashMap<>();
+        for (int i = 0; i < TENANTS; i++) {
+            String identity = "benchmark-client-" + i;
+            identities.add(identity);
+            tokens.put(identity, new DefaultToken("accessToken-" + i, 7200L, null, "bearer"));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        redissonClient.shutdown();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    public void redissonBenchmark() {
+        benchmark("RedissonTokenStorage", new RedissonTokenStorage<>(redissonClient));
+    }
+
+    @Test
+    public void redisTemplateBenchmark() {
+        RedisTemplate<String, String> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        benchmark("RedisTemplateTokenStorage", new RedisTemplateTokenStorage<DefaultToken>(redisTemplate) {
+            @Override
+            protected Class<DefaultToken> getTokenClass() {
+                return DefaultToken.class;
+            }
+        });
+    }
+
+    private void benchmark(String name, TokenStorage<DefaultToken> storage) {
+        // 预热
+        storage.setAll(tokens);
+        storage.getAll(identities);
+
+        long start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            tokens.forEach(storage::set);
+        }
+        long setNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            storage.setAll(tokens);
+        }
+        long setAllNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            for (String identity : identities) {
+                Assert.assertNotNull(storage.get(identity));
+            }
+        }
+        long getNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            Assert.assertEquals(TENANTS, storage.getAll(identities).size());
+        }
+        long getAllNanos = System.nanoTime() - start;
+
+        log.info("{}: {} tokens x {} rounds, set: {}ms, setAll: {}ms, get: {}ms, getAll: {}ms", name, TENANTS, ROUNDS,
+                setNanos / 1_000_000, setAllNanos / 1_000_000, getNanos / 1_000_000, getAllNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,180 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.storage.redis.RedisTemplateNearCacheTokenStorage;
+import org.kangspace.oauth2.helper.storage.redis.RedisTemplateTokenStorage;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * RedisTemplateNearCacheTokenStorageTest <br>
+ * 使用内存模拟Redis发布订阅及共享存储, 无需Redis
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class RedisTemplateNearCacheTokenStorageTest {
+    private final MockListenerContainer listenerContainer = new MockListenerContainer();
+    private final MockRedisTemplate redisTemplate = new MockRedisTemplate(listenerContainer);
+    private final List<RedisTemplateNearCacheTokenStorage<DefaultToken>> storages = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        storages.forEach(RedisTemplateNearCacheTokenStorage::close);
+    }
+
+    /**
+     * 其他节点写入的token通过消息更新本地缓存, 不读取共享存储
+     */
+    @Test
+    public void testUpdateFromOtherNode() {
+        RedisTemplateNearCacheTokenStorage<DefaultToken> node1 = storage(new MapStorage("oauth2:token:"));
+        MapStorage shared2 = new MapStorage("oauth2:token:");
+        RedisTemplateNearCacheTokenStorage<DefaultToken> node2 = storage(shared2);
+        node1.set("client", new DefaultToken("accessToken", 7200L, null, null));
+        Assert.assertEquals("accessToken", node2.get("client").getAccessToken());
+        Assert.assertEquals(0, shared2.reads);
+    }
+
+    /**
+     * 共用频道的其他存储(key前缀不同)的同名令牌不更新本地缓存
+     */
+    @Test
+    public void testIgnoreOtherStorage() {
+        RedisTemplateNearCacheTokenStorage<DefaultToken> tenantA = storage(new MapStorage("tenant-a:token:"));
+        RedisTemplateNearCacheTokenStorage<DefaultToken> tenantB = storage(new MapStorage("tenant-b:token:"));
+        tenantA.set("client", new DefaultToken("tenant-a", 7200L, null, null));
+        Assert.assertNull(tenantB.get("client"));
+        tenantB.set("client", new DefaultToken("tenant-b", 7200L, null, null));
+        Assert.assertEquals("tenant-a", tenantA.get("client").getAccessToken());
+        Assert.assertEquals("tenant-b", tenantB.get("client").getAccessToken());
+    }
+
+    @Test
+    public void testClose() {
+        RedisTemplateNearCacheTokenStorage<DefaultToken> node1 = storage(new MapStorage("oauth2:token:"));
+        RedisTemplateNearCacheTokenStorage<DefaultToken> node2 = storage(new MapStorage("oauth2:token:"));
+        node2.close();
+        node1.set("client", new DefaultToken("accessToken", 7200L, null, null));
+        Assert.assertNull(node2.get("client"));
+    }
+
+    private RedisTemplateNearCacheTokenStorage<DefaultToken> storage(MapStorage sharedStorage) {
+        RedisTemplateNearCacheTokenStorage<DefaultToken> storage = new RedisTemplateNearCacheTokenStorage<>(
+                redisTemplate, sharedStorage, listenerContainer);
+        storages.add(storage);
+        return storage;
+    }
+
+    /**
+     * 基于Map的共享存储, 记录读取次数
+     */
+    static class MapStorage extends RedisTemplateTokenStorage<DefaultToken> {
+        private final Map<String, TokenEnvelope<DefaultToken>> values = new ConcurrentHashMap<>();
+        private final String keyPrefix;
+        private int reads;
+
+        MapStorage(String keyPrefix) {
+            super(null);
+            this.keyPrefix = keyPrefix;
+        }
+
+        @Override
+        protected Class<DefaultToken> getTokenClass() {
+            return DefaultToken.class;
+        }
+
+        @Override
+        public String getKeyPrefix() {
+            return keyPrefix;
+        }
+
+        @Override
+        public void set(@Nonnull String identity, @Nonnull DefaultToken value, @Nonnull Long ttlSeconds) {
+            values.put(identity, TokenEnvelope.ofRemaining(value, ttlSeconds * 1000L));
+        }
+
+        @Override
+        public DefaultToken get(@Nonnull String identity) {
+            TokenEnvelope<DefaultToken> envelope = getEnvelope(identity);
+            return envelope == null ? null : envelope.getToken();
+        }
+
+        @Override
+        public TokenEnvelope<DefaultToken> getEnvelope(@Nonnull String identity) {
+            reads++;
+            return values.get(identity);
+        }
+    }
+
+    /**
+     * 同步投递消息的监听容器
+     */
+    static class MockListenerContainer extends RedisMessageListenerContainer {
+        private final List<MessageListener> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void addMessageListener(MessageListener listener, Topic topic) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void removeMessageListener(MessageListener listener) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * 发布消息时直接投递至{@link MockListenerContainer}
+     */
+    static class MockRedisTemplate extends RedisTemplate<String, String> {
+        private final MockListenerContainer listenerContainer;
+
+        MockRedisTemplate(MockListenerContainer listenerContainer) {
+            this.listenerContainer = listenerContainer;
+        }
+
+        @Override
+        public RedisSerializer<?> getValueSerializer() {
+            return RedisSerializer.string();
+        }
+
+        @Override
+        public Long convertAndSend(String channel, Object message) {
+            byte[] body = message.toString().getBytes(StandardCharsets.UTF_8);
+            Message redisMessage = new Message() {
+                @Override
+                public byte[] getBody() {
+                    return body;
+                }
+
+                @Override
+                public byte[] getChannel() {
+                    return channel.getBytes(StandardCharsets.UTF_8);
+                }
+            };
+            listenerContainer.listeners.forEach(listener -> listener.onMessage(redisMessage, null));
+            return (long) listenerContainer.listeners.size();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.storage.redis.RedissonNearCacheTokenStorage;
+import org.kangspace.oauth2.helper.storage.redis.RedissonTokenStorage;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RedissonNearCacheTokenStorageTest <br>
+ * 使用内存模拟Redisson Topic及共享存储, 无需Redis
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class RedissonNearCacheTokenStorageTest {
+    private final Map<Integer, MessageListener<Object>> listeners = new ConcurrentHashMap<>();
+    private final AtomicInteger listenerIds = new AtomicInteger();
+    private final RedissonClient redissonClient = mockRedissonClient();
+    private final List<RedissonNearCacheTokenStorage<DefaultToken>> storages = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        storages.forEach(RedissonNearCacheTokenStorage::close);
+    }
+
+    /**
+     * 其他节点写入的token通过消息更新本地缓存, 不读取共享存储
+     */
+    @Test
+    public void testUpdateFromOtherNode() {
+        RedissonNearCacheTokenStorage<DefaultToken> node1 = storage(new MapStorage("oauth2:token:"));
+        MapStorage shared2 = new MapStorage("oauth2:token:");
+        RedissonNearCacheTokenStorage<DefaultToken> node2 = storage(shared2);
+        node1.set("client", new DefaultToken("accessToken", 7200L, null, null));
+        Assert.assertEquals("accessToken", node2.get("client").getAccessToken());
+        Assert.assertEquals(0, shared2.reads);
+    }
+
+    /**
+     * 共用频道的其他存储(key前缀不同)的同名令牌不更新本地缓存
+     */
+    @Test
+    public void testIgnoreOtherStorage() {
+        RedissonNearCacheTokenStorage<DefaultToken> tenantA = storage(new MapStorage("tenant-a:token:"));
+        RedissonNearCacheTokenStorage<DefaultToken> tenantB = storage(new MapStorage("tenant-b:token:"));
+        tenantA.set("client", new DefaultToken("tenant-a", 7200L, null, null));
+        Assert.assertNull(tenantB.get("client"));
+        tenantB.set("client", new DefaultToken("tenant-b", 7200L, null, null));
+        Assert.assertEquals("tenant-a", tenantA.get("client").getAccessToken());
+        Assert.assertEquals("tenant-b", tenantB.get("client").getAccessToken());
+    }
+
+    @Test
+    public void testClose() {
+        RedissonNearCacheTokenStorage<DefaultToken> node1 = storage(new MapStorage("oauth2:token:"));
+        RedissonNearCacheTokenStorage<DefaultToken> node2 = storage(new MapStorage("oauth2:token:"));
+        node2.close();
+        Assert.assertEquals(1, listeners.size());
+        node1.set("client", new DefaultToken("accessToken", 7200L, null, null));
+        Assert.assertNull(node2.get("client"));
+    }
+
+    private RedissonNearCacheTokenStorage<DefaultToken> storage(MapStorage sharedStorage) {
+        RedissonNearCacheTokenStorage<DefaultToken> storage = new RedissonNearCacheTokenStorage<>(redissonClient,
+                sharedStorage);
+        storages.add(storage);
+        return storage;
+    }
+
+    /**
+     * 模拟RedissonClient: 仅支持getTopic, Topic同步投递消息
+     */
+    @SuppressWarnings("unchecked")
+    private RedissonClient mockRedissonClient() {
+        RTopic topic = (RTopic) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{RTopic.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "addListener":
+                            int id = listenerIds.incrementAndGet();
+                            listeners.put(id, (MessageListener<Object>) args[1]);
+                            return id;
+                        case "publish":
+                            listeners.values().forEach(listener -> listener.onMessage("channel", args[0]));
+                            return (long) listeners.size();
+                        case "removeListener":
+                            for (Object listenerId : (Object[]) args[0]) {
+                                listeners.remove(listenerId);
+                            }
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        return (RedissonClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{RedissonClient.class},
+                (proxy, method, args) -> {
+                    if ("getTopic".equals(method.getName())) {
+                        return topic;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * 基于Map的共享存储, 记录读取次数
+     */
+    class MapStorage extends RedissonTokenStorage<DefaultToken> {
+        private final Map<String, TokenEnvelope<DefaultToken>> values = new ConcurrentHashMap<>();
+        private final String keyPrefix;
+        private int reads;
+
+        MapStorage(String keyPrefix) {
+            super(redissonClient);
+            this.keyPrefix = keyPrefix;
+        }
+
+        @Override
+        public String getKeyPrefix() {
+            return keyPrefix;
+        }
+
+        @Override
+        public void set(@Nonnull String identity, @Nonnull DefaultToken value, @Nonnull Long ttlSeconds) {
+            values.put(identity, TokenEnvelope.ofRemaining(value, ttlSeconds * 1000L));
+        }
+
+        @Override
+        public DefaultToken get(@Nonnull String identity) {
+            TokenEnvelope<DefaultToken> envelope = getEnvelope(identity);
+            return envelope == null ? null : envelope.getToken();
+        }
+
+        @Override
+        public TokenEnvelope<DefaultToken> getEnvelope(@Nonnull String identity) {
+            reads++;
+            return values.get(identity);
+        }
+    }
+}
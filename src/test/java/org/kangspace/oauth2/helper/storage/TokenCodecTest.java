@@ -0,0 +1,120 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.Benchmark;
+import org.kangspace.oauth2.helper.exception.OAuth2HelperException;
+import org.kangspace.oauth2.helper.storage.codec.BinaryTokenCodec;
+import org.kangspace.oauth2.helper.storage.codec.JsonTokenCodec;
+import org.kangspace.oauth2.helper.storage.codec.TokenCodec;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+
+import java.util.UUID;
+
+/**
+ * TokenCodecTest <br>
+ * 包含二进制编码与JSON编码的体积对比, 编解码耗时对比属于{@link Benchmark}分类
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class TokenCodecTest {
+    private static final int ROUNDS = 200_000;
+
+    private final JsonTokenCodec<DefaultToken> jsonCodec = new JsonTokenCodec<>(DefaultToken.class);
+    private final BinaryTokenCodec<DefaultToken> binaryCodec = new BinaryTokenCodec<>(DefaultToken::new, jsonCodec);
+
+    @Test
+    public void testRoundTrip() {
+        DefaultToken token = newToken();
+        DefaultToken decoded = binaryCodec.decode(binaryCodec.encode(token));
+        Assert.assertEquals(token.getAccessToken(), decoded.getAccessToken());
+        Assert.assertEquals(token.getExpiresIn(), decoded.getExpiresIn());
+        Assert.assertEquals(token.getRefreshToken(), decoded.getRefreshToken());
+        Assert.assertEquals(token.getTokenType(), decoded.getTokenType());
+    }
+
+    @Test
+    public void testNullFields() {
+        DefaultToken decoded = binaryCodec.decode(binaryCodec.encode(new DefaultToken("token", null, null, null)));
+        Assert.assertEquals("token", decoded.getAccessToken());
+        Assert.assertNull(decoded.getExpiresIn());
+        Assert.assertNull(decoded.getRefreshToken());
+        Assert.assertNull(decoded.getTokenType());
+        Assert.assertNull(binaryCodec.decode(new byte[0]));
+    }
+
+    @Test
+    public void testJsonFallback() {
+        DefaultToken token = newToken();
+        byte[] json = jsonCodec.encode(token);
+        Assert.assertFalse(BinaryTokenCodec.isEncoded(json));
+        Assert.assertEquals(token.getAccessToken(), binaryCodec.decode(json).getAccessToken());
+    }
+
+    /**
+     * 未知格式版本的数据拒绝解码, 不交由fallback
+     */
+    @Test
+    public void testUnknownVersion() {
+        byte[] bytes = binaryCodec.encode(newToken());
+        bytes[1] = BinaryTokenCodec.VERSION + 1;
+        try {
+            binaryCodec.decode(bytes);
+            Assert.fail("unknown version decoded");
+        } catch (OAuth2HelperException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains(String.valueOf(BinaryTokenCodec.VERSION + 1)));
+        }
+    }
+
+    @Test
+    public void testEncodedSize() {
+        DefaultToken token = newToken();
+        byte[] json = jsonCodec.encode(token);
+        byte[] binary = binaryCodec.encode(token);
+        log.info("TokenCodecTest: bytes per token, json: {}, binary: {}", json.length, binary.length);
+        Assert.assertTrue(binary.length < json.length);
+        // 头部3字节 + 字符串长度前缀(2 + 1 + 1) + expiresIn(2), 其余为字段原始字节
+        int fields = token.getAccessToken().length() + token.getRefreshToken().length()
+                + token.getTokenType().length();
+        Assert.assertEquals(fields + 9, binary.length);
+    }
+
+    @Test
+    @Category(Benchmark.class)
+    public void testBenchmark() {
+        DefaultToken token = newToken();
+        // 预热
+        run(jsonCodec, token, ROUNDS / 10);
+        run(binaryCodec, token, ROUNDS / 10);
+        long jsonMillis = run(jsonCodec, token, ROUNDS);
+        long binaryMillis = run(binaryCodec, token, ROUNDS);
+        log.info("TokenCodecTest: {} rounds encode+decode, json: {}ms, binary: {}ms", ROUNDS, jsonMillis,
+                binaryMillis);
+        Assert.assertTrue(binaryMillis < jsonMillis);
+    }
+
+    private static long run(TokenCodec<DefaultToken> codec, DefaultToken token, int rounds) {
+        long start = System.nanoTime();
+        int size = 0;
+        for (int i = 0; i < rounds; i++) {
+            size += codec.decode(codec.encode(token)).getAccessToken().length();
+        }
+        Assert.assertTrue(size > 0);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static DefaultToken newToken() {
+        StringBuilder accessToken = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            accessToken.append(UUID.randomUUID());
+        }
+        return new DefaultToken(accessToken.toString(), 7200L, UUID.randomUUID().toString(), "bearer");
+    }
+}
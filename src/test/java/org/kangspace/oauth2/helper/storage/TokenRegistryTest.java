@@ -0,0 +1,120 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.devhelper.thread.ThreadUtil;
+import org.kangspace.oauth2.helper.storage.local.TokenRegistry;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * TokenRegistryTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class TokenRegistryTest {
+
+    @Test
+    public void testSharedAcrossViews() {
+        TokenRegistry registry = new TokenRegistry(100);
+        TokenStorage<DefaultToken> storage = registry.storage(TokenRegistry.GRANT_TYPE_CLIENT_CREDENTIALS, null);
+        TokenStorage<DefaultToken> other = registry.storage(TokenRegistry.GRANT_TYPE_CLIENT_CREDENTIALS, null);
+        TokenStorage<DefaultToken> password = registry.storage(TokenRegistry.GRANT_TYPE_PASSWORD, null);
+        Assert.assertSame(storage, other);
+        storage.set("client", new DefaultToken("accessToken", 7200L, null, null));
+        Assert.assertEquals("accessToken", other.get("client").getAccessToken());
+        Assert.assertNull(password.get("client"));
+        Assert.assertNotEquals(storage.getKey("client"), password.getKey("client"));
+    }
+
+    @Test
+    public void testExpiryAndStats() {
+        TokenRegistry registry = new TokenRegistry(100);
+        TokenStorage<DefaultToken> storage = registry.storage(TokenRegistry.GRANT_TYPE_CLIENT_CREDENTIALS, "read");
+        Assert.assertNull(storage.get("client"));
+        storage.set("client", new DefaultToken("accessToken", 1L, null, null));
+        Assert.assertNotNull(storage.get("client"));
+        Assert.assertNotNull(storage.get("client"));
+        ThreadUtil.sleep(1100);
+        Assert.assertNull(storage.get("client"));
+        TokenRegistry.TenantStats stats = registry.getStats(
+                new TokenRegistry.TenantKey("client", TokenRegistry.GRANT_TYPE_CLIENT_CREDENTIALS, "read"));
+        log.info("stats: {}", stats);
+        Assert.assertEquals(2, stats.getHitCount());
+        Assert.assertEquals(2, stats.getMissCount());
+        Assert.assertEquals(0.5D, stats.getHitRatio(), 0.0001D);
+    }
+
+    @Test
+    public void testBoundedEviction() {
+        TokenRegistry registry = new TokenRegistry(100);
+        TokenStorage<DefaultToken> storage = registry.storage(TokenRegistry.GRANT_TYPE_CLIENT_CREDENTIALS, null);
+        storage.set("hot", new DefaultToken("hot", 7200L, null, null));
+        for (int i = 0; i < 1000; i++) {
+            storage.set("client-" + i, new DefaultToken("accessToken-" + i, 7200L, null, null));
+            Assert.assertNotNull(storage.get("hot"));
+        }
+        log.info("size: {}, evictions: {}", registry.size(), registry.getEvictionCount());
+        Assert.assertTrue(registry.size() <= registry.getMaxTenants());
+        Assert.assertTrue(registry.getEvictionCount() > 0);
+        Assert.assertEquals("hot", storage.get("hot").getAccessToken());
+    }
+
+    @Test
+    public void testIdleEvictionAndRefreshTokenRetained() {
+        TokenRegistry registry = new TokenRegistry(100, 1500L);
+        TokenStorage<DefaultToken> storage = registry.storage(TokenRegistry.GRANT_TYPE_PASSWORD, null);
+        storage.set("client:alice", new DefaultToken("accessToken", 1L, "refreshToken", null));
+        storage.set("client:bob", new DefaultToken("accessToken", 7200L, null, null));
+        ThreadUtil.sleep(1100);
+        Assert.assertNull(storage.get("client:alice"));
+        Assert.assertEquals("refreshToken", storage.getRefreshToken("client:alice"));
+        ThreadUtil.sleep(800);
+        Assert.assertNotNull(storage.get("client:bob"));
+        ThreadUtil.sleep(800);
+        // 空闲清理在访问时触发
+        Assert.assertNotNull(storage.get("client:bob"));
+        Assert.assertNull(storage.getRefreshToken("client:alice"));
+        Assert.assertEquals(1, registry.size());
+    }
+
+    /**
+     * 读取过期token时不清除并发写入的新token
+     */
+    @Test
+    public void testExpiredReadDoesNotClearConcurrentSet() throws Exception {
+        TokenRegistry registry = new TokenRegistry(100);
+        TokenStorage<DefaultToken> storage = registry.storage(TokenRegistry.GRANT_TYPE_CLIENT_CREDENTIALS, null);
+        storage.set("client", new DefaultToken("expired", 1L, null, null));
+        ThreadUtil.sleep(1100);
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            readers.execute(() -> {
+                while (running.get()) {
+                    storage.get("client");
+                }
+            });
+        }
+        try {
+            for (int i = 0; i < 2000; i++) {
+                storage.set("client", new DefaultToken("accessToken-" + i, 7200L, null, null));
+                Assert.assertEquals("accessToken-" + i, storage.get("client").getAccessToken());
+            }
+        } finally {
+            running.set(false);
+            readers.shutdown();
+            readers.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.kangspace.oauth2.helper.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.storage.local.TokenSnapshotFile;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+import org.kangspace.oauth2.helper.token.Token;
+import org.kangspace.oauth2.helper.token.TokenEnvelope;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TokenSnapshotFileTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class TokenSnapshotFileTest {
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        Path path = Files.createTempDirectory("oauth2-helper").resolve("token.snapshot");
+        TokenSnapshotFile snapshotFile = new TokenSnapshotFile(path);
+        Assert.assertTrue(snapshotFile.load().isEmpty());
+
+        long now = System.currentTimeMillis();
+        Map<String, TokenEnvelope<DefaultToken>> envelopes = new HashMap<>();
+        envelopes.put("valid", new TokenEnvelope<>(new DefaultToken("accessToken", 7200L, "refreshToken", "bearer"),
+                now, now + 7_200_000L));
+        envelopes.put("expired", new TokenEnvelope<>(new DefaultToken("expired", 7200L, null, null),
+                now - 7_200_000L, now - 1L));
+        snapshotFile.save(envelopes);
+
+        Map<String, TokenEnvelope<Token>> loaded = snapshotFile.load();
+        log.info("loaded: {}", loaded);
+        Assert.assertEquals(1, loaded.size());
+        TokenEnvelope<Token> envelope = loaded.get("valid");
+        Assert.assertEquals("accessToken", envelope.getToken().getAccessToken());
+        Assert.assertEquals("refreshToken", envelope.getToken().getRefreshToken());
+        Assert.assertEquals(DefaultToken.class, envelope.getToken().getClass());
+        Assert.assertEquals(now + 7_200_000L, envelope.getExpiresAtMillis());
+        Assert.assertEquals(now, envelope.getIssuedAtMillis());
+    }
+
+    @Test
+    public void testIgnoreCorruptedFile() throws Exception {
+        Path path = Files.createTempFile("oauth2-helper", ".snapshot");
+        Files.write(path, new byte[]{1, 2, 3});
+        Assert.assertTrue(new TokenSnapshotFile(path).load().isEmpty());
+    }
+}
@@ -0,0 +1,56 @@
+package org.kangspace.oauth2.helper.token;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenEnvelopeTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@RunWith(JUnit4.class)
+public class TokenEnvelopeTest {
+
+    @Test
+    public void testSafetyMargin() {
+        long now = System.currentTimeMillis();
+        TokenEnvelope<DefaultToken> envelope = TokenEnvelope.of(
+                new DefaultToken("accessToken", 7200L, null, null), now, 60L);
+        Assert.assertEquals(now + TimeUnit.SECONDS.toMillis(7200 - 60), envelope.getExpiresAtMillis());
+        Assert.assertFalse(envelope.isExpired());
+        Assert.assertTrue(envelope.remainingTtl().getSeconds() <= 7200 - 60);
+    }
+
+    @Test
+    public void testSafetyMarginCappedForShortLivedToken() {
+        long now = System.currentTimeMillis();
+        TokenEnvelope<DefaultToken> envelope = TokenEnvelope.of(new DefaultToken("accessToken", 10L, null, null), now, 60L);
+        Assert.assertEquals(now + 5000L, envelope.getExpiresAtMillis());
+    }
+
+    @Test
+    public void testIssuedEarlier() {
+        // 一小时前获取的token, 剩余有效时间不足一小时
+        long issuedAt = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+        TokenEnvelope<DefaultToken> envelope = TokenEnvelope.of(
+                new DefaultToken("accessToken", 7200L, null, null), issuedAt, 60L);
+        Assert.assertTrue(envelope.remainingTtl().getSeconds() <= 3600 - 60);
+        TokenEnvelope<DefaultToken> expired = TokenEnvelope.of(
+                new DefaultToken("accessToken", 3600L, null, null), issuedAt, 60L);
+        Assert.assertTrue(expired.isExpired());
+        Assert.assertEquals(0L, expired.remainingTtl().toMillis());
+    }
+
+    @Test
+    public void testOfRemaining() {
+        TokenEnvelope<DefaultToken> envelope = TokenEnvelope.ofRemaining(
+                new DefaultToken("accessToken", 7200L, null, null), TimeUnit.MINUTES.toMillis(10));
+        Assert.assertTrue(envelope.remainingTtl().toMinutes() <= 10);
+        Assert.assertTrue(envelope.getIssuedAtMillis() < System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(100));
+    }
+}
@@ -0,0 +1,117 @@
+package org.kangspace.oauth2.helper.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.request.HttpMethod;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HttpConnectionPoolTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class HttpConnectionPoolTest {
+    private HttpServer server;
+    private String route;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        route = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRouteStatsAndIdleEviction() throws Exception {
+        ConnectionPoolConfig config = new ConnectionPoolConfig().maxPerRoute(route, 2);
+        config.setMaxIdleMillis(200L);
+        try (HttpConnectionPool pool = new HttpConnectionPool(config)) {
+            HttpTransport transport = new ApacheHttpTransport(pool.getHttpClient());
+            transport.execute(new HttpTransportRequest(HttpMethod.GET, route + "/")).close();
+            ConnectionPoolStats stats = pool.getRouteStats().get(route);
+            log.info("HttpConnectionPoolTest: route stats: {}", stats);
+            Assert.assertEquals(2, stats.getMax());
+            Assert.assertEquals(0, stats.getLeased());
+            Assert.assertEquals(1, stats.getAvailable());
+            // 空闲连接由后台线程回收
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getTotalStats().getAvailable() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Assert.assertEquals(0, pool.getTotalStats().getAvailable());
+        }
+    }
+
+    @Test
+    public void testExhausted() throws Exception {
+        ConnectionPoolConfig config = new ConnectionPoolConfig().maxPerRoute(route, 1);
+        try (HttpConnectionPool pool = new HttpConnectionPool(config)) {
+            HttpTransport transport = new ApacheHttpTransport(pool.getHttpClient());
+            HttpTransportResponse leased = transport.execute(new HttpTransportRequest(HttpMethod.GET, route + "/"));
+            CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+                try {
+                    transport.execute(new HttpTransportRequest(HttpMethod.GET, route + "/")).close();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getTotalStats().getPending() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            ConnectionPoolStats stats = pool.getRouteStats().get(route);
+            Assert.assertTrue(stats.isExhausted());
+            // 释放连接后等待的请求获取到连接
+            leased.close();
+            waiting.get(5, TimeUnit.SECONDS);
+            Assert.assertFalse(pool.getRouteStats().get(route).isExhausted());
+        }
+    }
+
+    @Test
+    public void testKeepAliveStrategy() {
+        ConnectionKeepAliveStrategy strategy = HttpConnectionPool.keepAliveStrategy(60000L);
+        Assert.assertEquals(60000L, strategy.getKeepAliveDuration(response(null), new BasicHttpContext()));
+        Assert.assertEquals(5000L, strategy.getKeepAliveDuration(response("timeout=5"), new BasicHttpContext()));
+        Assert.assertEquals(60000L, strategy.getKeepAliveDuration(response("timeout=120"), new BasicHttpContext()));
+    }
+
+    private static HttpResponse response(String keepAlive) {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        if (keepAlive != null) {
+            response.setHeader("Keep-Alive", keepAlive);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,117 @@
+package org.kangspace.oauth2.helper.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.oauth2.helper.request.HttpMethod;
+import org.kangspace.oauth2.helper.request.RequestFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RequestBodyTest
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class RequestBodyTest {
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+    private String url;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // 返回: Content-Length请求头(无时为chunked) + 请求体
+        server.createContext("/echo", exchange -> {
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            String body = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8);
+            byte[] response = ((length != null ? length : "chunked") + " " + body).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+        httpClient = RequestFactory.getHttpClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testJsonNotCloseTarget() throws Exception {
+        boolean[] closed = new boolean[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        RequestBody body = RequestBody.json(new Payload("a"), "application/json");
+        body.writeTo(out);
+        Assert.assertEquals(-1L, body.getContentLength());
+        Assert.assertEquals("{\"name\":\"a\"}", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertFalse(closed[0]);
+    }
+
+    @Test
+    public void testBufferedJsonSerializeOnce() throws Exception {
+        Payload payload = new Payload("a");
+        RequestBody body = RequestBody.bufferedJson(payload, "application/json");
+        Assert.assertEquals(12L, body.getContentLength());
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            body.writeTo(out);
+            Assert.assertEquals("{\"name\":\"a\"}", new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(1, payload.serializations.get());
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        HttpTransport transport = new ApacheHttpTransport(httpClient);
+        Assert.assertEquals("chunked {\"name\":\"a\"}",
+                send(transport, RequestBody.json(new Payload("a"), "application/json")));
+        Assert.assertEquals("12 {\"name\":\"a\"}",
+                send(transport, RequestBody.bufferedJson(new Payload("a"), "application/json")));
+    }
+
+    private String send(HttpTransport transport, RequestBody body) throws Exception {
+        try (HttpTransportResponse response = transport.execute(new HttpTransportRequest(HttpMethod.POST, url)
+                .setBody(body))) {
+            return response.getBodyAsString();
+        }
+    }
+
+    public static class Payload {
+        private final String name;
+        private final AtomicInteger serializations = new AtomicInteger();
+
+        Payload(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            serializations.incrementAndGet();
+            return name;
+        }
+    }
+}
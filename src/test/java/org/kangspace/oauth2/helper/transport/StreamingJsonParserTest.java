@@ -0,0 +1,139 @@
+package org.kangspace.oauth2.helper.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.kangspace.devhelper.json.JsonParser;
+import org.kangspace.oauth2.helper.request.AsyncRequestTest.MockResponse;
+import org.kangspace.oauth2.helper.request.HttpMethod;
+import org.kangspace.oauth2.helper.storage.redis.TokenUpdateMessage;
+import org.kangspace.oauth2.helper.token.DefaultToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StreamingJsonParserTest <br>
+ * 包含解析后关闭响应即释放连接的验证(连接池仅1个连接)
+ *
+ * @author kango2gler@gmail.com
+ * @since 0.0.2
+ */
+@Slf4j
+@RunWith(JUnit4.class)
+public class StreamingJsonParserTest {
+    private static final String TOKEN_JSON = "{\"accessToken\":\"token\",\"expiresIn\":7200,\"unknown\":[1,2]}";
+
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+    private String url;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/token", exchange -> {
+            // JSON后附带多余的空白, 解析不会读取到流末尾
+            byte[] body = (TOKEN_JSON + "\n\n\n").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/token";
+        httpClient = HttpClientBuilder.create()
+                .setDefaultRequestConfig(RequestConfig.custom().setConnectionRequestTimeout(1000).build())
+                .setMaxConnTotal(1)
+                .setMaxConnPerRoute(1)
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        DefaultToken token = StreamingJsonParser.parse(
+                new ByteArrayInputStream(TOKEN_JSON.getBytes(StandardCharsets.UTF_8)), DefaultToken.class);
+        Assert.assertEquals("token", token.getAccessToken());
+        Assert.assertEquals(Long.valueOf(7200L), token.getExpiresIn());
+        Assert.assertNull(StreamingJsonParser.parse(new ByteArrayInputStream(new byte[0]), DefaultToken.class));
+    }
+
+    @Test
+    public void testToJsonStringMatchesBody() throws Exception {
+        DefaultToken token = new DefaultToken("accessToken", 7200L, null, null);
+        String json = StreamingJsonParser.toJsonString(token);
+        Assert.assertEquals(new String(StreamingJsonParser.toBytes(token), StandardCharsets.UTF_8), json);
+        Assert.assertEquals("accessToken", StreamingJsonParser.parse(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), DefaultToken.class).getAccessToken());
+    }
+
+    /**
+     * 序列化/反序列化结果与dev-helper的JsonParser一致
+     */
+    @Test
+    public void testMatchesDevHelperJsonParser() throws Exception {
+        Map<String, Object> requestBody = new LinkedHashMap<>();
+        requestBody.put("name", "value");
+        requestBody.put("empty", null);
+        requestBody.put("date", new Date(0L));
+        List<Object> values = Arrays.asList(new DefaultToken("accessToken", 7200L, null, null), new MockResponse(),
+                new TokenUpdateMessage("node", "identity", "key", new DefaultToken(), 1000L), requestBody,
+                Collections.emptyList(), "string", 1L, null);
+        for (Object value : values) {
+            Assert.assertEquals(JsonParser.toJsonString(value), StreamingJsonParser.toJsonString(value));
+        }
+        for (Class<?> type : Arrays.asList(DefaultToken.class, MockResponse.class, TokenUpdateMessage.class)) {
+            Object parsed = StreamingJsonParser.parse(
+                    new ByteArrayInputStream(TOKEN_JSON.getBytes(StandardCharsets.UTF_8)), type);
+            Assert.assertEquals(JsonParser.toJsonString(JsonParser.parse(TOKEN_JSON, type)),
+                    JsonParser.toJsonString(parsed));
+        }
+    }
+
+    @Test
+    public void testSourceNotClosed() throws Exception {
+        boolean[] closed = new boolean[1];
+        InputStream in = new ByteArrayInputStream(TOKEN_JSON.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        StreamingJsonParser.parse(in, DefaultToken.class);
+        Assert.assertFalse(closed[0]);
+    }
+
+    @Test
+    public void testConnectionReleased() throws Exception {
+        HttpTransport transport = new ApacheHttpTransport(httpClient);
+        // 连接未释放时, 第2次请求获取连接超时
+        for (int i = 0; i < 5; i++) {
+            try (HttpTransportResponse response = transport.execute(new HttpTransportRequest(HttpMethod.GET, url))) {
+                DefaultToken token = StreamingJsonParser.parse(response.getBody(), DefaultToken.class);
+                Assert.assertEquals("token", token.getAccessToken());
+            }
+        }
+    }
+}